@@ -0,0 +1,23 @@
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * The Launcher of the benchmarks. It takes the usual JMH arguments, e.g. a
+ * benchmark name regex or -f 1, and writes the results as JSON to
+ * target/jmh-result.json unless -rf or -rff is given, so every run can be
+ * compared with the previous ones.
+ */
+public class BenchmarkRunner {
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        CommandLineOptions command_line = new CommandLineOptions(args);
+        ChainedOptionsBuilder options = new OptionsBuilder().parent(command_line);
+        if (!command_line.getResultFormat().hasValue()) options.resultFormat(ResultFormatType.JSON);
+        if (!command_line.getResult().hasValue()) options.result("target/jmh-result.json");
+        new Runner(options.build()).run();
+    }
+}
@@ -0,0 +1,503 @@
+import utility.Const;
+import utility.LatencyHistogram;
+
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The LoadGenerator simulates NodeMCU fingerprint scanners connected to a
+ * running server. Every simulated scanner sends its identifier, a beat every
+ * {@link Const#HEARTBEAT_INTERVAL} and the scanFinger messages it is given,
+ * one at a time like the real scanner: a scan that arrives while the scanner
+ * waits for a reply is queued.
+ * <p>
+ *     Scans arrive at random (Poisson) times, either at a steady rate or as a
+ *     morning rush: the rate rises from the base rate to the peak rate in the
+ *     middle of the run and falls back, over the middle half of the run.
+ *     The fingerprint ids are picked from 1 to --fingerprints, so most scans
+ *     of a long run are duplicates the server answers with FAIL.
+ * </p>
+ * <p>
+ *     The report has the scan-to-ack latency percentiles (from sending
+ *     scanFinger to reading OK or FAIL), the throughput, the heartbeat round
+ *     trips and the beats left unanswered for {@link Const#DISCON_THRESHOLD},
+ *     and the scanners the server disconnected: forced with a disconnect
+ *     message, closed without one after a heartbeat timeout, or lost.
+ * </p>
+ * <p>
+ *     Every scanner writes on its own thread, so a server that stops reading
+ *     from one scanner does not hold up the beats and scans of the others.
+ * </p>
+ * Arguments: --host= --port= --scanners= --duration= (seconds)
+ * --pattern=steady|rush --rate= --peak-rate= (scans per second, of all scanners) --fingerprints=
+ */
+public class LoadGenerator {
+    private static final long PROGRESS_INTERVAL_MILLIS = 5000;
+    private static final int CONNECT_TIMEOUT_MILLIS = 5000;
+    private static final long CLOSE_TIMEOUT_MILLIS = 1000;
+    private static final String[] END_OF_OUTPUT = {};
+
+    private final String host;
+    private final int port;
+    private final int scanner_count;
+    private final long duration_millis;
+    private final boolean is_rush;
+    private final double base_rate;
+    private final double peak_rate;
+    private final int fingerprint_count;
+
+    private final List<SimulatedScanner> scanners = new ArrayList<>();
+    private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(2, task -> {
+        Thread thread = new Thread(task, "loadgen-scheduler");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final LatencyHistogram scan_ack_micros = new LatencyHistogram();
+    private final LatencyHistogram window_scan_ack_micros = new LatencyHistogram();
+    private final LatencyHistogram heartbeat_micros = new LatencyHistogram();
+    private final LongAdder scans_sent = new LongAdder();
+    private final LongAdder scans_ok = new LongAdder();
+    private final LongAdder scans_failed = new LongAdder();
+    private final LongAdder scans_queued = new LongAdder();
+    private final LongAdder scans_dropped = new LongAdder();
+    private final LongAdder heartbeat_timeouts = new LongAdder();
+    private final LongAdder forced_disconnects = new LongAdder();
+    private final LongAdder heartbeat_timeout_disconnects = new LongAdder();
+    private final LongAdder lost_connections = new LongAdder();
+    private final LongAdder connect_failures = new LongAdder();
+    private volatile boolean is_running;
+
+
+    private LoadGenerator(String host, int port, int scanner_count, long duration_millis, boolean is_rush,
+                          double base_rate, double peak_rate, int fingerprint_count) {
+        this.host = host;
+        this.port = port;
+        this.scanner_count = scanner_count;
+        this.duration_millis = duration_millis;
+        this.is_rush = is_rush;
+        this.base_rate = base_rate;
+        this.peak_rate = peak_rate;
+        this.fingerprint_count = fingerprint_count;
+    }
+
+
+    public static void main(String[] args) throws InterruptedException {
+        String host = "127.0.0.1";
+        String pattern = "rush";
+        String port_unparsed = Integer.toString(Const.DEFAULT_PORT);
+        String scanners_unparsed = "20";
+        String duration_unparsed = "60";
+        String rate_unparsed = "2";
+        String peak_rate_unparsed = "30";
+        String fingerprints_unparsed = "100";
+        for (String arg : args) {
+            if (arg.startsWith("--host=")) host = arg.substring("--host=".length());
+            else if (arg.startsWith("--port=")) port_unparsed = arg.substring("--port=".length());
+            else if (arg.startsWith("--scanners=")) scanners_unparsed = arg.substring("--scanners=".length());
+            else if (arg.startsWith("--duration=")) duration_unparsed = arg.substring("--duration=".length());
+            else if (arg.startsWith("--pattern=")) pattern = arg.substring("--pattern=".length());
+            else if (arg.startsWith("--rate=")) rate_unparsed = arg.substring("--rate=".length());
+            else if (arg.startsWith("--peak-rate=")) peak_rate_unparsed = arg.substring("--peak-rate=".length());
+            else if (arg.startsWith("--fingerprints=")) {
+                fingerprints_unparsed = arg.substring("--fingerprints=".length());
+            }
+        }
+
+        LoadGenerator load_generator;
+        try {
+            if (!pattern.equals("steady") && !pattern.equals("rush")) throw new IllegalArgumentException();
+            load_generator = new LoadGenerator(
+                    host,
+                    Integer.parseInt(port_unparsed),
+                    Math.max(Integer.parseInt(scanners_unparsed), 1),
+                    Math.max(Long.parseLong(duration_unparsed), 1) * 1000,
+                    pattern.equals("rush"),
+                    Math.max(Double.parseDouble(rate_unparsed), 0.01),
+                    Math.max(Double.parseDouble(peak_rate_unparsed), 0.01),
+                    Math.max(Integer.parseInt(fingerprints_unparsed), 1)
+            );
+        }
+        catch (IllegalArgumentException iae) { // includes NumberFormatException
+            System.err.println("Usage: LoadGenerator [--host=127.0.0.1] [--port=" + Const.DEFAULT_PORT + "] " +
+                    "[--scanners=20] [--duration=60] [--pattern=steady|rush] [--rate=2] [--peak-rate=30] " +
+                    "[--fingerprints=100]");
+            System.exit(1);
+            return;
+        }
+        load_generator.run();
+    }
+
+
+    /**
+     * Connect the scanners, send the scans for the duration of the run, wait
+     * for the last replies and print the report.
+     */
+    public void run() throws InterruptedException {
+        is_running = true;
+        for (int i = 1; i <= scanner_count; i++) {
+            SimulatedScanner scanner = new SimulatedScanner("loadgen-" + i);
+            if (scanner.connect()) scanners.add(scanner);
+        }
+        System.out.printf("Connected %d of %d scanners to %s:%d. %s for %ds.%n",
+                scanners.size(), scanner_count, host, port,
+                is_rush ? String.format("Morning rush of %.1f to %.1f scans/s", base_rate, peak_rate)
+                        : String.format("Steady %.1f scans/s", base_rate),
+                duration_millis / 1000);
+        if (scanners.isEmpty()) return;
+
+        for (SimulatedScanner scanner : scanners) {
+            scheduler.scheduleAtFixedRate(
+                    scanner::beat,
+                    ThreadLocalRandom.current().nextLong(Const.HEARTBEAT_INTERVAL),
+                    Const.HEARTBEAT_INTERVAL,
+                    TimeUnit.MILLISECONDS
+            );
+        }
+        long start_nanos = System.nanoTime();
+        long[] last_progress = {start_nanos, 0}; // when and at how many replies the last progress was printed.
+        scheduler.scheduleAtFixedRate(
+                () -> printProgress(start_nanos, last_progress),
+                PROGRESS_INTERVAL_MILLIS, PROGRESS_INTERVAL_MILLIS, TimeUnit.MILLISECONDS
+        );
+
+        sendScans(start_nanos);
+
+        // wait for the replies of the scans still pending or queued.
+        long drain_end_nanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(Const.DISCON_THRESHOLD);
+        while (System.nanoTime() < drain_end_nanos && scanners.stream().anyMatch(SimulatedScanner::isBusy)) {
+            Thread.sleep(50);
+        }
+        long elapsed_nanos = System.nanoTime() - start_nanos;
+        is_running = false;
+        scheduler.shutdownNow();
+        for (SimulatedScanner scanner : scanners) {
+            scanner.close();
+        }
+        printReport(elapsed_nanos);
+    }
+
+
+    /**
+     * Send scans to random connected scanners at random times until the end
+     * of the run. The times of a rate that changes are picked by thinning:
+     * candidate times arrive at the highest rate and each is kept with the
+     * ratio of the rate at that time to the highest rate.
+     */
+    private void sendScans(long start_nanos) throws InterruptedException {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        double max_rate = is_rush ? Math.max(base_rate, peak_rate) : base_rate;
+        double elapsed_millis = 0;
+        while (true) {
+            elapsed_millis += -Math.log(1 - random.nextDouble()) / max_rate * 1000;
+            if (elapsed_millis >= duration_millis) break;
+            long wait_nanos = start_nanos + (long) (elapsed_millis * 1e6) - System.nanoTime();
+            if (wait_nanos > 0) TimeUnit.NANOSECONDS.sleep(wait_nanos);
+            if (random.nextDouble() * max_rate > rateAt(elapsed_millis)) continue;
+
+            SimulatedScanner scanner = scanners.get(random.nextInt(scanners.size()));
+            if (!scanner.is_connected) {
+                scans_dropped.increment();
+                continue;
+            }
+            scanner.scan(1 + random.nextInt(fingerprint_count));
+        }
+    }
+
+
+    /**
+     * @param elapsed_millis the time since the start of the run.
+     * @return the scans per second of all scanners at that time.
+     */
+    private double rateAt(double elapsed_millis) {
+        if (!is_rush) return base_rate;
+        double distance_from_peak = Math.abs(elapsed_millis / duration_millis - 0.5); // 0 to 0.5
+        return base_rate + (peak_rate - base_rate) * Math.max(0, 1 - distance_from_peak * 4);
+    }
+
+
+    private void printProgress(long start_nanos, long[] last_progress) {
+        long now_nanos = System.nanoTime();
+        long replies = scans_ok.sum() + scans_failed.sum();
+        double window_seconds = (now_nanos - last_progress[0]) / 1e9;
+        LatencyHistogram.Snapshot window = window_scan_ack_micros.snapshotAndReset();
+        System.out.printf("t=%3ds  scanners=%d  sent=%d  replies=%d  %.1f replies/s  p99=%.2fms  queued=%d%n",
+                (now_nanos - start_nanos) / 1_000_000_000L,
+                scanners.stream().filter(scanner -> scanner.is_connected).count(),
+                scans_sent.sum(), replies, (replies - last_progress[1]) / window_seconds,
+                window.getValueAtPercentile(99) / 1e3, scans_queued.sum());
+        last_progress[0] = now_nanos;
+        last_progress[1] = replies;
+    }
+
+
+    private void printReport(long elapsed_nanos) {
+        LatencyHistogram.Snapshot scan_ack = scan_ack_micros.snapshot();
+        LatencyHistogram.Snapshot heartbeat = heartbeat_micros.snapshot();
+        long replies = scans_ok.sum() + scans_failed.sum();
+        long unanswered = scans_sent.sum() - replies; // sent, but no OK or FAIL came back.
+        long never_sent = 0; // still queued behind a scan that got no reply.
+        for (SimulatedScanner scanner : scanners) {
+            never_sent += scanner.getQueuedCount();
+        }
+
+        System.out.println();
+        System.out.printf("Scans          sent=%d  ok=%d  fail=%d  unanswered=%d  never sent=%d  dropped=%d%n",
+                scans_sent.sum(), scans_ok.sum(), scans_failed.sum(), unanswered, never_sent, scans_dropped.sum());
+        System.out.printf("Throughput     %.1f replies/s over %.1fs%n",
+                replies / (elapsed_nanos / 1e9), elapsed_nanos / 1e9);
+        System.out.printf("Scan to ack    p50=%.2fms  p90=%.2fms  p99=%.2fms  p99.9=%.2fms  max=%.2fms%n",
+                scan_ack.getValueAtPercentile(50) / 1e3, scan_ack.getValueAtPercentile(90) / 1e3,
+                scan_ack.getValueAtPercentile(99) / 1e3, scan_ack.getValueAtPercentile(99.9) / 1e3,
+                scan_ack.getValueAtPercentile(100) / 1e3);
+        System.out.printf("Heartbeat      beats=%d  p50=%.2fms  p99=%.2fms  timeouts=%d%n",
+                heartbeat.getTotalCount(), heartbeat.getValueAtPercentile(50) / 1e3,
+                heartbeat.getValueAtPercentile(99) / 1e3, heartbeat_timeouts.sum());
+        System.out.printf("Connections    scanners=%d  connect failures=%d  forced disconnects=%d  lost=%d%n",
+                scanner_count, connect_failures.sum(), forced_disconnects.sum(), lost_connections.sum());
+        System.out.printf("Timed out      closed by the server without a disconnect, e.g. a heartbeat timeout=%d%n",
+                heartbeat_timeout_disconnects.sum());
+    }
+
+
+    /**
+     * How the server ended the connection of a scanner.
+     */
+    private enum Disconnect {
+        FORCED("was disconnected by the server."),
+        HEARTBEAT_TIMEOUT("was closed by the server without a disconnect, e.g. after a heartbeat timeout."),
+        LOST("lost its connection to the server.");
+
+        private final String message;
+
+        Disconnect(String message) {
+            this.message = message;
+        }
+    }
+
+
+    /**
+     * One simulated scanner: its messages are queued by the scheduler and
+     * the main thread and written by its writer thread, and the replies of
+     * the server are read by its reader thread. No socket write is done while
+     * holding the lock of the scanner.
+     */
+    private class SimulatedScanner {
+        private final String identifier;
+        private final ArrayDeque<Integer> queued_fingerprint_ids = new ArrayDeque<>(); // guarded by this
+        private final BlockingQueue<String[]> outgoing_lines = new LinkedBlockingQueue<>();
+        private Socket socket;
+        private Thread writer;
+        private long scan_sent_nanos; // guarded by this, 0 when no scan waits for a reply
+        private long beat_sent_nanos; // guarded by this, 0 when no beat waits for a reply
+        private volatile boolean is_connected;
+
+
+        private SimulatedScanner(String identifier) {
+            this.identifier = identifier;
+        }
+
+
+        /**
+         * Connect to the server, send the identifier and start reading the replies.
+         * @return false if the scanner cannot connect.
+         */
+        private boolean connect() {
+            try {
+                socket = new Socket();
+                socket.setTcpNoDelay(true);
+                socket.connect(new InetSocketAddress(host, port), CONNECT_TIMEOUT_MILLIS);
+                BufferedWriter output = new BufferedWriter(
+                        new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8)
+                );
+                BufferedReader input = new BufferedReader(
+                        new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8)
+                );
+                is_connected = true;
+                send(identifier);
+
+                writer = new Thread(() -> writeLines(output), identifier + "-writer");
+                writer.setDaemon(true);
+                writer.start();
+                Thread reader = new Thread(() -> readReplies(input), identifier + "-reader");
+                reader.setDaemon(true);
+                reader.start();
+                return true;
+            }
+            catch (IOException ioe) {
+                connect_failures.increment();
+                System.err.println(identifier + " cannot connect: " + ioe.getMessage());
+                return false;
+            }
+        }
+
+
+        private void readReplies(BufferedReader input) {
+            try {
+                String reply;
+                while ((reply = input.readLine()) != null) {
+                    switch (reply) {
+                        case "heartbeat" -> beatAcknowledged();
+                        case "OK" -> {
+                            input.readLine(); // the first name of the user
+                            scanAcknowledged(true);
+                        }
+                        case "FAIL" -> scanAcknowledged(false);
+                        case "disconnect" -> {
+                            serverDisconnected(Disconnect.FORCED);
+                            return;
+                        }
+                        default -> {} // enroll, reboot and delete are not simulated.
+                    }
+                }
+                // the server closes without a disconnect when it missed the beats.
+                serverDisconnected(Disconnect.HEARTBEAT_TIMEOUT);
+            }
+            catch (IOException ioe) {
+                serverDisconnected(Disconnect.LOST);
+            }
+        }
+
+
+        /**
+         * Write the queued lines until the scanner is closed or the connection fails.
+         */
+        private void writeLines(BufferedWriter output) {
+            try {
+                while (true) {
+                    String[] lines = outgoing_lines.take();
+                    if (lines == END_OF_OUTPUT) return;
+                    for (String line : lines) {
+                        output.write(line);
+                        output.write('\n');
+                    }
+                    if (outgoing_lines.isEmpty()) output.flush();
+                }
+            }
+            catch (IOException ioe) {
+                serverDisconnected(Disconnect.LOST);
+            }
+            catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+
+        /**
+         * Queue lines for the writer thread. Never blocks.
+         */
+        private void send(String... lines) {
+            if (is_connected) outgoing_lines.add(lines);
+        }
+
+
+        /**
+         * Scan a fingerprint now, or after the reply to the scan before it.
+         * @param fingerprint_id the fingerprint id to scan.
+         */
+        private synchronized void scan(int fingerprint_id) {
+            if (scan_sent_nanos != 0) {
+                queued_fingerprint_ids.add(fingerprint_id);
+                scans_queued.increment();
+                return;
+            }
+            scan_sent_nanos = System.nanoTime();
+            scans_sent.increment();
+            send("scanFinger", Integer.toString(fingerprint_id));
+        }
+
+
+        private synchronized void scanAcknowledged(boolean is_ok) {
+            if (scan_sent_nanos == 0) return; // e.g. the OK of an enrollment
+            long ack_micros = (System.nanoTime() - scan_sent_nanos) / 1000;
+            scan_ack_micros.record(ack_micros);
+            window_scan_ack_micros.record(ack_micros);
+            (is_ok ? scans_ok : scans_failed).increment();
+            scan_sent_nanos = 0;
+            Integer next_fingerprint_id = queued_fingerprint_ids.poll();
+            if (next_fingerprint_id != null && is_running) {
+                scans_queued.decrement();
+                scan(next_fingerprint_id);
+            }
+        }
+
+
+        /**
+         * Send a beat. A beat still unanswered after the disconnection
+         * threshold of the server counts as a heartbeat timeout.
+         */
+        private synchronized void beat() {
+            if (!is_connected) return;
+            long now_nanos = System.nanoTime();
+            if (beat_sent_nanos != 0 && now_nanos - beat_sent_nanos >= Const.DISCON_THRESHOLD * 1_000_000) {
+                heartbeat_timeouts.increment();
+                beat_sent_nanos = 0;
+            }
+            if (beat_sent_nanos == 0) beat_sent_nanos = now_nanos;
+            send("beat");
+        }
+
+
+        private synchronized void beatAcknowledged() {
+            if (beat_sent_nanos == 0) return;
+            heartbeat_micros.record((System.nanoTime() - beat_sent_nanos) / 1000);
+            beat_sent_nanos = 0;
+        }
+
+
+        private synchronized boolean isBusy() {
+            return is_connected && (scan_sent_nanos != 0 || !queued_fingerprint_ids.isEmpty());
+        }
+
+
+        private synchronized int getQueuedCount() {
+            return queued_fingerprint_ids.size();
+        }
+
+
+        private synchronized void serverDisconnected(Disconnect disconnect) {
+            if (!is_connected || !is_running) return;
+            is_connected = false;
+            switch (disconnect) {
+                case FORCED -> forced_disconnects.increment();
+                case HEARTBEAT_TIMEOUT -> heartbeat_timeout_disconnects.increment();
+                case LOST -> lost_connections.increment();
+            }
+            outgoing_lines.add(END_OF_OUTPUT);
+            System.err.println(identifier + " " + disconnect.message);
+        }
+
+
+        /**
+         * Send the disconnect, give the writer a moment to write it and close the socket.
+         */
+        private void close() {
+            send("disconnect");
+            is_connected = false;
+            outgoing_lines.add(END_OF_OUTPUT);
+            try {
+                writer.join(CLOSE_TIMEOUT_MILLIS);
+            }
+            catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+            }
+            try {
+                socket.close(); // also ends a writer stuck on a server that stopped reading.
+            }
+            catch (IOException ioe) {
+                ioe.printStackTrace();
+            }
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package core;
+
+import org.openjdk.jmh.annotations.*;
+import utility.LogHelper;
+import utility.LogTypes;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks finding the command of a console input, for a short command,
+ * a long command with a quoted argument and an input that is not a command.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CommandExecutorBenchmark {
+
+    @Param({
+            "start server",
+            "export event \"Morning Assembly\" --format=csv",
+            "not a command at all"
+    })
+    public String input;
+
+
+    @Setup
+    public void setUp() {
+        LogHelper.setEnabled(LogTypes.DEBUG, false); // checkValidCommand would print every input.
+    }
+
+
+    @Benchmark
+    public int checkValidCommand() {
+        return CommandExecutor.checkValidCommand(input);
+    }
+}
@@ -0,0 +1,60 @@
+package core;
+
+import org.openjdk.jmh.annotations.*;
+import utility.TempAttendanceData;
+import utility.TempEnrollmentData;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks reading the scanFinger and enrollFinger messages of a client,
+ * from the lines in the input buffer to the data passed to the database,
+ * and generating the name of a new client.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProtocolBenchmark {
+    private static final String CLIENT_IDENTIFIER = "scanner-01";
+    private static final String SCAN_MESSAGE = "scanFinger\n127\n";
+    private static final String ENROLL_MESSAGE =
+            "enrollFinger\nJuan\nSantos\nDela Cruz\n21\nMale\n09171234567\n123 Rizal St., Manila\n127\n";
+
+
+    @Benchmark
+    public TempAttendanceData scanFinger() throws IOException {
+        BufferedReader input = new BufferedReader(new StringReader(SCAN_MESSAGE));
+        input.readLine(); // the message
+        TempAttendanceData attendance_data = new TempAttendanceData();
+        attendance_data.buildAttendanceData(input.readLine(), "Morning Assembly", "Main Hall", CLIENT_IDENTIFIER);
+        return attendance_data;
+    }
+
+
+    @Benchmark
+    public TempEnrollmentData enrollFinger() throws IOException {
+        BufferedReader input = new BufferedReader(new StringReader(ENROLL_MESSAGE));
+        input.readLine(); // the message
+        return ServerManager.buildEnrollee(ServerManager.readEnrolleeLines(input), CLIENT_IDENTIFIER);
+    }
+
+
+    @Benchmark
+    public TempAttendanceData buildAttendanceData() {
+        TempAttendanceData attendance_data = new TempAttendanceData();
+        attendance_data.buildAttendanceData("127", "Morning Assembly", "Main Hall", CLIENT_IDENTIFIER);
+        return attendance_data;
+    }
+
+
+    @Benchmark
+    public String generateClientName() {
+        return ServerManager.generateClientName();
+    }
+}
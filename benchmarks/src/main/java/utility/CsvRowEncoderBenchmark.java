@@ -0,0 +1,41 @@
+package utility;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks encoding one attendance row of an export, with plain fields and
+ * with fields that have to be quoted.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CsvRowEncoderBenchmark {
+    private static final String[] PLAIN_ROW = {
+            "127", "Juan", "Santos", "Dela Cruz", "2026-10-18", "07:45:12", "Morning Assembly", "Main Hall"
+    };
+    private static final String[] QUOTED_ROW = {
+            "127", "Juan", "Santos", "Dela Cruz", "2026-10-18", "07:45:12", "Assembly, \"Day 1\"", "Hall A,\nWing B"
+    };
+
+    private final CsvRowEncoder encoder = new CsvRowEncoder();
+    private final Writer writer = Writer.nullWriter();
+
+
+    @Benchmark
+    public void plainRow() throws IOException {
+        encoder.writeRow(writer, PLAIN_ROW);
+    }
+
+
+    @Benchmark
+    public void quotedRow() throws IOException {
+        encoder.writeRow(writer, QUOTED_ROW);
+    }
+}
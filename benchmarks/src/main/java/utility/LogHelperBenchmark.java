@@ -0,0 +1,45 @@
+package utility;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks creating a log record and formatting it into the text shown in
+ * the console and written to the log file.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LogHelperBenchmark {
+    private static final String TEXT = "Searching database for user with fingerprint ID: 127 (trace 42)";
+
+    private LogRecord record;
+
+
+    @Setup
+    public void setUp() {
+        record = LogHelper.log(TEXT, LogTypes.CLIENT, "aB3dE5fG");
+    }
+
+
+    @Benchmark
+    public LogRecord log() {
+        return LogHelper.log(TEXT, LogTypes.CLIENT, "aB3dE5fG");
+    }
+
+
+    @Benchmark
+    public String format() {
+        return LogHelper.format(record);
+    }
+
+
+    @Benchmark
+    public String logAndFormat() {
+        return LogHelper.format(LogHelper.log(TEXT, LogTypes.CLIENT, "aB3dE5fG"));
+    }
+}
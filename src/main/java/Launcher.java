@@ -1,14 +1,28 @@
+import core.HeadlessServer;
 import gui.MainWindow;
+import utility.StartupTimer;
+
+import java.util.Arrays;
 
 /**
  * The Main Launcher of the Application.
  * The Launcher is required to deal with the module system trouble
  * that JavaFX and Maven is making.
+ * <p>
+ *     Run with --headless to start the server without JavaFX, e.g. as a service.
+ *     See {@link HeadlessServer} for its --host= and --port= arguments.
+ * </p>
  *
  * @implNote Use this class for launching the program.
  */
 public class Launcher {
     public static void main(String[] args) {
-        MainWindow.main(args);
+        StartupTimer.mark("jvm");
+        if (Arrays.asList(args).contains("--headless")) {
+            HeadlessServer.main(args);
+        }
+        else {
+            MainWindow.main(args);
+        }
     }
 }
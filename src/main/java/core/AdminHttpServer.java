@@ -0,0 +1,573 @@
+package core;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import utility.*;
+
+import java.io.*;
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * The AdminHttpServer is a small HTTP API to control the server without the
+ * console, e.g. from a script or a monitoring system. It is bound to
+ * {@link Const#ADMIN_HTTP_HOST} and every request must send the admin token
+ * as {@code Authorization: Bearer <token>}. Without ADMIN_TOKEN a random token
+ * is made at start and logged.
+ * <p>
+ *     A web page can send simple requests to localhost, so requests with an
+ *     Origin header, i.e. from a browser, and requests with a body that is not
+ *     {@code application/json} are refused before they are handled.
+ * </p>
+ * <ul>
+ *     <li>GET /clients - the connected clients, as JSON Lines.</li>
+ *     <li>POST /commands - run the console command of the JSON body
+ *     {@code {"command": "<command>"}} and return the lines it logged.</li>
+ *     <li>GET /export?type=&lt;date|event|all_users|all_attendance&gt;&amp;value=&lt;v&gt;&amp;format=&lt;fmt&gt;
+ *     - stream an export as a download.</li>
+ *     <li>GET /metrics - the {@link ServerStats} in the Prometheus text format.</li>
+ * </ul>
+ * The live attendance feed has its own server, see {@link AttendanceFeedServer}.
+ * <p>
+ *     Requests run on virtual threads when the JVM has them, on a cached
+ *     thread pool otherwise, and never touch the JavaFX thread.
+ * </p>
+ */
+public class AdminHttpServer {
+    private static final double[] LATENCY_BUCKET_SECONDS = {0.001, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5};
+    private static final int GENERATED_TOKEN_BYTES = 24;
+    private static AdminHttpServer running_server;
+
+    private final AppContext app;
+    private final HttpServer http_server;
+    private final ExecutorService executor;
+    private final byte[] token;
+
+
+    /**
+     * @param app the app the commands run on.
+     * @param host the host the server is bound to.
+     * @param port the port the server is bound to.
+     * @param token the token every request must send.
+     * @throws IOException if the port can not be bound.
+     */
+    private AdminHttpServer(AppContext app, String host, int port, String token) throws IOException {
+        this.app = app;
+        this.token = token.getBytes(StandardCharsets.UTF_8);
+        executor = newRequestExecutor("admin-http");
+        http_server = HttpServer.create(new InetSocketAddress(host, port), 0);
+        http_server.setExecutor(executor);
+        http_server.createContext("/clients", authorized("GET", this::handleClients));
+        http_server.createContext("/commands", authorized("POST", this::handleCommand));
+        http_server.createContext("/export", authorized("GET", this::handleExport));
+        http_server.createContext("/metrics", authorized("GET", this::handleMetrics));
+    }
+
+
+    /**
+     * Start the admin server if it is not running yet.
+     * @param app the app the commands run on.
+     * @param port the port the server is bound to.
+     * @param token the token every request must send, or null to make a random one.
+     * @return false if the server is already running or the port can not be bound.
+     */
+    public static synchronized boolean start(AppContext app, int port, String token) {
+        if (running_server != null) {
+            app.sendToConsole(LogHelper.log("Admin server is already running.", LogTypes.INVALID));
+            return false;
+        }
+        boolean is_generated = token == null || token.isBlank();
+        if (is_generated) token = generateToken();
+        try {
+            running_server = new AdminHttpServer(app, Const.ADMIN_HTTP_HOST, port, token);
+            running_server.http_server.start();
+        }
+        catch (IOException | IllegalArgumentException e) {
+            running_server = null;
+            app.sendToConsole(LogHelper.log("Cannot open the admin server on port " + port + ".", LogTypes.ERROR));
+            return false;
+        }
+        app.sendToConsole(LogHelper.log(String.format(
+                "Admin server listening on http://%s:%d", Const.ADMIN_HTTP_HOST, port
+        ), LogTypes.SERVER));
+        if (is_generated) {
+            app.sendToConsole(LogHelper.log(
+                    "Admin token: " + token + " (new at every start, set ADMIN_TOKEN to keep one)", LogTypes.SERVER
+            ));
+        }
+        return true;
+    }
+
+
+    /**
+     * @return a random token for when ADMIN_TOKEN or FEED_TOKEN is not set.
+     */
+    static String generateToken() {
+        byte[] token_bytes = new byte[GENERATED_TOKEN_BYTES];
+        new SecureRandom().nextBytes(token_bytes);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(token_bytes);
+    }
+
+
+    /**
+     * Stop the admin server if it is running.
+     * @return false if the server was not running.
+     */
+    public static synchronized boolean stop() {
+        if (running_server == null) return false;
+        running_server.http_server.stop(0);
+        running_server.executor.shutdownNow();
+        running_server = null;
+        return true;
+    }
+
+
+    /**
+     * Create the executor of the requests: one virtual thread per request on a
+     * JVM that has them, e.g. Java 21, else a cached pool of daemon threads.
+     * Looked up by reflection as the app is built for Java 19, where virtual
+     * threads are a preview feature.
+     * @param thread_name the name of the pool threads.
+     */
+    static ExecutorService newRequestExecutor(String thread_name) {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        }
+        catch (ReflectiveOperationException | UnsupportedOperationException e) {
+            return Executors.newCachedThreadPool(runnable -> {
+                Thread thread = new Thread(runnable, thread_name);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+
+    /**
+     * Wrap a handler so it only accepts one method, the token, no Origin and only a JSON body.
+     */
+    private HttpHandler authorized(String method, HttpHandler handler) {
+        return exchange -> {
+            try {
+                if (exchange.getRequestHeaders().containsKey("Origin")) {
+                    sendText(exchange, 403, "Requests from a browser are refused.\n");
+                }
+                else if (!isAuthorized(exchange)) {
+                    sendText(exchange, 401, "Missing or invalid token.\n");
+                }
+                else if (!exchange.getRequestMethod().equals(method)) {
+                    exchange.getResponseHeaders().set("Allow", method);
+                    sendText(exchange, 405, "Use " + method + ".\n");
+                }
+                else if (!isJsonContentType(exchange, method.equals("POST"))) {
+                    sendText(exchange, 415, "Send the body as application/json.\n");
+                }
+                else {
+                    handler.handle(exchange);
+                }
+            }
+            catch (IOException ioe) {
+                // the client went away, e.g. in the middle of a download.
+                LogHelper.debugLog("Admin request failed: " + ioe.getMessage());
+            }
+            catch (RuntimeException | LinkageError e) {
+                // e.g. the database credentials are missing, keep serving the other requests.
+                e.printStackTrace();
+                sendErrorQuietly(exchange);
+            }
+            finally {
+                exchange.close();
+            }
+        };
+    }
+
+
+    private boolean isAuthorized(HttpExchange exchange) {
+        String authorization = exchange.getRequestHeaders().getFirst("Authorization");
+        if (authorization == null || !authorization.startsWith("Bearer ")) return false;
+        byte[] request_token = authorization.substring("Bearer ".length()).strip().getBytes(StandardCharsets.UTF_8);
+        return MessageDigest.isEqual(token, request_token); // constant time.
+    }
+
+
+    /**
+     * @param is_body_expected true if the request must have a JSON body, false if it may have none.
+     * @return false if the request has a Content-Type other than application/json.
+     */
+    private static boolean isJsonContentType(HttpExchange exchange, boolean is_body_expected) {
+        String content_type = exchange.getRequestHeaders().getFirst("Content-Type");
+        if (content_type == null) return !is_body_expected;
+        int parameters_index = content_type.indexOf(';'); // e.g. application/json; charset=utf-8
+        String media_type = parameters_index < 0 ? content_type : content_type.substring(0, parameters_index);
+        return media_type.strip().equalsIgnoreCase("application/json");
+    }
+
+
+    /**
+     * GET /clients
+     */
+    private void handleClients(HttpExchange exchange) throws IOException {
+        ServerManager server_manager = app.getServerManager();
+        Map<String, Long> heartbeat_rtts = ServerStats.getHeartbeatRtts();
+
+        List<String[]> data = new ArrayList<>();
+        data.add(new String[] {"name", "id", "address", "heartbeat_rtt_ms"});
+        if (server_manager != null && !server_manager.isClosed()) {
+            for (ServerManager.FSClient client : server_manager.getClients()) {
+                Long rtt = heartbeat_rtts.get(client.getClientName());
+                data.add(new String[] {
+                        client.getClientName(),
+                        client.getClientID(),
+                        client.getClientSocketAddress(),
+                        rtt == null ? null : rtt.toString()
+                });
+            }
+        }
+        sendExport(exchange, data, ExportFormat.JSON_LINES, null);
+    }
+
+
+    /**
+     * POST /commands with {"command": "..."} as the request body.
+     */
+    private void handleCommand(HttpExchange exchange) throws IOException {
+        String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+        String command = parseCommandBody(body);
+        if (command == null) {
+            sendText(exchange, 400, "Send the command as {\"command\": \"<command>\"}.\n");
+            return;
+        }
+        command = command.strip();
+        if (CommandExecutor.checkValidCommand(command) == 0) {
+            sendText(exchange, 400, "Not a recognizable command.\n");
+            return;
+        }
+
+        app.sendToConsole(LogHelper.log(command + " (admin server)", LogTypes.CONSOLE));
+        CaptureContext capture = new CaptureContext(app);
+        CommandExecutor.execute(capture, command);
+
+        StringBuilder output = new StringBuilder();
+        for (LogRecord record : capture.records) {
+            output.append(LogHelper.format(record)).append('\n');
+        }
+        sendText(exchange, 200, output.toString());
+    }
+
+
+    /**
+     * GET /export?type=...&value=...&format=...
+     */
+    private void handleExport(HttpExchange exchange) throws IOException {
+        Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+        if (query == null) {
+            sendText(exchange, 400, "Invalid query. Encode its values, e.g. %20 for a space.\n");
+            return;
+        }
+        String type = query.getOrDefault("type", "");
+        String value = query.get("value");
+        ExportFormat format;
+        try {
+            format = ExportFormat.fromName(query.getOrDefault("format", ExportFormat.CSV.getName()));
+        }
+        catch (IllegalArgumentException iae) {
+            sendText(exchange, 400, iae.getMessage() + "\n");
+            return;
+        }
+
+        List<String[]> data;
+        String filename;
+        try {
+            DatabaseManager database_manager = new DatabaseManager();
+            TempExportQueryData export_data = new TempExportQueryData();
+            switch (type) {
+                case "date" -> {
+                    if (value == null || !export_data.buildDate(value)) {
+                        sendText(exchange, 400, "Invalid date format. {yyyy-mm-dd}\n");
+                        return;
+                    }
+                    data = database_manager.queryAttendanceByDate(export_data);
+                    filename = value;
+                }
+                case "event" -> {
+                    if (value == null) {
+                        sendText(exchange, 400, "Missing event name.\n");
+                        return;
+                    }
+                    export_data.buildEventName(value);
+                    data = database_manager.queryAttendanceByEventName(export_data);
+                    filename = value;
+                }
+                case "all_users" -> {
+                    data = database_manager.queryAllUsers();
+                    filename = "all-users-enrolled";
+                }
+                case "all_attendance" -> {
+                    data = database_manager.queryAllAttendanceData();
+                    filename = "all-attendance-data";
+                }
+                default -> {
+                    sendText(exchange, 400, "Unknown export type. Use date, event, all_users or all_attendance.\n");
+                    return;
+                }
+            }
+        }
+        catch (ExceptionInInitializerError | NoClassDefFoundError e) {
+            sendText(exchange, 503, "The database credentials are missing. Check the .env file.\n");
+            return;
+        }
+
+        if (data == null) {
+            sendText(exchange, 503, "Cannot query the database.\n");
+            return;
+        }
+        app.sendToConsole(LogHelper.log(
+                "Admin server export: " + filename + format.getExtension() + " (" + (data.size() - 1) + " rows)",
+                LogTypes.INFO
+        ));
+        sendExport(exchange, data, format, filename);
+    }
+
+
+    /**
+     * GET /metrics
+     */
+    private void handleMetrics(HttpExchange exchange) throws IOException {
+        StringBuilder metrics = new StringBuilder(1024);
+        appendMetric(metrics, "attendance_scans_total", "counter",
+                "Scans since the server started.", ServerStats.getScanCount());
+        appendMetric(metrics, "attendance_scans_failed_total", "counter",
+                "Scans whose attendance could not be recorded.", ServerStats.getFailedScanCount());
+
+        LatencyHistogram.Snapshot latencies = ServerStats.getTotalScanLatencies();
+        metrics.append("# HELP attendance_scan_latency_seconds Time from the scan request to the reply.\n");
+        metrics.append("# TYPE attendance_scan_latency_seconds histogram\n");
+        for (double bound_seconds : LATENCY_BUCKET_SECONDS) {
+            metrics.append("attendance_scan_latency_seconds_bucket{le=\"").append(bound_seconds).append("\"} ")
+                    .append(latencies.getCountAtOrBelow((long) (bound_seconds * 1_000_000))).append('\n');
+        }
+        metrics.append("attendance_scan_latency_seconds_bucket{le=\"+Inf\"} ")
+                .append(latencies.getTotalCount()).append('\n');
+        metrics.append("attendance_scan_latency_seconds_sum ")
+                .append(latencies.getSum() / 1e6).append('\n');
+        metrics.append("attendance_scan_latency_seconds_count ").append(latencies.getTotalCount()).append('\n');
+
+        appendMetric(metrics, "attendance_db_connections_open", "gauge",
+                "Database connections currently open.", ServerStats.getOpenDatabaseConnections());
+
+        ServerManager server_manager = app.getServerManager();
+        boolean is_running = server_manager != null && !server_manager.isClosed();
+        appendMetric(metrics, "attendance_clients_connected", "gauge",
+                "Scanners currently connected.", is_running ? server_manager.getClients().size() : 0);
+
+        metrics.append("# HELP attendance_heartbeat_rtt_seconds Round trip time of the last heartbeat of a scanner.\n");
+        metrics.append("# TYPE attendance_heartbeat_rtt_seconds gauge\n");
+        for (Map.Entry<String, Long> entry : ServerStats.getHeartbeatRtts().entrySet()) {
+            metrics.append("attendance_heartbeat_rtt_seconds{client=\"").append(escapeLabel(entry.getKey()))
+                    .append("\"} ").append(entry.getValue() / 1000.0).append('\n');
+        }
+
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+        byte[] body = metrics.toString().getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(200, body.length);
+        exchange.getResponseBody().write(body);
+    }
+
+
+    private static void appendMetric(StringBuilder metrics, String name, String type, String help, long value) {
+        metrics.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        metrics.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+        metrics.append(name).append(' ').append(value).append('\n');
+    }
+
+
+    private static String escapeLabel(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+
+    /**
+     * Stream the rows in an export format as a chunked response, so no file is written.
+     * @param filename the name of the download, or null to show the rows inline.
+     */
+    private static void sendExport(HttpExchange exchange, List<String[]> data, ExportFormat format, String filename)
+    throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", switch (format) {
+            case CSV -> "text/csv; charset=utf-8";
+            case CSV_GZIP -> "application/gzip";
+            case JSON_LINES -> "application/x-ndjson; charset=utf-8";
+            case COLUMNAR -> "application/octet-stream";
+        });
+        if (filename != null) {
+            exchange.getResponseHeaders().set(
+                    "Content-Disposition",
+                    "attachment; filename=\"" + filename.replace("\"", "") + format.getExtension() + "\""
+            );
+        }
+        exchange.sendResponseHeaders(200, 0); // chunked.
+        OutputStream output = new BufferedOutputStream(exchange.getResponseBody(), Exporter.BUFFER_SIZE);
+        format.newWriter().write(data, output);
+        output.flush();
+    }
+
+
+    private static void sendText(HttpExchange exchange, int status, String text) throws IOException {
+        byte[] body = text.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(status, body.length == 0 ? -1 : body.length);
+        if (body.length > 0) exchange.getResponseBody().write(body);
+    }
+
+
+    /**
+     * Send a 500 response if no response was sent yet.
+     */
+    private static void sendErrorQuietly(HttpExchange exchange) {
+        if (exchange.getResponseCode() != -1) return; // the headers are already sent.
+        try {
+            sendText(exchange, 500, "The command failed. See the server log.\n");
+        }
+        catch (IOException ioe) {
+            LogHelper.debugLog("Admin request failed: " + ioe.getMessage());
+        }
+    }
+
+
+    /**
+     * Read the command of a {"command": "..."} body. Other members are not allowed.
+     * @return the command, or null if the body is not such an object.
+     */
+    static String parseCommandBody(String body) {
+        String json = body.strip();
+        if (!json.startsWith("{") || !json.endsWith("}")) return null;
+        int[] index = {1};
+        skipWhitespace(json, index);
+        if (!"command".equals(readJsonString(json, index))) return null;
+        skipWhitespace(json, index);
+        if (index[0] >= json.length() || json.charAt(index[0]++) != ':') return null;
+        skipWhitespace(json, index);
+        String command = readJsonString(json, index);
+        skipWhitespace(json, index);
+        return index[0] == json.length() - 1 ? command : null; // only the closing brace is left.
+    }
+
+
+    private static void skipWhitespace(String json, int[] index) {
+        while (index[0] < json.length() && Character.isWhitespace(json.charAt(index[0]))) index[0]++;
+    }
+
+
+    /**
+     * Read the JSON string at an index and move the index past it.
+     * @return the string, or null if there is no valid string at the index.
+     */
+    private static String readJsonString(String json, int[] index) {
+        int i = index[0];
+        if (i >= json.length() || json.charAt(i) != '"') return null;
+        StringBuilder value = new StringBuilder();
+        for (i++; i < json.length(); i++) {
+            char c = json.charAt(i);
+            if (c == '"') {
+                index[0] = i + 1;
+                return value.toString();
+            }
+            if (c != '\\') {
+                value.append(c);
+                continue;
+            }
+            if (++i >= json.length()) return null;
+            switch (json.charAt(i)) {
+                case '"' -> value.append('"');
+                case '\\' -> value.append('\\');
+                case '/' -> value.append('/');
+                case 'b' -> value.append('\b');
+                case 'f' -> value.append('\f');
+                case 'n' -> value.append('\n');
+                case 'r' -> value.append('\r');
+                case 't' -> value.append('\t');
+                case 'u' -> {
+                    if (i + 4 >= json.length()) return null;
+                    try {
+                        value.append((char) Integer.parseInt(json.substring(i + 1, i + 5), 16));
+                    }
+                    catch (NumberFormatException nfe) {
+                        return null;
+                    }
+                    i += 4;
+                }
+                default -> {
+                    return null;
+                }
+            }
+        }
+        return null; // not closed.
+    }
+
+
+    /**
+     * @return the decoded parameters of a query, or null if one of them is not correctly URL encoded, e.g. %zz.
+     */
+    private static Map<String, String> parseQuery(String raw_query) {
+        Map<String, String> query = new HashMap<>();
+        if (raw_query == null) return query;
+        try {
+            for (String parameter : raw_query.split("&")) {
+                int equals_index = parameter.indexOf('=');
+                if (equals_index < 0) continue;
+                query.put(
+                        URLDecoder.decode(parameter.substring(0, equals_index), StandardCharsets.UTF_8),
+                        URLDecoder.decode(parameter.substring(equals_index + 1), StandardCharsets.UTF_8)
+                );
+            }
+        }
+        catch (IllegalArgumentException iae) {
+            return null;
+        }
+        return query;
+    }
+
+
+    /**
+     * Keeps the lines a command logged for the response, and still logs them
+     * to the console. Enrollment needs the operator, so it is refused, and a
+     * script runs on the request thread so its results are in the response.
+     */
+    private static class CaptureContext extends ForwardingAppContext {
+        private final Queue<LogRecord> records = new ConcurrentLinkedQueue<>();
+
+
+        private CaptureContext(AppContext app) {
+            super(app);
+        }
+
+
+        @Override
+        public void sendToConsole(LogRecord record) {
+            if (record != null) records.add(record);
+            super.sendToConsole(record);
+        }
+
+
+        @Override
+        public TempEnrollmentData promptEnrollment(String client_id) {
+            sendToConsole(LogHelper.log("Enrollment needs the operator. Use the console.", LogTypes.INVALID));
+            return null;
+        }
+
+
+        @Override
+        public void runInBackground(String name, Runnable task) {
+            task.run();
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package core;
+
+import utility.LogIndex;
+import utility.LogRecord;
+import utility.TempEnrollmentData;
+
+/**
+ * The AppContext is everything the server and the commands need from the
+ * application running them: a console to log to, the client events, the
+ * current event data, a way to ask the operator for enrollment data and a
+ * way to run long commands.
+ * It is implemented by the JavaFX MainWindow and by the HeadlessServer.
+ */
+public interface AppContext {
+
+    /**
+     * Log a record to the console and the log file. Must be safe to call from any thread.
+     * @param record the record to be logged. Null records are ignored.
+     */
+    void sendToConsole(LogRecord record);
+
+
+    /**
+     * Called by the server when a client connected. Must be safe to call from any thread.
+     * @param client_name the name of the client.
+     */
+    void clientConnected(String client_name);
+
+
+    /**
+     * Called by the server when a client disconnected. Must be safe to call from any thread.
+     * @param client_name the name of the client.
+     */
+    void clientDisconnected(String client_name);
+
+
+    /**
+     * @return the current server manager, or null if the server was never started.
+     */
+    ServerManager getServerManager();
+
+
+    EventData getEventData();
+
+
+    LogIndex getLogIndex();
+
+
+    /**
+     * Start the server on the host and port of the app.
+     */
+    void startServer();
+
+
+    /**
+     * Stop the server if it is running.
+     */
+    void stopServer();
+
+
+    /**
+     * Ask the operator for the data of a new enrollee. Blocks until the operator is done.
+     * @param client_id the identifier of the client the fingerprint is enrolled on.
+     * @return the enrollment data, or null if the operator cancelled.
+     */
+    TempEnrollmentData promptEnrollment(String client_id);
+
+
+    /**
+     * Run a long command, e.g. a script, without blocking the input of the app.
+     * @param name the name of the task, used as the thread name.
+     * @param task the task to be run.
+     */
+    void runInBackground(String name, Runnable task);
+}
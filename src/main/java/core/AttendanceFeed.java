@@ -0,0 +1,133 @@
+package core;
+
+import utility.Const;
+import utility.ExportFormat;
+import utility.TempAttendanceData;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * The AttendanceFeed keeps the last recorded attendances as Server-Sent Events
+ * for the live feed of the {@link AttendanceFeedServer}. Every attendance is
+ * serialized once, into a shared ring of frames, and every subscriber only
+ * keeps the id of the next frame it has to send.
+ * <p>
+ *     A subscriber that falls more than {@link Const#ATTENDANCE_FEED_CAPACITY}
+ *     events behind is lapped by the ring and dropped. It can reconnect with
+ *     the Last-Event-ID of the last event it got and resume from the ring.
+ * </p>
+ * <p>
+ *     The ids restart at 1 with every run of the server, so an event id is
+ *     {@code <epoch>-<id>}, the epoch being the start time of the run. An id
+ *     of an earlier run is not mistaken for an id of this one.
+ * </p>
+ */
+public class AttendanceFeed {
+    private static final byte[][] frames = new byte[Const.ATTENDANCE_FEED_CAPACITY][];
+    private static final String EPOCH = Long.toString(System.currentTimeMillis(), 36);
+    private static long next_id = 1; // guarded by AttendanceFeed.class
+
+    private AttendanceFeed() {}
+
+
+    /**
+     * Publish a recorded attendance to every subscriber.
+     * @param attendance_data the recorded attendance.
+     * @param client_name the name of the scanner the attendance was recorded on.
+     */
+    public static void publish(TempAttendanceData attendance_data, String client_name) {
+        String json = toJson(attendance_data, client_name);
+        synchronized (AttendanceFeed.class) {
+            long id = next_id++;
+            frames[(int) (id % frames.length)] = (
+                    "id: " + EPOCH + "-" + id + "\nevent: attendance\ndata: " + json + "\n\n"
+            ).getBytes(StandardCharsets.UTF_8);
+            AttendanceFeed.class.notifyAll();
+        }
+    }
+
+
+    /**
+     * @return the id of the next attendance to be published.
+     */
+    static synchronized long getNextId() {
+        return next_id;
+    }
+
+
+    /**
+     * Read the id of a Last-Event-ID sent by a subscriber.
+     * @param event_id the event id, {@code <epoch>-<id>}.
+     * @return the id, or -1 if it is not an id of an event of this run of the server.
+     */
+    static synchronized long parseEventId(String event_id) {
+        String[] parts = event_id.strip().split("-", 2);
+        if (parts.length != 2 || !parts[0].equals(EPOCH)) return -1;
+        try {
+            long id = Long.parseLong(parts[1]);
+            return (id >= 1 && id < next_id) ? id : -1;
+        }
+        catch (NumberFormatException nfe) {
+            return -1;
+        }
+    }
+
+
+    /**
+     * @return the id of the oldest attendance still in the ring.
+     */
+    static synchronized long getOldestId() {
+        return Math.max(1, next_id - frames.length);
+    }
+
+
+    /**
+     * Take the frames from an id on, waiting for a new one if there is none yet.
+     * @param from_id the id of the first frame to take.
+     * @param frames_out the list the frames are added to.
+     * @param timeout_millis how long to wait for a new frame.
+     * @return the id of the next frame to take, or -1 if the first frame was already overwritten.
+     * @throws InterruptedException if the thread was interrupted while waiting.
+     */
+    static synchronized long read(long from_id, List<byte[]> frames_out, long timeout_millis)
+    throws InterruptedException {
+        if (from_id < getOldestId()) return -1;
+        if (from_id >= next_id) AttendanceFeed.class.wait(timeout_millis);
+        if (from_id < getOldestId()) return -1; // lapped while waiting.
+
+        for (long id = from_id; id < next_id; id++) {
+            frames_out.add(frames[(int) (id % frames.length)]);
+        }
+        return Math.max(from_id, next_id);
+    }
+
+
+    /**
+     * Serialize an attendance to one JSON object, with the JSON Lines writer of the exports.
+     */
+    private static String toJson(TempAttendanceData attendance_data, String client_name) {
+        List<String[]> data = List.of(
+                new String[] {"fingerprint_id", "first_name", "event", "location", "scanner", "client_id", "timestamp"},
+                new String[] {
+                        String.valueOf(attendance_data.getFingerprintID()),
+                        attendance_data.getFirstName(),
+                        attendance_data.getEventName(),
+                        attendance_data.getEventLocation(),
+                        client_name,
+                        attendance_data.getClientID(),
+                        attendance_data.getDateNow() + "T" + attendance_data.getTimeNow()
+                }
+        );
+        ByteArrayOutputStream output = new ByteArrayOutputStream(256);
+        try {
+            ExportFormat.JSON_LINES.newWriter().write(data, output);
+        }
+        catch (IOException ioe) {
+            ioe.printStackTrace(); // never thrown by an in-memory stream.
+        }
+        return output.toString(StandardCharsets.UTF_8).strip();
+    }
+}
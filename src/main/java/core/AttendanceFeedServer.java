@@ -0,0 +1,402 @@
+package core;
+
+import utility.Const;
+import utility.LogHelper;
+import utility.LogTypes;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The AttendanceFeedServer streams the recorded attendances of the
+ * {@link AttendanceFeed} as Server-Sent Events on GET /attendance/stream,
+ * e.g. for a display board on the network. It has its own bind address and
+ * its own read-only token, so the admin server stays on localhost and its
+ * token is never handed to a display.
+ * <p>
+ *     The token is sent as {@code Authorization: Bearer <token>}, or as the
+ *     token query parameter for a browser EventSource, which can not set
+ *     headers. A subscriber resumes with the Last-Event-ID header.
+ * </p>
+ * <p>
+ *     It is a plain socket server so it can drop a subscriber that stops
+ *     reading: a write that takes longer than
+ *     {@link Const#ATTENDANCE_FEED_WRITE_DEADLINE_MILLIS} closes its socket,
+ *     which frees its slot and its thread.
+ * </p>
+ */
+public class AttendanceFeedServer {
+    private static final String STREAM_PATH = "/attendance/stream";
+    private static AttendanceFeedServer running_server;
+
+    private final ServerSocket server_socket;
+    private final byte[] token;
+    private final ExecutorService executor;
+    private final ScheduledExecutorService deadline_checker;
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+
+
+    /**
+     * A connected subscriber and the start of the write it is blocked in, if any.
+     */
+    private static class Subscriber {
+        private final Socket socket;
+        private volatile long write_start_nanos; // 0 when not writing.
+
+        private Subscriber(Socket socket) {
+            this.socket = socket;
+        }
+    }
+
+
+    /**
+     * @param host the host the server is bound to.
+     * @param port the port the server is bound to.
+     * @param token the token every subscriber must send.
+     * @throws IOException if the port can not be bound.
+     */
+    private AttendanceFeedServer(String host, int port, String token) throws IOException {
+        this.token = token.getBytes(StandardCharsets.UTF_8);
+        server_socket = new ServerSocket();
+        server_socket.bind(new InetSocketAddress(host, port));
+        executor = AdminHttpServer.newRequestExecutor("attendance-feed-subscriber");
+        deadline_checker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "attendance-feed-deadline");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+
+    /**
+     * Start the feed server if it is not running yet.
+     * @param app the app to log to.
+     * @param host the host the server is bound to.
+     * @param port the port the server is bound to.
+     * @param token the token every subscriber must send, or null to make a random one.
+     * @return false if the server is already running or the port can not be bound.
+     */
+    public static synchronized boolean start(AppContext app, String host, int port, String token) {
+        if (running_server != null) {
+            app.sendToConsole(LogHelper.log("Attendance feed is already running.", LogTypes.INVALID));
+            return false;
+        }
+        boolean is_generated = token == null || token.isBlank();
+        if (is_generated) token = AdminHttpServer.generateToken();
+        try {
+            running_server = new AttendanceFeedServer(host, port, token);
+        }
+        catch (IOException | IllegalArgumentException e) {
+            app.sendToConsole(LogHelper.log(
+                    "Cannot open the attendance feed on " + host + ":" + port + ".", LogTypes.ERROR
+            ));
+            return false;
+        }
+        Thread accept_thread = new Thread(running_server::acceptLoop, "attendance-feed");
+        accept_thread.setDaemon(true);
+        accept_thread.start();
+        long check_millis = Const.ATTENDANCE_FEED_WRITE_DEADLINE_MILLIS / 4;
+        running_server.deadline_checker.scheduleWithFixedDelay(
+                running_server::dropStalledSubscribers, check_millis, check_millis, TimeUnit.MILLISECONDS
+        );
+
+        app.sendToConsole(LogHelper.log(String.format(
+                "Attendance feed listening on http://%s:%d%s", host, port, STREAM_PATH
+        ), LogTypes.SERVER));
+        if (is_generated) {
+            app.sendToConsole(LogHelper.log(
+                    "Attendance feed token: " + token + " (new at every start, set FEED_TOKEN to keep one)",
+                    LogTypes.SERVER
+            ));
+        }
+        return true;
+    }
+
+
+    /**
+     * Stop the feed server and disconnect every subscriber.
+     * @return false if the server was not running.
+     */
+    public static synchronized boolean stop() {
+        if (running_server == null) return false;
+        try {
+            running_server.server_socket.close();
+        }
+        catch (IOException ioe) {
+            ioe.printStackTrace();
+        }
+        for (Subscriber subscriber : running_server.subscribers) {
+            closeQuietly(subscriber.socket);
+        }
+        running_server.deadline_checker.shutdownNow();
+        running_server.executor.shutdownNow();
+        running_server = null;
+        return true;
+    }
+
+
+    private void acceptLoop() {
+        while (!server_socket.isClosed()) {
+            try {
+                Socket socket = server_socket.accept();
+                executor.execute(() -> handle(socket));
+            }
+            catch (IOException ioe) {
+                // the server socket was closed by stop().
+            }
+        }
+    }
+
+
+    /**
+     * Close the socket of every subscriber whose write is past the deadline.
+     * The blocked write then fails and its thread ends.
+     */
+    private void dropStalledSubscribers() {
+        long deadline_nanos = Const.ATTENDANCE_FEED_WRITE_DEADLINE_MILLIS * 1_000_000;
+        long now_nanos = System.nanoTime();
+        for (Subscriber subscriber : subscribers) {
+            long write_start_nanos = subscriber.write_start_nanos;
+            if (write_start_nanos != 0 && now_nanos - write_start_nanos > deadline_nanos) {
+                LogHelper.debugLog("Dropped a stalled attendance stream subscriber: "
+                        + subscriber.socket.getRemoteSocketAddress());
+                closeQuietly(subscriber.socket);
+            }
+        }
+    }
+
+
+    /**
+     * Read the request of a connection and, if it may subscribe, stream the feed to it.
+     */
+    private void handle(Socket socket) {
+        Subscriber subscriber = new Subscriber(socket);
+        try (socket) {
+            socket.setSoTimeout((int) Const.ATTENDANCE_FEED_REQUEST_TIMEOUT_MILLIS);
+            String request_head = readRequestHead(socket.getInputStream());
+            if (request_head == null) {
+                sendStatus(socket, 400, "Bad Request", "Bad request.\n");
+                return;
+            }
+            String[] request_line = request_head.lines().findFirst().orElse("").split(" ");
+            Map<String, String> headers = parseHeaders(request_head);
+            String target = request_line.length == 3 ? request_line[1] : "";
+            int query_index = target.indexOf('?');
+            String path = query_index < 0 ? target : target.substring(0, query_index);
+            String query_token;
+            try {
+                query_token = query_index < 0 ? null : parseQueryToken(target.substring(query_index + 1));
+            }
+            catch (IllegalArgumentException iae) {
+                // e.g. ?token=%zz, which URLDecoder can not decode.
+                sendStatus(socket, 400, "Bad Request", "Malformed query.\n");
+                return;
+            }
+
+            if (!path.equals(STREAM_PATH)) {
+                sendStatus(socket, 404, "Not Found", "Use GET " + STREAM_PATH + ".\n");
+            }
+            else if (!request_line[0].equals("GET")) {
+                sendStatus(socket, 405, "Method Not Allowed", "Use GET.\n");
+            }
+            else if (!isAuthorized(headers.get("authorization"), query_token)) {
+                sendStatus(socket, 401, "Unauthorized", "Missing or invalid token.\n");
+            }
+            else if (subscribers.add(subscriber) && subscribers.size() > Const.ATTENDANCE_FEED_MAX_SUBSCRIBERS) {
+                sendStatus(socket, 503, "Service Unavailable", "Too many subscribers.\n");
+            }
+            else {
+                socket.setSoTimeout(0);
+                stream(subscriber, headers.get("last-event-id"));
+            }
+        }
+        catch (IOException ioe) {
+            // the subscriber went away or was dropped by the deadline.
+            LogHelper.debugLog("Attendance stream ended: " + ioe.getMessage());
+        }
+        catch (InterruptedException ie) {
+            Thread.currentThread().interrupt(); // the feed server is stopping.
+        }
+        finally {
+            subscribers.remove(subscriber);
+        }
+    }
+
+
+    /**
+     * Send the frames of the feed to a subscriber until it disconnects, is
+     * lapped by the feed, misses the write deadline or the server stops.
+     * @param last_event_id the Last-Event-ID header of the request, or null.
+     */
+    private void stream(Subscriber subscriber, String last_event_id) throws IOException, InterruptedException {
+        long cursor = AttendanceFeed.getNextId();
+        boolean is_gap = false;
+        if (last_event_id != null && !last_event_id.isBlank()) {
+            long last_id = AttendanceFeed.parseEventId(last_event_id);
+            if (last_id < 0) {
+                // an id of an earlier run of the server, send this run from its start.
+                cursor = AttendanceFeed.getOldestId();
+                is_gap = true;
+            }
+            else if (last_id + 1 < AttendanceFeed.getOldestId()) {
+                // the client was away for too long.
+                cursor = AttendanceFeed.getOldestId();
+                is_gap = true;
+            }
+            else {
+                cursor = last_id + 1;
+            }
+        }
+
+        ByteArrayOutputStream batch = new ByteArrayOutputStream(1024);
+        batch.writeBytes((
+                "HTTP/1.1 200 OK\r\n" +
+                "Content-Type: text/event-stream; charset=utf-8\r\n" +
+                "Cache-Control: no-cache\r\n" +
+                "Connection: close\r\n\r\n" +
+                "retry: " + Const.ATTENDANCE_FEED_RETRY_MILLIS + "\n\n"
+        ).getBytes(StandardCharsets.UTF_8));
+        if (is_gap) {
+            // tell the client some attendances are missing.
+            batch.writeBytes("event: gap\ndata: {}\n\n".getBytes(StandardCharsets.UTF_8));
+        }
+
+        OutputStream output = subscriber.socket.getOutputStream();
+        List<byte[]> frames = new ArrayList<>();
+        while (!Thread.currentThread().isInterrupted()) {
+            write(subscriber, output, batch);
+            batch.reset();
+
+            frames.clear();
+            cursor = AttendanceFeed.read(cursor, frames, Const.ATTENDANCE_FEED_KEEP_ALIVE_MILLIS);
+            if (cursor < 0) {
+                // too slow, the ring overwrote the next frame. It may resume with its Last-Event-ID.
+                LogHelper.debugLog("Dropped a slow attendance stream subscriber.");
+                return;
+            }
+            if (frames.isEmpty()) {
+                batch.writeBytes(": keep-alive\n\n".getBytes(StandardCharsets.UTF_8));
+            }
+            for (byte[] frame : frames) {
+                batch.writeBytes(frame);
+            }
+        }
+    }
+
+
+    /**
+     * Write a batch to a subscriber, marking the write for the deadline checker.
+     */
+    private static void write(Subscriber subscriber, OutputStream output, ByteArrayOutputStream batch)
+    throws IOException {
+        subscriber.write_start_nanos = System.nanoTime();
+        try {
+            batch.writeTo(output);
+            output.flush();
+        }
+        finally {
+            subscriber.write_start_nanos = 0;
+        }
+    }
+
+
+    private boolean isAuthorized(String authorization, String query_token) {
+        String request_token = query_token;
+        if (authorization != null && authorization.startsWith("Bearer ")) {
+            request_token = authorization.substring("Bearer ".length()).strip();
+        }
+        if (request_token == null) return false;
+        return MessageDigest.isEqual(token, request_token.getBytes(StandardCharsets.UTF_8)); // constant time.
+    }
+
+
+    /**
+     * Read the request line and headers, up to the empty line.
+     * @return the request head, or null if it is too long or the connection ended first.
+     */
+    private static String readRequestHead(InputStream input) throws IOException {
+        StringBuilder head = new StringBuilder(512);
+        while (head.length() < Const.ATTENDANCE_FEED_MAX_REQUEST_BYTES) {
+            int b = input.read();
+            if (b < 0) return null;
+            head.append((char) b); // the head is ISO-8859-1.
+            if (b == '\n' && (head.toString().endsWith("\r\n\r\n") || head.toString().endsWith("\n\n"))) {
+                return head.toString();
+            }
+        }
+        return null;
+    }
+
+
+    /**
+     * @return the headers of a request head, with lowercase names.
+     */
+    private static Map<String, String> parseHeaders(String request_head) {
+        Map<String, String> headers = new HashMap<>();
+        request_head.lines().skip(1).forEach(line -> {
+            int colon_index = line.indexOf(':');
+            if (colon_index > 0) {
+                headers.putIfAbsent(
+                        line.substring(0, colon_index).strip().toLowerCase(), line.substring(colon_index + 1).strip()
+                );
+            }
+        });
+        return headers;
+    }
+
+
+    /**
+     * @return the decoded token parameter of a query, or null if it has none.
+     * @throws IllegalArgumentException if the token is not correctly URL encoded.
+     */
+    private static String parseQueryToken(String raw_query) {
+        for (String parameter : raw_query.split("&")) {
+            if (parameter.startsWith("token=")) {
+                return URLDecoder.decode(parameter.substring("token=".length()), StandardCharsets.UTF_8);
+            }
+        }
+        return null;
+    }
+
+
+    private static void sendStatus(Socket socket, int status, String reason, String text) throws IOException {
+        byte[] body = text.getBytes(StandardCharsets.UTF_8);
+        OutputStream output = socket.getOutputStream();
+        output.write((
+                "HTTP/1.1 " + status + " " + reason + "\r\n" +
+                "Content-Type: text/plain; charset=utf-8\r\n" +
+                "Content-Length: " + body.length + "\r\n" +
+                "Connection: close\r\n\r\n"
+        ).getBytes(StandardCharsets.UTF_8));
+        output.write(body);
+        output.flush();
+    }
+
+
+    private static void closeQuietly(Socket socket) {
+        try {
+            socket.close();
+        }
+        catch (IOException ioe) {
+            // already closed.
+        }
+    }
+}
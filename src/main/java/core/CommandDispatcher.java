@@ -0,0 +1,88 @@
+package core;
+
+import utility.Const;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The CommandDispatcher finds the handler of a tokenized input. It is built
+ * once from the references of {@link Const.Commands} into a trie of command
+ * tokens, so finding a command only walks the first few tokens of the input.
+ * The longest matching reference wins.
+ * <p>
+ *     The handlers are keyed by the command itself, so a command id is only
+ *     written once, in {@link Const.Commands}.
+ * </p>
+ */
+public class CommandDispatcher {
+    private final Node root = new Node();
+    private final Map<Const.Commands, CommandHandler> handlers;
+
+
+    /**
+     * @param handlers the handler of every command.
+     * @throws IllegalArgumentException if a command has no handler.
+     */
+    public CommandDispatcher(Map<Const.Commands, CommandHandler> handlers) {
+        this.handlers = new EnumMap<>(handlers);
+        for (Const.Commands command : Const.Commands.values()) {
+            if (!this.handlers.containsKey(command)) {
+                throw new IllegalArgumentException("No handler for the command " + command);
+            }
+            Node node = root;
+            for (String reference_token : CommandTokenizer.tokenize(command.getReference())) {
+                node = node.children.computeIfAbsent(reference_token, k -> new Node());
+            }
+            node.command = command;
+        }
+    }
+
+
+    /**
+     * Find the command of an input.
+     * @param input_token the tokens of the user input.
+     * @return the command, or null if the input is not a command.
+     */
+    public Const.Commands findCommand(List<String> input_token) {
+        Node node = root;
+        Const.Commands command = null;
+        for (String token : input_token) {
+            node = node.children.get(token);
+            if (node == null) break;
+            if (node.command != null) command = node.command;
+        }
+        return command;
+    }
+
+
+    /**
+     * Find the id of the command of an input.
+     * @param input_token the tokens of the user input.
+     * @return the id of the command, or 0 if the input is not a command.
+     * @see Const.Commands
+     */
+    public int findCommandId(List<String> input_token) {
+        Const.Commands command = findCommand(input_token);
+        return command == null ? 0 : command.getId();
+    }
+
+
+    /**
+     * Find the handler of the command of an input.
+     * @param input_token the tokens of the user input.
+     * @return the handler, or null if the input is not a command.
+     */
+    public CommandHandler findHandler(List<String> input_token) {
+        Const.Commands command = findCommand(input_token);
+        return command == null ? null : handlers.get(command);
+    }
+
+
+    private static class Node {
+        private final Map<String, Node> children = new HashMap<>();
+        private Const.Commands command;
+    }
+}
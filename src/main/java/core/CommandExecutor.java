@@ -1,18 +1,58 @@
 package core;
 
-import gui.EnrollWindow;
-import javafx.event.ActionEvent;
+import io.github.cdimascio.dotenv.Dotenv;
 import utility.*;
-import gui.MainWindow;
 
 import java.io.IOException;
-import java.util.ArrayList;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
 
 @SuppressWarnings({"SameParameterValue","BooleanMethodIsAlwaysInverted"})
 public class CommandExecutor {
+    private static final DateTimeFormatter ROTATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd_HHmmss");
+
+    // built once, every command of Const.Commands has a handler.
+    private static final CommandDispatcher DISPATCHER = new CommandDispatcher(Map.ofEntries(
+            Map.entry(Const.Commands.START, CommandExecutor::startServer),
+            Map.entry(Const.Commands.STOP, CommandExecutor::stopServer),
+            Map.entry(Const.Commands.ENROLL, CommandExecutor::enroll),
+            Map.entry(Const.Commands.DISCONNECT, CommandExecutor::disconnect),
+            Map.entry(Const.Commands.CLIENTS_INFO, CommandExecutor::showClientsInfo),
+            Map.entry(Const.Commands.REBOOT_CLIENT, CommandExecutor::rebootClient),
+            Map.entry(Const.Commands.INIT_DB, CommandExecutor::initTables),
+            Map.entry(Const.Commands.TOCSV_DATE, CommandExecutor::export),
+            Map.entry(Const.Commands.TOCSV_EVENT, CommandExecutor::export),
+            Map.entry(Const.Commands.TOCSV_ALLUSER, CommandExecutor::export),
+            Map.entry(Const.Commands.TOCSV_ALLATTENDANCE, CommandExecutor::export),
+            Map.entry(Const.Commands.TOCSV_PARALLEL, CommandExecutor::export),
+            Map.entry(Const.Commands.TOCSV_RANGE, CommandExecutor::export),
+            Map.entry(Const.Commands.TOCSV_SINCE_LAST, CommandExecutor::export),
+            Map.entry(Const.Commands.TOCSV_BENCH, CommandExecutor::export),
+            Map.entry(Const.Commands.DISPLAY_CURRENT_EVENT_DATA, CommandExecutor::showEvent),
+            Map.entry(Const.Commands.SET_EVENT_DATA, CommandExecutor::setEvent),
+            Map.entry(Const.Commands.DELETE_RECORDS, CommandExecutor::deleteUserRecords),
+            Map.entry(Const.Commands.DELETE_CLIENT_DB, CommandExecutor::deleteClientData),
+            Map.entry(Const.Commands.LOG_LEVEL, CommandExecutor::setLogLevel),
+            Map.entry(Const.Commands.LOG_HEARTBEAT, CommandExecutor::setHeartbeatLogging),
+            Map.entry(Const.Commands.LOG_FIND, CommandExecutor::findLogs),
+            Map.entry(Const.Commands.RUN_SCRIPT, CommandExecutor::runScript),
+            Map.entry(Const.Commands.ADMIN_HTTP, CommandExecutor::setAdminServer),
+            Map.entry(Const.Commands.METRICS, CommandExecutor::showMetrics),
+            Map.entry(Const.Commands.FLIGHT_RECORDING, CommandExecutor::setFlightRecording),
+            Map.entry(Const.Commands.TRACE, CommandExecutor::showTraces),
+            Map.entry(Const.Commands.DATABASE_STATS, CommandExecutor::showDatabaseStats),
+            Map.entry(Const.Commands.ATTENDANCE_FEED, CommandExecutor::setAttendanceFeed)
+    ));
 
     private CommandExecutor() {}
 
@@ -20,38 +60,23 @@ public class CommandExecutor {
     /**
      * Check if an input is a valid command. Return the id of the command.
      * @param input the user input to be checked.
-     * @return the id of the command.
+     * @return the id of the command, or 0 if the input is not a command.
      * @see Const.Commands
      */
-    private static int checkValidCommand(String input) {
-        int id;
-        String reference;
-        Pattern pattern;
-        Matcher input_matcher;
-
-        for (Const.Commands command : Const.Commands.values()) {
-            id = command.getId();
-            reference = command.getReference();
-            pattern = Pattern.compile("^\\b" + reference + "\\b.*");
-            input_matcher = pattern.matcher(input);
-
-            if (input_matcher.matches()) {
-                LogHelper.debugLog("Is valid command: " + reference);
-                return id;
-            }
-        }
-        LogHelper.debugLog("Is invalid command: " + input);
-        return 0;
+    static int checkValidCommand(String input) {
+        int id = DISPATCHER.findCommandId(CommandTokenizer.tokenize(input));
+        LogHelper.debugLog((id != 0 ? "Is valid command: " : "Is invalid command: ") + input);
+        return id;
     }
 
 
     /**
      * Checks if the server manager object is instantiated or if the server is currently running.
-     * @param app the MainWindow object.
+     * @param app the app running the command.
      * @param server_manager the ServerManager object
      * @return false if the server is null or not running.
      */
-    private static boolean checkValidServer(MainWindow app, ServerManager server_manager) {
+    private static boolean checkValidServer(AppContext app, ServerManager server_manager) {
         if (server_manager == null) {
             app.sendToConsole(LogHelper.log(
                     "Server is null. Run the server at least once.", LogTypes.INVALID
@@ -75,9 +100,9 @@ public class CommandExecutor {
      * @return the client.
      * @throws NullPointerException error when the client is not found or does not exist.
      */
-    private static ServerManager.FSClient findClient(MainWindow app, ServerManager server_manager, String client_to_find)
+    private static ServerManager.FSClient findClient(AppContext app, ServerManager server_manager, String client_to_find)
     throws NullPointerException {
-        ArrayList<ServerManager.FSClient> fsclients = server_manager.getClients();
+        List<ServerManager.FSClient> fsclients = server_manager.getClients();
         String client_name;
         for (ServerManager.FSClient client : fsclients) {
             client_name = client.getClientName();
@@ -90,345 +115,1109 @@ public class CommandExecutor {
     }
 
 
+    /**
+     * Parse the number of workers used by a parallel export.
+     * @param workers_unparsed the worker count provided by the user.
+     * @return the number of workers.
+     * @throws NumberFormatException if the input is not a number or is out of range.
+     */
+    private static int parseExportWorkers(String workers_unparsed) throws NumberFormatException {
+        int workers = Integer.parseInt(workers_unparsed);
+        if (workers < 1 || workers > Const.MAX_EXPORT_WORKERS) {
+            throw new NumberFormatException();
+        }
+        return workers;
+    }
+
+
+    /**
+     * Find the export format selected with the --format flag.
+     * @param input_token the tokens of the user input.
+     * @return the selected format, or CSV if there is no flag.
+     * @throws IllegalArgumentException if the format does not exist.
+     * @see ExportFormat
+     */
+    private static ExportFormat parseExportFormat(List<String> input_token) throws IllegalArgumentException {
+        for (String token : input_token) {
+            if (token.startsWith("--format=")) {
+                return ExportFormat.fromName(token.substring("--format=".length()));
+            }
+        }
+        return ExportFormat.CSV;
+    }
+
+
+    /**
+     * Write the rows to a file and report the encoding throughput in rows per second.
+     * @param app the AppContext app.
+     * @param filename the name of the export.
+     * @param data the rows to be written. The first row is the header.
+     * @param format the format of the file.
+     * @return the full name of the created file.
+     * @throws IOException if an I/O error occurs.
+     * @see Exporter
+     */
+    private static String exportData(AppContext app, String filename, List<String[]> data, ExportFormat format)
+    throws IOException {
+        FlightEvents.ExportEvent export_event = new FlightEvents.ExportEvent();
+        export_event.begin();
+        long start = System.nanoTime();
+        String export_filename;
+        try {
+            export_filename = Exporter.buildExport(filename, data, format);
+        }
+        catch (IOException ioe) {
+            commitExportEvent(export_event, filename + format.getExtension(), format, -1, "FAILED");
+            throw ioe;
+        }
+        long elapsed_nanos = Math.max(System.nanoTime() - start, 1);
+
+        int rows = data.size() - 1; // exclude the header.
+        commitExportEvent(export_event, export_filename, format, rows, "WRITTEN");
+        long rows_per_sec = rows * 1_000_000_000L / elapsed_nanos;
+        app.sendToConsole(LogHelper.log(
+                String.format("Export: %s (%d rows, %d rows/sec)", export_filename, rows, rows_per_sec),
+                LogTypes.INFO
+        ));
+        return export_filename;
+    }
+
+
+    private static void commitExportEvent(
+            FlightEvents.ExportEvent export_event,
+            String export_filename,
+            ExportFormat format,
+            long rows,
+            String outcome
+    ) {
+        export_event.end();
+        if (!export_event.shouldCommit()) return;
+        export_event.fileName = export_filename;
+        export_event.format = format.getName();
+        export_event.rows = rows;
+        export_event.outcome = outcome;
+        export_event.commit();
+    }
+
+
+    /**
+     * Reuse a cached export file if the data it was built from did not change.
+     * @param app the AppContext app.
+     * @param filename the name of the export.
+     * @param cache_key the cache key, or null if the data version is unknown.
+     * @param format the format of the export.
+     * @return true if the export was served from the cache.
+     * @throws IOException if an I/O error occurs.
+     * @see ExportCache
+     */
+    private static boolean exportFromCache(AppContext app, String filename, String cache_key, ExportFormat format)
+    throws IOException {
+        if (cache_key == null) return false;
+
+        FlightEvents.ExportEvent export_event = new FlightEvents.ExportEvent();
+        export_event.begin();
+        String export_filename = ExportCache.copyTo(cache_key, format, filename); // copied under the cache lock.
+        if (export_filename == null) return false;
+        commitExportEvent(export_event, export_filename, format, -1, "CACHED");
+        app.sendToConsole(LogHelper.log("Export: " + export_filename + " (cached)", LogTypes.INFO));
+        return true;
+    }
+
+
+    /**
+     * Export the rows and keep the file in the export cache.
+     * @param cache_key the cache key, or null if the data version is unknown.
+     * @see #exportData(AppContext, String, List, ExportFormat)
+     */
+    private static void exportAndCache(
+            AppContext app,
+            String filename,
+            List<String[]> data,
+            ExportFormat format,
+            String cache_key
+    ) throws IOException {
+        String export_filename = exportData(app, filename, data, format);
+        if (cache_key != null) {
+            ExportCache.store(cache_key, format, Exporter.getExportPath(export_filename));
+        }
+    }
+
+
+    /**
+     * Write the parts of a parallel export, either merged in order into one file
+     * or as one numbered file per part.
+     * @param app the AppContext app.
+     * @param filename the base name of the export.
+     * @param parts the parts returned by the ParallelExporter.
+     * @param as_part_files true to write one file per part.
+     * @param format the format of the files.
+     * @throws IOException if an I/O error occurs.
+     * @see ParallelExporter
+     */
+    private static void writeExportParts(
+            AppContext app,
+            String filename,
+            List<List<String[]>> parts,
+            boolean as_part_files,
+            ExportFormat format
+    ) throws IOException {
+        if (!as_part_files || parts.isEmpty()) {
+            exportData(app, filename, ParallelExporter.merge(Const.ATTENDANCE_EXPORT_COLUMNS, parts), format);
+            return;
+        }
+
+        for (int i = 0; i < parts.size(); i++) {
+            List<List<String[]>> part = List.of(parts.get(i));
+            exportData(
+                    app,
+                    String.format("%s_part%03d", filename, i + 1),
+                    ParallelExporter.merge(Const.ATTENDANCE_EXPORT_COLUMNS, part),
+                    format
+            );
+        }
+    }
+
+
+    /**
+     * Parse the start of a log search.
+     * @param since_unparsed a duration like 30s, 15m or 2h, or a time of today like 08:30.
+     * @return the start of the search in epoch milliseconds.
+     * @throws DateTimeParseException if the time is not valid.
+     * @throws NumberFormatException if the duration is not valid.
+     */
+    private static long parseLogSince(String since_unparsed) {
+        if (since_unparsed.contains(":")) {
+            return LocalTime.parse(since_unparsed).atDate(LocalDate.now())
+                    .atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        }
+        long amount = Long.parseLong(since_unparsed.substring(0, since_unparsed.length() - 1));
+        long unit_millis = switch (since_unparsed.charAt(since_unparsed.length() - 1)) {
+            case 's' -> 1000L;
+            case 'm' -> 60_000L;
+            case 'h' -> 3_600_000L;
+            default -> throw new NumberFormatException();
+        };
+        return System.currentTimeMillis() - amount * unit_millis;
+    }
+
+
     /**
      * Execute the user input if it is a valid command.
-     * @param app the MainWindow app.
+     * @param app the app running the command.
      * @param input the user's console input.
      * @see Const.Commands
      */
-    public static void execute(MainWindow app, String input) {
+    public static void execute(AppContext app, String input) {
         if (LogHelper.checkNullText(input)) return; // Check if input is empty.
-        int id = checkValidCommand(input);
+        List<String> input_token = CommandTokenizer.tokenize(input);
+        CommandHandler handler = DISPATCHER.findHandler(input_token);
+
+        if (handler == null) {
+            LogHelper.debugLog("Not a valid command");
+            app.sendToConsole(LogHelper.log(
+                    "Not a recognizable command. See list of available commands.", LogTypes.INVALID
+            ));
+            return;
+        }
+        handler.handle(app, input_token);
+    }
+
+
+    /**
+     * Start the server.
+     * @param app the app running the command.
+     * @param input_token the tokens of the user input.
+     */
+    private static void startServer(AppContext app, List<String> input_token) {
+        LogHelper.debugLog("Command: Start server");
+        app.startServer();
+    }
+
+
+    /**
+     * Stop the server.
+     * @param app the app running the command.
+     * @param input_token the tokens of the user input.
+     */
+    private static void stopServer(AppContext app, List<String> input_token) {
+        LogHelper.debugLog("Command: Stop server");
+        app.stopServer();
+    }
+
+
+    /**
+     * Enroll a fingerprint on a client.
+     * @param app the app running the command.
+     * @param input_token the tokens of the user input.
+     */
+    private static void enroll(AppContext app, List<String> input_token) {
+        LogHelper.debugLog("Command: enroll");
         ServerManager server_manager = app.getServerManager();
+        DatabaseManager databaseManager = new DatabaseManager();
 
-        command_switch: switch (id) {
-            case 0 -> {
-                LogHelper.debugLog("Not a valid command");
-                app.sendToConsole(LogHelper.log(
-                        "Not a recognizable command. See list of available commands.", LogTypes.INVALID
-                ));
-            }
 
+        if (!databaseManager.tableExist("users")) {
+            app.sendToConsole(LogHelper.log(
+                    "Database tables does not exist.", LogTypes.ERROR
+            ));
+            return;
+        }
 
-            case 1 -> {
-                LogHelper.debugLog("Case 1: Start server");
-                app.start_server(new ActionEvent());
-            }
+        if (!checkValidServer(app, server_manager))
+            return; // Server must be running to proceed.
+
+        try {
+            String client_to_find = input_token.get(1);
+            ServerManager.FSClient client = findClient(app, server_manager, client_to_find);
+
+            TempEnrollmentData enrollee_data = app.promptEnrollment(client.getClientID());
+            if (enrollee_data == null)
+                return; // Must submit the enrollment data to proceed.
+
+            String first_name = enrollee_data.getFirstName();
+            String middle_name = enrollee_data.getMiddleName();
+            String last_name =  enrollee_data.getLastName();
+            String age = enrollee_data.getAge().toString();
+            String gender = enrollee_data.getGender();
+            String phone_number = enrollee_data.getPhoneNumber();
+            String address = enrollee_data.getAddress();
+            int finger_id = enrollee_data.getFingerprintId();
+
+            client.sendCommand("enroll");
+            client.sendCommand(Integer.toString(finger_id));
+            client.sendCommand(first_name);
+            client.sendCommand(middle_name);
+            client.sendCommand(last_name);
+            client.sendCommand(age);
+            client.sendCommand(gender);
+            client.sendCommand(phone_number);
+            client.sendCommand(address);
+        }
+        catch (NullPointerException npe) {
+            app.sendToConsole(LogHelper.log(
+                    "Client does not exist.", LogTypes.ERROR
+            ));
+        }
+        catch (IndexOutOfBoundsException ibe) {
+            app.sendToConsole(LogHelper.log("Missing arguments.", LogTypes.INVALID));
+        }
+    }
 
 
-            case 2 -> {
-                LogHelper.debugLog("Case 2: Stop server");
-                app.stop_server(new ActionEvent());
-            }
+    /**
+     * Disconnect a client from the server.
+     * @param app the app running the command.
+     * @param input_token the tokens of the user input.
+     */
+    private static void disconnect(AppContext app, List<String> input_token) {
+        LogHelper.debugLog("Command: disconnect");
+        ServerManager server_manager = app.getServerManager();
 
+        if (!checkValidServer(app, server_manager))
+            return; // Server must be running to proceed.
 
-            case 3 -> {
-                LogHelper.debugLog("Case 3: enroll");
-                List<String> input_token = List.of(input.split(" "));
-                DatabaseManager databaseManager = new DatabaseManager();
+        try {
+            String client_to_find = input_token.get(1);
+            ServerManager.FSClient client = findClient(app, server_manager, client_to_find);
+            client.sendCommand("disconnect");
+            client.disconnect();
+        }
+        catch (NullPointerException npe) {
+            app.sendToConsole(LogHelper.log("Client does not exist.", LogTypes.ERROR));
+        }
+        catch (IndexOutOfBoundsException ibe) {
+            app.sendToConsole(LogHelper.log("Missing arguments.", LogTypes.INVALID));
+        }
+    }
 
 
-                if (!databaseManager.tableExist("users")) {
-                    app.sendToConsole(LogHelper.log(
-                            "Database tables does not exist.", LogTypes.ERROR
-                    ));
-                    break;
-                }
+    /**
+     * Display the remote address and port of all the clients.
+     * @param app the app running the command.
+     * @param input_token the tokens of the user input.
+     */
+    private static void showClientsInfo(AppContext app, List<String> input_token) {
+        LogHelper.debugLog("Command: show all clients info");
+        ServerManager server_manager = app.getServerManager();
 
-                if (!checkValidServer(app, server_manager))
-                    break; // Server must be running to proceed.
-
-                try {
-                    String client_to_find = input_token.get(1);
-                    ServerManager.FSClient client = findClient(app, server_manager, client_to_find);
-
-                    EnrollWindow enroll_window = app.getEnrollWindow(client.getClientID());
-                    if (!enroll_window.getIsSubmitted())
-                        break; // Must click enroll window submit button to proceed.
-
-                    String first_name = enroll_window.getFirstName();
-                    String middle_name = enroll_window.getMiddleName();
-                    String last_name =  enroll_window.getLastName();
-                    String age = enroll_window.getAge();
-                    String gender = enroll_window.getGender();
-                    String phone_number = enroll_window.getPhoneNumber();
-                    String address = enroll_window.getAddress();
-                    int finger_id = enroll_window.getFingerprintId();
-
-                    client.sendCommand("enroll");
-                    client.sendCommand(Integer.toString(finger_id));
-                    client.sendCommand(first_name);
-                    client.sendCommand(middle_name);
-                    client.sendCommand(last_name);
-                    client.sendCommand(age);
-                    client.sendCommand(gender);
-                    client.sendCommand(phone_number);
-                    client.sendCommand(address);
-                }
-                catch (NullPointerException npe) {
-                    app.sendToConsole(LogHelper.log(
-                            "Client does not exist.", LogTypes.ERROR
-                    ));
-                }
-                catch (IndexOutOfBoundsException ibe) {
-                    app.sendToConsole(LogHelper.log("Missing arguments.", LogTypes.INVALID));
-                }
-            }
+        if (!checkValidServer(app, server_manager)) return; // server must be running to proceed.
+        List<ServerManager.FSClient> clients = server_manager.getClients();
+        if (clients.size() == 0) {
+            app.sendToConsole(LogHelper.log("No clients found.", LogTypes.ERROR));
+            return; // terminate execution of command if there are no clients connected.
+        }
 
+        for (ServerManager.FSClient client : clients) {
+            String client_name = client.getClientName();
+            String client_address = client.getClientSocketAddress();
+            app.sendToConsole(LogHelper.log(
+                    "|#| " + client_name + " | " + client_address + "|#|", LogTypes.INFO));
+        }
+    }
 
-            case 4 -> {
-                LogHelper.debugLog("Case 4: disconnect");
-                List<String> input_token = List.of(input.split(" "));
 
-                if (!checkValidServer(app, server_manager))
-                    break; // Server must be running to proceed.
+    /**
+     * Send a reboot command to a client.
+     * @param app the app running the command.
+     * @param input_token the tokens of the user input.
+     */
+    private static void rebootClient(AppContext app, List<String> input_token) {
+        LogHelper.debugLog("Command: reboot client");
+        ServerManager server_manager = app.getServerManager();
 
-                try {
-                    String client_to_find = input_token.get(1);
-                    ServerManager.FSClient client = findClient(app, server_manager, client_to_find);
-                    client.sendCommand("disconnect");
-                    client.disconnect();
-                }
-                catch (NullPointerException npe) {
-                    app.sendToConsole(LogHelper.log("Client does not exist.", LogTypes.ERROR));
-                }
-                catch (IndexOutOfBoundsException ibe) {
-                    app.sendToConsole(LogHelper.log("Missing arguments.", LogTypes.INVALID));
-                }
-            }
+        if (!checkValidServer(app, server_manager))
+            return; // Server must be running to proceed.
 
+        try {
+            String client_to_find = input_token.get(1);
+            ServerManager.FSClient client = findClient(app, server_manager, client_to_find);
+            client.sendCommand("reboot");
+        }
+        catch (NullPointerException npe) {
+            app.sendToConsole(LogHelper.log("Client does not exist.", LogTypes.ERROR));
+        }
+        catch (IndexOutOfBoundsException ibe) {
+            app.sendToConsole(LogHelper.log("Missing arguments.", LogTypes.INVALID));
+        }
+    }
 
-            case 5 -> {
-                LogHelper.debugLog("Case 5: show all clients info");
-                ArrayList<ServerManager.FSClient> clients = server_manager.getClients();
 
-                if (!checkValidServer(app, server_manager)) break; // server must be running to proceed.
-                if (clients.size() == 0) {
-                    app.sendToConsole(LogHelper.log("No clients found.", LogTypes.ERROR));
-                    break; // terminate execution of command if there are no clients connected.
-                }
+    /**
+     * Initialize the database tables.
+     * @param app the app running the command.
+     * @param input_token the tokens of the user input.
+     */
+    private static void initTables(AppContext app, List<String> input_token) {
+        LogHelper.debugLog("Command: init db tables");
+
+        DatabaseManager database_manager = new DatabaseManager();
+        boolean isSuccessful = database_manager.initTables();
+        String db_feedback = ((isSuccessful) ? "Init Database OK" : "Init Database FAIL");
+        LogTypes db_feedback_type = ((isSuccessful) ? LogTypes.INFO : LogTypes.ERROR);
+        app.sendToConsole(LogHelper.log(db_feedback, db_feedback_type));
+    }
 
-                for (ServerManager.FSClient client : clients) {
-                    String client_name = client.getClientName();
-                    String client_address = client.getClientSocketAddress();
-                    app.sendToConsole(LogHelper.log(
-                            "|#| " + client_name + " | " + client_address + "|#|", LogTypes.INFO));
-                }
-            }
 
+    /**
+     * Export data from the database.
+     * @param app the app running the command.
+     * @param input_token the tokens of the user input.
+     */
+    private static void export(AppContext app, List<String> input_token) {
+        LogHelper.debugLog("Command: export");
 
-            case 6 -> {
-                LogHelper.debugLog("Case 6: reboot client");
-                List<String> input_token = List.of(input.split(" "));
+        DatabaseManager databaseManager = new DatabaseManager();
+        TempExportQueryData export_data = new TempExportQueryData();
 
-                if (!checkValidServer(app, server_manager))
-                    break; // Server must be running to proceed.
+        List<String[]> data;
 
-                try {
-                    String client_to_find = input_token.get(1);
-                    ServerManager.FSClient client = findClient(app, server_manager, client_to_find);
-                    client.sendCommand("reboot");
-                }
-                catch (NullPointerException npe) {
-                    app.sendToConsole(LogHelper.log("Client does not exist.", LogTypes.ERROR));
-                }
-                catch (IndexOutOfBoundsException ibe) {
-                    app.sendToConsole(LogHelper.log("Missing arguments.", LogTypes.INVALID));
-                }
-            }
+        ExportFormat format;
+        try {
+            format = parseExportFormat(input_token);
+        }
+        catch (IllegalArgumentException iae) {
+            app.sendToConsole(LogHelper.log(
+                    "Unknown export format. Use --format=csv, csv.gz, jsonl or bin.",
+                    LogTypes.INVALID
+            ));
+            return;
+        }
 
+        try {
+            String export_type = input_token.get(1);
+            boolean validFormat;
+
+            switch (export_type) {
+                case "date" -> {
+                    String date = input_token.get(2);
+                    validFormat = export_data.buildDate(date);
+                    if (!validFormat) {
+                        app.sendToConsole(LogHelper.log("Invalid date format. {yyyy-mm-dd}", LogTypes.INVALID));
+                        return;
+                    }
+                    String version = databaseManager.queryAttendanceVersionByDate(export_data);
+                    String cache_key = (version == null) ? null : ExportCache.buildKey("date=" + date, version, format);
+                    if (exportFromCache(app, date, cache_key, format))
+                        return;
 
-            case 7 -> {
-                LogHelper.debugLog("Case 7: init db tables");
+                    data = databaseManager.queryAttendanceByDate(export_data);
 
-                DatabaseManager database_manager = new DatabaseManager();
-                boolean isSuccessful = database_manager.initTables();
-                String db_feedback = ((isSuccessful) ? "Init Database OK" : "Init Database FAIL");
-                LogTypes db_feedback_type = ((isSuccessful) ? LogTypes.INFO : LogTypes.ERROR);
-                app.sendToConsole(LogHelper.log(db_feedback, db_feedback_type));
-            }
+                    if (data == null)
+                        throw new NullPointerException();
 
+                    exportAndCache(app, date, data, format, cache_key);
+                }
 
-            case 8 -> {
-                LogHelper.debugLog("Case 8: export ");
+                case "event" -> {
+                    String event_name = input_token.get(2);
+                    export_data.buildEventName(event_name);
+                    String version = databaseManager.queryAttendanceVersionByEventName(export_data);
+                    String cache_key = (version == null) ? null : ExportCache.buildKey("event=" + event_name, version, format);
+                    if (exportFromCache(app, event_name, cache_key, format))
+                        return;
 
-                DatabaseManager databaseManager = new DatabaseManager();
-                TempExportQueryData export_data = new TempExportQueryData();
-                List<String> input_token = List.of(input.split(" "));
+                    data = databaseManager.queryAttendanceByEventName(export_data);
 
-                List<String> data;
+                    if (data == null)
+                        throw new NullPointerException();
 
-                try {
-                    String export_type = input_token.get(1);
-                    boolean validFormat;
+                    exportAndCache(app, event_name, data, format, cache_key);
+                }
 
-                    switch (export_type) {
-                        case "date" -> {
-                            String date = input_token.get(2);
-                            validFormat = export_data.buildDate(date);
-                            if (!validFormat) {
-                                app.sendToConsole(LogHelper.log("Invalid date format. {yyyy-mm-dd}", LogTypes.INVALID));
-                                break command_switch;
-                            }
-                            data = databaseManager.queryAttendanceByDate(export_data);
+                case "all_users" -> {
+                    data = databaseManager.queryAllUsers();
 
-                            if (data == null)
-                                throw new NullPointerException();
+                    if (data == null)
+                        throw new NullPointerException();
 
-                            String filename = Exporter.buildAttendanceCSV(date, data);
-                            app.sendToConsole(LogHelper.log("Export: " + filename, LogTypes.INFO));
-                        }
+                    exportData(app, "all-users-enrolled", data, format);
+                }
 
-                        case "event" -> {
-                            String event_name = input_token.get(2);
-                            export_data.buildEventName(event_name);
-                            data = databaseManager.queryAttendanceByEventName(export_data);
+                case "all_attendance" -> {
+                    data = databaseManager.queryAllAttendanceData();
 
-                            if (data == null)
-                                throw new NullPointerException();
+                    if (data == null)
+                        throw new NullPointerException();
 
-                            String filename = Exporter.buildAttendanceCSV(event_name, data);
-                            app.sendToConsole(LogHelper.log("Export: " + filename, LogTypes.INFO));
-                        }
+                    exportData(app, "all-attendance-data", data, format);
+                }
 
-                        case "all_users" -> {
-                            data = databaseManager.queryAllUsers();
+                case "parallel" -> {
+                    int workers = parseExportWorkers(input_token.get(2));
+                    List<List<String[]>> parts = ParallelExporter.queryAllAttendance(workers);
 
-                            if (data == null)
-                                throw new NullPointerException();
+                    if (parts == null)
+                        throw new NullPointerException();
 
-                            String filename = Exporter.buildAttendanceCSV("all-users-enrolled", data);
-                            app.sendToConsole(LogHelper.log("Export: " + filename, LogTypes.INFO));
-                        }
+                    writeExportParts(app, "all-attendance-data", parts, input_token.contains("--parts"), format);
+                }
+
+                case "range" -> {
+                    TempExportQueryData to_data = new TempExportQueryData();
+                    String from_date = input_token.get(2);
+                    String to_date = input_token.get(3);
+                    int workers = parseExportWorkers(input_token.get(4));
+                    validFormat = export_data.buildDate(from_date) && to_data.buildDate(to_date);
+                    if (!validFormat) {
+                        app.sendToConsole(LogHelper.log("Invalid date format. {yyyy-mm-dd}", LogTypes.INVALID));
+                        return;
+                    }
+                    List<List<String[]>> parts = ParallelExporter.queryAttendanceBetween(
+                            export_data.getDateQuery(), to_data.getDateQuery(), workers
+                    );
+
+                    if (parts == null)
+                        throw new NullPointerException();
 
-                        case "all_attendance" -> {
-                            data = databaseManager.queryAllAttendanceData();
+                    writeExportParts(app, from_date + "_to_" + to_date, parts, input_token.contains("--parts"), format);
+                }
+
+                case "since-last" -> {
+                    String consumer = input_token.get(2);
+                    if (!consumer.matches("^[A-Za-z0-9_-]+$")) {
+                        app.sendToConsole(LogHelper.log(
+                                "Consumer names may only contain letters, digits, - and _.",
+                                LogTypes.INVALID
+                        ));
+                        return;
+                    }
+                    boolean is_rotated = input_token.contains("--rotate");
+                    if (!is_rotated && !format.isAppendable()) {
+                        app.sendToConsole(LogHelper.log(
+                                format.getName() + " exports can not be appended to. Use --rotate.",
+                                LogTypes.INVALID
+                        ));
+                        return;
+                    }
 
-                            if (data == null)
-                                throw new NullPointerException();
+                    ReentrantLock consumer_lock = ExportWatermarks.lockFor(consumer);
+                    consumer_lock.lock();
+                    try {
+                        export_data.buildSinceAttendanceId(ExportWatermarks.get(consumer));
+                        data = databaseManager.queryAttendanceSince(export_data);
+
+                        if (data == null)
+                            throw new NullPointerException();
+
+                        if (data.size() == 1) {
+                            app.sendToConsole(LogHelper.log(
+                                    "No new attendance for " + consumer + " since attendance id " +
+                                            export_data.getSinceAttendanceIdQuery() + ". Attendance of the last " +
+                                            Const.EXPORT_SETTLE_SECONDS + " seconds is exported next time.",
+                                    LogTypes.INFO
+                            ));
+                            return;
+                        }
 
-                            String filename = Exporter.buildAttendanceCSV("all-attendance-data", data);
-                            app.sendToConsole(LogHelper.log("Export: " + filename, LogTypes.INFO));
+                        if (is_rotated) {
+                            String rotated_name = consumer + "_" + LocalDateTime.now().format(ROTATE_FORMAT);
+                            exportData(app, rotated_name, data, format);
                         }
-                        default -> {
-                            app.sendToConsole(LogHelper.log("Invalid syntax.", LogTypes.INVALID));
-                            break command_switch;
+                        else {
+                            String filename = Exporter.appendExport(consumer, data, format);
+                            app.sendToConsole(LogHelper.log(
+                                    String.format("Export: appended %d rows to %s", data.size() - 1, filename),
+                                    LogTypes.INFO
+                            ));
                         }
+                        // only move the watermark once the rows are safely written.
+                        ExportWatermarks.set(consumer, export_data.getLastAttendanceId());
+                    }
+                    finally {
+                        consumer_lock.unlock();
                     }
                 }
-                catch (IndexOutOfBoundsException ibe) {
-                    app.sendToConsole(LogHelper.log("Missing arguments.", LogTypes.INVALID));
-                }
-                catch (IOException ioe) {
-                    app.sendToConsole(LogHelper.log("An IO Error occurred when exporting.", LogTypes.ERROR));
+
+                case "bench" -> {
+                    int workers = parseExportWorkers(input_token.get(2));
+
+                    // the same range queries on one worker and on all workers, so only the parallelism differs.
+                    long serial_start = System.nanoTime();
+                    List<List<String[]>> serial_parts = ParallelExporter.queryAllAttendance(1);
+                    long serial_ms = (System.nanoTime() - serial_start) / 1_000_000;
+
+                    long parallel_start = System.nanoTime();
+                    List<List<String[]>> parts = ParallelExporter.queryAllAttendance(workers);
+                    long parallel_ms = (System.nanoTime() - parallel_start) / 1_000_000;
+
+                    if (serial_parts == null || parts == null)
+                        throw new NullPointerException();
+
+                    int serial_rows = 0;
+                    for (List<String[]> part : serial_parts) {
+                        serial_rows += part.size();
+                    }
+                    int parallel_rows = 0;
+                    for (List<String[]> part : parts) {
+                        parallel_rows += part.size();
+                    }
+                    app.sendToConsole(LogHelper.log(
+                            String.format("Range export (1 worker): %d rows in %dms", serial_rows, serial_ms),
+                            LogTypes.INFO
+                    ));
+                    app.sendToConsole(LogHelper.log(
+                            String.format("Range export (%d workers): %d rows in %dms (%.2fx)",
+                                    workers, parallel_rows, parallel_ms,
+                                    (double) Math.max(serial_ms, 1) / Math.max(parallel_ms, 1)),
+                            LogTypes.INFO
+                    ));
                 }
-                catch (NullPointerException npe) {
-                    app.sendToConsole(LogHelper.log("Data is null. Check if database tables exist.", LogTypes.ERROR));
+
+                default -> {
+                    app.sendToConsole(LogHelper.log("Invalid syntax.", LogTypes.INVALID));
+                    return;
                 }
             }
+        }
+        catch (IndexOutOfBoundsException ibe) {
+            app.sendToConsole(LogHelper.log("Missing arguments.", LogTypes.INVALID));
+        }
+        catch (NumberFormatException nfe) {
+            app.sendToConsole(LogHelper.log(
+                    "Workers must be a number from 1 to " + Const.MAX_EXPORT_WORKERS + ".",
+                    LogTypes.INVALID
+            ));
+        }
+        catch (IOException ioe) {
+            app.sendToConsole(LogHelper.log("An IO Error occurred when exporting.", LogTypes.ERROR));
+        }
+        catch (NullPointerException npe) {
+            app.sendToConsole(LogHelper.log("Data is null. Check if database tables exist.", LogTypes.ERROR));
+        }
+    }
+
+
+    /**
+     * Display the current event.
+     * @param app the app running the command.
+     * @param input_token the tokens of the user input.
+     */
+    private static void showEvent(AppContext app, List<String> input_token) {
+        LogHelper.debugLog("Command: event see");
+        EventData event_data = app.getEventData();
 
+        String current_event_name = event_data.getCurrentEventName();
+        String current_event_location = event_data.getCurrentEventLocation();
 
-            case 9 -> {
-                LogHelper.debugLog("Case 9: event see ");
-                EventData event_data = app.getEventData();
+        app.sendToConsole(LogHelper.log("Current Event Name: " + current_event_name, LogTypes.INFO));
+        app.sendToConsole(LogHelper.log("Current Event Location: " + current_event_location, LogTypes.INFO));
+    }
+
+
+    /**
+     * Set the current event name and location.
+     * @param app the app running the command.
+     * @param input_token the tokens of the user input.
+     */
+    private static void setEvent(AppContext app, List<String> input_token) {
+        LogHelper.debugLog("Command: event new");
+        EventData event_data = app.getEventData();
+
+        try {
+            String new_name = input_token.get(2);
+            String new_loc = input_token.get(3);
+            event_data.setCurrentEventName(new_name);
+            event_data.setCurrentEventLocation(new_loc);
+
+            app.sendToConsole(LogHelper.log("Event data updated.", LogTypes.INFO));
+        }
+        catch (IndexOutOfBoundsException iobe) {
+            app.sendToConsole(LogHelper.log("Missing arguments.", LogTypes.INVALID));
+        }
+    }
 
-                String current_event_name = event_data.getCurrentEventName();
-                String current_event_location = event_data.getCurrentEventLocation();
 
-                app.sendToConsole(LogHelper.log("Current Event Name: " + current_event_name, LogTypes.INFO));
-                app.sendToConsole(LogHelper.log("Current Event Location: " + current_event_location, LogTypes.INFO));
+    /**
+     * Delete all records of a user from the database.
+     * @param app the app running the command.
+     * @param input_token the tokens of the user input.
+     */
+    private static void deleteUserRecords(AppContext app, List<String> input_token) {
+        LogHelper.debugLog("Command: delete user from db");
+        ServerManager server_manager = app.getServerManager();
+
+        DatabaseManager databaseManager = new DatabaseManager();
+
+        if (!checkValidServer(app, server_manager))
+            return; // Server must be running to proceed.
+
+        try {
+            String client_to_find = input_token.get(3);
+            ServerManager.FSClient client = findClient(app, server_manager, client_to_find);
+
+            String fingerprint_id_unparsed = input_token.get(2);
+            int fingerprint_id = Integer.parseInt(fingerprint_id_unparsed);
+            int user_id = databaseManager.getUserID(fingerprint_id, client.getClientID());
+
+            if (user_id == 0) {
+                app.sendToConsole(LogHelper.log(
+                        "User does not exist.",
+                        LogTypes.ERROR));
+                return;
+            }
+
+            boolean isSuccessful = databaseManager.deleteUserRecords(user_id);
 
+            if (!isSuccessful) {
+                app.sendToConsole(LogHelper.log(
+                        "Execution failed. Check if database tables exist.",
+                        LogTypes.ERROR));
+                return;
             }
 
+            client.sendCommand("delete");
+            client.sendCommand(fingerprint_id_unparsed);
+        }
+        catch (IndexOutOfBoundsException iobe) {
+            app.sendToConsole(LogHelper.log("Missing arguments.", LogTypes.INVALID));
+        }
+        catch (NumberFormatException nfe) {
+            app.sendToConsole(LogHelper.log("Invalid Argument Format", LogTypes.INVALID));
+        }
+        catch (NullPointerException npe) {
+            app.sendToConsole(LogHelper.log("Client does not exist.", LogTypes.ERROR));
+        }
+    }
+
+
+    /**
+     * Empty the database of a client.
+     * @param app the app running the command.
+     * @param input_token the tokens of the user input.
+     */
+    private static void deleteClientData(AppContext app, List<String> input_token) {
+        LogHelper.debugLog("Command: deletealldatafromdatabase");
+        ServerManager server_manager = app.getServerManager();
+
+
+        if (!checkValidServer(app, server_manager))
+            return; // Server must be running to proceed.
+
+        try {
+            String client_to_find = input_token.get(1);
+            ServerManager.FSClient client = findClient(app, server_manager, client_to_find);
 
-            case 10 -> {
-                LogHelper.debugLog("Case 10: event new ");
-                EventData event_data = app.getEventData();
-                List<String> input_token = List.of(input.split(" "));
+            client.sendCommand("deleteAllDataFromDatabase");
+        }
+        catch (NullPointerException npe) {
+            app.sendToConsole(LogHelper.log("Client does not exist.", LogTypes.ERROR));
+        }
+        catch (IndexOutOfBoundsException iobe) {
+            app.sendToConsole(LogHelper.log("Missing arguments.", LogTypes.INVALID));
+        }
+    }
 
-                try {
-                    String new_name = input_token.get(2);
-                    String new_loc = input_token.get(3);
-                    event_data.setCurrentEventName(new_name);
-                    event_data.setCurrentEventLocation(new_loc);
 
-                    app.sendToConsole(LogHelper.log("Event data updated.", LogTypes.INFO));
+    /**
+     * Show or hide the log lines of a log type.
+     * @param app the app running the command.
+     * @param input_token the tokens of the user input.
+     */
+    private static void setLogLevel(AppContext app, List<String> input_token) {
+        LogHelper.debugLog("Command: log level");
+
+
+        try {
+            String type_unparsed = input_token.get(2).toUpperCase();
+            String state = input_token.get(3);
+            boolean is_enabled;
+            switch (state) {
+                case "on" -> is_enabled = true;
+                case "off" -> is_enabled = false;
+                default -> {
+                    app.sendToConsole(LogHelper.log("State must be on or off.", LogTypes.INVALID));
+                    return;
                 }
-                catch (IndexOutOfBoundsException iobe) {
-                    app.sendToConsole(LogHelper.log("Missing arguments.", LogTypes.INVALID));
+            }
+
+            if (type_unparsed.equals("ALL")) {
+                for (LogTypes type : LogTypes.values()) {
+                    LogHelper.setEnabled(type, is_enabled);
                 }
             }
+            else {
+                LogHelper.setEnabled(LogTypes.valueOf(type_unparsed), is_enabled);
+            }
+            // always shown, even if the type of the confirmation was just disabled.
+            app.sendToConsole(new LogRecord(
+                    System.currentTimeMillis(), LogTypes.CONSOLE,
+                    "Log type " + type_unparsed + " turned " + state + "."
+            ));
+        }
+        catch (IndexOutOfBoundsException iobe) {
+            app.sendToConsole(LogHelper.log("Missing arguments.", LogTypes.INVALID));
+        }
+        catch (IllegalArgumentException iae) {
+            app.sendToConsole(LogHelper.log("Unknown log type.", LogTypes.INVALID));
+        }
+    }
+
+
+    /**
+     * Set how the heartbeats are logged.
+     * @param app the app running the command.
+     * @param input_token the tokens of the user input.
+     */
+    private static void setHeartbeatLogging(AppContext app, List<String> input_token) {
+        LogHelper.debugLog("Command: log heartbeat");
 
 
-            case 11 -> {
-                LogHelper.debugLog("Case 11: delete user from db ");
+        try {
+            HeartbeatMonitor.Mode mode = HeartbeatMonitor.Mode.valueOf(input_token.get(2).toUpperCase());
+            HeartbeatMonitor.setMode(mode);
+            app.sendToConsole(LogHelper.log("Heartbeat logging set to " + input_token.get(2) + ".", LogTypes.INFO));
+        }
+        catch (IndexOutOfBoundsException iobe) {
+            app.sendToConsole(LogHelper.log("Missing arguments.", LogTypes.INVALID));
+        }
+        catch (IllegalArgumentException iae) {
+            app.sendToConsole(LogHelper.log("Mode must be each, summary or off.", LogTypes.INVALID));
+        }
+    }
 
-                DatabaseManager databaseManager = new DatabaseManager();
-                List<String> input_token = List.of(input.split(" "));
 
-                if (!checkValidServer(app, server_manager))
-                    break; // Server must be running to proceed.
+    /**
+     * Find the recent log lines of a client, a log type or a text.
+     * @param app the app running the command.
+     * @param input_token the tokens of the user input.
+     */
+    private static void findLogs(AppContext app, List<String> input_token) {
+        LogHelper.debugLog("Command: log find");
+
+        LogIndex log_index = app.getLogIndex();
+
+        try {
+            String term = input_token.get(2);
+            long since = input_token.size() > 3 ? parseLogSince(input_token.get(3)) : 0;
+
+            List<LogRecord> found;
+            String searched_by;
+            if (Arrays.stream(LogTypes.values()).anyMatch(type -> type.name().equalsIgnoreCase(term))) {
+                found = log_index.findByType(
+                        LogTypes.valueOf(term.toUpperCase()), since, Const.LOG_FIND_MAX_RESULTS
+                );
+                searched_by = "type";
+            }
+            else if (log_index.hasClient(term)) {
+                found = log_index.findByClient(term, since, Const.LOG_FIND_MAX_RESULTS);
+                searched_by = "client";
+            }
+            else {
+                found = log_index.findByText(term, since, Const.LOG_FIND_MAX_RESULTS);
+                searched_by = "text";
+            }
 
-                try {
-                    String client_to_find = input_token.get(3);
-                    ServerManager.FSClient client = findClient(app, server_manager, client_to_find);
+            app.sendToConsole(LogHelper.log(
+                    found.size() + " log lines found by " + searched_by + " " + term +
+                            (found.size() == Const.LOG_FIND_MAX_RESULTS ? ", showing the most recent." : "."),
+                    LogTypes.INFO
+            ));
+            for (LogRecord record : found) {
+                app.sendToConsole(LogHelper.log(LogHelper.format(record), LogTypes.CONSOLE));
+            }
+        }
+        catch (IndexOutOfBoundsException iobe) {
+            app.sendToConsole(LogHelper.log("Missing arguments.", LogTypes.INVALID));
+        }
+        catch (NumberFormatException | DateTimeParseException e) {
+            app.sendToConsole(LogHelper.log(
+                    "Since must be a duration like 15m or a time like 08:30.", LogTypes.INVALID
+            ));
+        }
+    }
 
-                    String fingerprint_id_unparsed = input_token.get(2);
-                    int fingerprint_id = Integer.parseInt(fingerprint_id_unparsed);
-                    int user_id = databaseManager.getUserID(fingerprint_id, client.getClientID());
 
-                    if (user_id == 0) {
-                        app.sendToConsole(LogHelper.log(
-                                "User does not exist.",
-                                LogTypes.ERROR));
-                        break;
-                    }
+    /**
+     * Run a script of commands in the background.
+     * @param app the app running the command.
+     * @param input_token the tokens of the user input.
+     * @see CommandScript
+     */
+    private static void runScript(AppContext app, List<String> input_token) {
+        LogHelper.debugLog("Command: run");
+        if (input_token.size() < 2) {
+            app.sendToConsole(LogHelper.log("Missing arguments.", LogTypes.INVALID));
+            return;
+        }
 
-                    boolean isSuccessful = databaseManager.deleteUserRecords(user_id);
+        Path script_path = Path.of(System.getProperty("user.dir")).resolve(input_token.get(1));
+        if (!Files.isRegularFile(script_path)) {
+            app.sendToConsole(LogHelper.log("Script " + script_path + " does not exist.", LogTypes.ERROR));
+            return;
+        }
+        app.runInBackground("script-" + script_path.getFileName(), () -> new CommandScript(app, script_path).run());
+    }
 
-                    if (!isSuccessful) {
-                        app.sendToConsole(LogHelper.log(
-                                "Execution failed. Check if database tables exist.",
-                                LogTypes.ERROR));
-                        break;
-                    }
 
-                    client.sendCommand("delete");
-                    client.sendCommand(fingerprint_id_unparsed);
+    /**
+     * Start or stop the admin http server.
+     * @param app the app running the command.
+     * @param input_token the tokens of the user input.
+     * @see AdminHttpServer
+     */
+    private static void setAdminServer(AppContext app, List<String> input_token) {
+        LogHelper.debugLog("Command: admin");
+        try {
+            switch (input_token.get(1)) {
+                case "start" -> {
+                    int port = input_token.size() > 2 ? Integer.parseInt(input_token.get(2)) : Const.ADMIN_HTTP_PORT;
+                    String token = Dotenv.configure().ignoreIfMissing().load().get("ADMIN_TOKEN");
+                    AdminHttpServer.start(app, port, token);
                 }
-                catch (IndexOutOfBoundsException iobe) {
-                    app.sendToConsole(LogHelper.log("Missing arguments.", LogTypes.INVALID));
+                case "stop" -> {
+                    if (AdminHttpServer.stop()) {
+                        app.sendToConsole(LogHelper.log("Admin server stopped.", LogTypes.SERVER));
+                    }
+                    else {
+                        app.sendToConsole(LogHelper.log("Admin server is not running.", LogTypes.INVALID));
+                    }
                 }
-                catch (NumberFormatException nfe) {
-                    app.sendToConsole(LogHelper.log("Invalid Argument Format", LogTypes.INVALID));
+                default -> app.sendToConsole(LogHelper.log("Use admin start or admin stop.", LogTypes.INVALID));
+            }
+        }
+        catch (IndexOutOfBoundsException ibe) {
+            app.sendToConsole(LogHelper.log("Missing arguments.", LogTypes.INVALID));
+        }
+        catch (NumberFormatException nfe) {
+            app.sendToConsole(LogHelper.log("Invalid port.", LogTypes.INVALID));
+        }
+    }
+
+
+    /**
+     * Start or stop the attendance feed server.
+     * @param app the app running the command.
+     * @param input_token the tokens of the user input.
+     * @see AttendanceFeedServer
+     */
+    private static void setAttendanceFeed(AppContext app, List<String> input_token) {
+        LogHelper.debugLog("Command: feed");
+        try {
+            switch (input_token.get(1)) {
+                case "start" -> {
+                    int port = input_token.size() > 2
+                            ? Integer.parseInt(input_token.get(2)) : Const.ATTENDANCE_FEED_PORT;
+                    Dotenv dotenv = Dotenv.configure().ignoreIfMissing().load();
+                    AttendanceFeedServer.start(
+                            app, dotenv.get("FEED_HOST", Const.ATTENDANCE_FEED_HOST), port, dotenv.get("FEED_TOKEN")
+                    );
                 }
-                catch (NullPointerException npe) {
-                    app.sendToConsole(LogHelper.log("Client does not exist.", LogTypes.ERROR));
+                case "stop" -> {
+                    if (AttendanceFeedServer.stop()) {
+                        app.sendToConsole(LogHelper.log("Attendance feed stopped.", LogTypes.SERVER));
+                    }
+                    else {
+                        app.sendToConsole(LogHelper.log("Attendance feed is not running.", LogTypes.INVALID));
+                    }
                 }
+                default -> app.sendToConsole(LogHelper.log("Use feed start or feed stop.", LogTypes.INVALID));
+            }
+        }
+        catch (IndexOutOfBoundsException ibe) {
+            app.sendToConsole(LogHelper.log("Missing arguments.", LogTypes.INVALID));
+        }
+        catch (NumberFormatException nfe) {
+            app.sendToConsole(LogHelper.log("Invalid port.", LogTypes.INVALID));
+        }
+    }
+
+
+    /**
+     * Show the metrics of the registry.
+     * @param app the app running the command.
+     * @param input_token the tokens of the user input.
+     * @see MetricsRegistry
+     */
+    private static void showMetrics(AppContext app, List<String> input_token) {
+        LogHelper.debugLog("Command: metrics");
+        String prefix = input_token.size() > 1 ? input_token.get(1) : "";
+
+        MetricsRegistry.getCounters().forEach((name, value) -> {
+            if (name.startsWith(prefix)) {
+                app.sendToConsole(LogHelper.log(String.format("%-45s %d", name, value), LogTypes.INFO));
             }
+        });
+        MetricsRegistry.getHistograms().forEach((name, snapshot) -> {
+            if (name.startsWith(prefix) && snapshot.getTotalCount() > 0) {
+                app.sendToConsole(LogHelper.log(String.format(
+                        "%-45s count=%d    p50/p95/p99/max=%d/%d/%d/%d",
+                        name,
+                        snapshot.getTotalCount(),
+                        snapshot.getValueAtPercentile(50),
+                        snapshot.getValueAtPercentile(95),
+                        snapshot.getValueAtPercentile(99),
+                        snapshot.getValueAtPercentile(100)
+                ), LogTypes.INFO));
+            }
+        });
+    }
+
+
+    /**
+     * Start, dump or stop a flight recording.
+     * @param app the app running the command.
+     * @param input_token the tokens of the user input.
+     * @see FlightRecording
+     */
+    private static void setFlightRecording(AppContext app, List<String> input_token) {
+        LogHelper.debugLog("Command: jfr");
+        if (input_token.size() < 2) {
+            app.sendToConsole(LogHelper.log("Missing arguments.", LogTypes.INVALID));
+            return;
+        }
+        switch (input_token.get(1)) {
+            case "start" -> FlightRecording.start(app);
+            case "dump" -> FlightRecording.dump(app);
+            case "stop" -> FlightRecording.stop(app);
+            default -> app.sendToConsole(LogHelper.log("Use jfr start, jfr dump or jfr stop.", LogTypes.INVALID));
+        }
+    }
 
 
-            case 12 -> {
-                LogHelper.debugLog("Case 12: deletealldatafromdatabase");
+    /**
+     * Show the last or the slowest scan traces.
+     * @param app the app running the command.
+     * @param input_token the tokens of the user input.
+     * @see TraceStore
+     */
+    private static void showTraces(AppContext app, List<String> input_token) {
+        LogHelper.debugLog("Command: trace");
+        List<ScanTrace> traces;
+        try {
+            String subcommand = input_token.get(1);
+            int count = input_token.size() > 2 || subcommand.equals("last")
+                    ? Integer.parseInt(input_token.get(2)) : Const.TRACE_SLOW_COUNT;
+            if (count < 0) throw new NumberFormatException();
+            traces = switch (subcommand) {
+                case "last" -> TraceStore.getLast(count);
+                case "slow" -> TraceStore.getSlowest(count);
+                default -> null;
+            };
+        }
+        catch (IndexOutOfBoundsException ibe) {
+            app.sendToConsole(LogHelper.log("Missing arguments.", LogTypes.INVALID));
+            return;
+        }
+        catch (NumberFormatException nfe) {
+            app.sendToConsole(LogHelper.log(
+                    "Invalid number of traces. Use trace last <n> or trace slow [n], n at least 0.", LogTypes.INVALID
+            ));
+            return;
+        }
 
-                List<String> input_token = List.of(input.split(" "));
+        if (traces == null) {
+            app.sendToConsole(LogHelper.log("Use trace last <n> or trace slow [n].", LogTypes.INVALID));
+            return;
+        }
+        if (traces.isEmpty()) {
+            app.sendToConsole(LogHelper.log("No scans were traced yet.", LogTypes.INFO));
+            return;
+        }
+        for (ScanTrace trace : traces) {
+            app.sendToConsole(LogHelper.log(trace.format(), LogTypes.INFO));
+        }
+    }
 
-                if (!checkValidServer(app, server_manager))
-                    break; // Server must be running to proceed.
 
-                try {
-                    String client_to_find = input_token.get(1);
-                    ServerManager.FSClient client = findClient(app, server_manager, client_to_find);
+    /**
+     * Show the stats of every database statement, or set the slow query threshold.
+     * @param app the app running the command.
+     * @param input_token the tokens of the user input.
+     * @see QueryStats
+     */
+    private static void showDatabaseStats(AppContext app, List<String> input_token) {
+        LogHelper.debugLog("Command: db");
+        String subcommand = input_token.size() > 1 ? input_token.get(1) : "";
+        if (subcommand.equals("slow")) {
+            try {
+                long slow_query_millis = Long.parseLong(input_token.get(2));
+                if (slow_query_millis < 0) throw new NumberFormatException();
+                QueryStats.setSlowQueryMillis(slow_query_millis);
+                app.sendToConsole(LogHelper.log(
+                        "Statements over " + slow_query_millis + "ms are logged as slow.", LogTypes.INFO
+                ));
+            }
+            catch (IndexOutOfBoundsException ibe) {
+                app.sendToConsole(LogHelper.log(
+                        "Statements over " + QueryStats.getSlowQueryMillis() + "ms are logged as slow.",
+                        LogTypes.INFO
+                ));
+            }
+            catch (NumberFormatException nfe) {
+                app.sendToConsole(LogHelper.log("Invalid number of milliseconds.", LogTypes.INVALID));
+            }
+            return;
+        }
+        if (!subcommand.equals("stats")) {
+            app.sendToConsole(LogHelper.log("Use db stats or db slow <ms>.", LogTypes.INVALID));
+            return;
+        }
 
-                    client.sendCommand("deleteAllDataFromDatabase");
-                }
-                catch (NullPointerException npe) {
-                    app.sendToConsole(LogHelper.log("Client does not exist.", LogTypes.ERROR));
-                }
-                catch (IndexOutOfBoundsException iobe) {
-                    app.sendToConsole(LogHelper.log("Missing arguments.", LogTypes.INVALID));
-                }
+        LatencyHistogram.Snapshot acquire = MetricsRegistry.histogram("db.connection.acquire_micros").snapshot();
+        app.sendToConsole(LogHelper.log(String.format(
+                "Connection wait: count=%d p50=%.2fms p99=%.2fms, slow query threshold %dms",
+                acquire.getTotalCount(), acquire.getValueAtPercentile(50) / 1e3,
+                acquire.getValueAtPercentile(99) / 1e3, QueryStats.getSlowQueryMillis()
+        ), LogTypes.INFO));
+
+        List<Map.Entry<QueryStats.StatementKey, QueryStats.StatementStats>> statement_stats =
+                QueryStats.getStatementStats();
+        if (statement_stats.isEmpty()) {
+            app.sendToConsole(LogHelper.log("No statements were run yet.", LogTypes.INFO));
+            return;
+        }
+        for (Map.Entry<QueryStats.StatementKey, QueryStats.StatementStats> entry : statement_stats) {
+            LatencyHistogram.Snapshot micros = entry.getValue().getMicros();
+            String sql = entry.getKey().sql();
+            if (sql.length() > Const.DB_STATS_SQL_WIDTH) {
+                sql = sql.substring(0, Const.DB_STATS_SQL_WIDTH - 3) + "...";
             }
+            app.sendToConsole(LogHelper.log(String.format(
+                    "%s: count=%d p50=%.2fms p99=%.2fms total=%.1fms rows=%d  %s",
+                    entry.getKey().method_name(), micros.getTotalCount(),
+                    micros.getValueAtPercentile(50) / 1e3, micros.getValueAtPercentile(99) / 1e3,
+                    entry.getValue().getTotalMicros() / 1e3, entry.getValue().getRows(), sql
+            ), LogTypes.INFO));
         }
     }
 }
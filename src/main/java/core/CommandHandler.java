@@ -0,0 +1,18 @@
+package core;
+
+import java.util.List;
+
+/**
+ * A CommandHandler executes one command of the console.
+ * @see CommandDispatcher
+ */
+@FunctionalInterface
+public interface CommandHandler {
+
+    /**
+     * Execute the command.
+     * @param app the app running the command.
+     * @param input_token the tokens of the user input, including the command itself.
+     */
+    void handle(AppContext app, List<String> input_token);
+}
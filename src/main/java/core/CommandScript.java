@@ -0,0 +1,222 @@
+package core;
+
+import utility.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * The CommandScript runs a file of console commands, one command per line.
+ * Blank lines and lines starting with # are skipped.
+ * <p>
+ *     Consecutive commands on a client (enroll, disconnect, reboot, delete db
+ *     and deletealldatafromdatabase) run in parallel, one thread per client,
+ *     while the commands of the same client keep their order. Every other
+ *     command waits for the commands before it and runs alone, so e.g. an
+ *     event new always applies to the enrollments after it.
+ * </p>
+ * <p>
+ *     A command fails if it logs an error or an invalid message. The result
+ *     and time of every command and the total time are logged at the end.
+ * </p>
+ */
+public class CommandScript {
+    private final AppContext app;
+    private final Path script_path;
+    private final List<Line> lines = new ArrayList<>();
+
+
+    /**
+     * @param app the app running the commands.
+     * @param script_path the path of the script file.
+     */
+    public CommandScript(AppContext app, Path script_path) {
+        this.app = app;
+        this.script_path = script_path;
+    }
+
+
+    /**
+     * Read and run the script. Blocks until every command is done.
+     * @return false if the script could not be read or a command failed.
+     */
+    public boolean run() {
+        try {
+            parse(Files.readAllLines(script_path, StandardCharsets.UTF_8));
+        }
+        catch (IOException ioe) {
+            app.sendToConsole(LogHelper.log("Cannot read script " + script_path + ".", LogTypes.ERROR));
+            return false;
+        }
+        app.sendToConsole(LogHelper.log(
+                "Running " + lines.size() + " commands from " + script_path.getFileName() + ".", LogTypes.INFO
+        ));
+
+        long start_nanos = System.nanoTime();
+        int start = 0;
+        while (start < lines.size()) {
+            int end = start;
+            if (lines.get(start).client_name != null) {
+                while (end < lines.size() && lines.get(end).client_name != null) end++;
+                runParallel(lines.subList(start, end));
+            }
+            else {
+                end++;
+                runLine(lines.get(start));
+            }
+            start = end;
+        }
+        long elapsed_millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start_nanos);
+
+        int failed = 0;
+        for (Line line : lines) {
+            if (!line.is_successful) failed++;
+            app.sendToConsole(LogHelper.log(
+                    String.format("%s %4d: %s (%dms)",
+                            line.is_successful ? "OK  " : "FAIL", line.number, line.command, line.elapsed_millis),
+                    line.is_successful ? LogTypes.INFO : LogTypes.WARNING
+            ));
+        }
+        app.sendToConsole(LogHelper.log(String.format(
+                "Script %s finished in %dms: %d ok, %d failed.",
+                script_path.getFileName(), elapsed_millis, lines.size() - failed, failed
+        ), failed == 0 ? LogTypes.INFO : LogTypes.WARNING));
+        return failed == 0;
+    }
+
+
+    private void parse(List<String> file_lines) {
+        for (int i = 0; i < file_lines.size(); i++) {
+            String command = file_lines.get(i).strip();
+            if (command.isEmpty() || command.startsWith("#")) continue;
+            int command_id = CommandExecutor.checkValidCommand(command);
+            lines.add(new Line(i + 1, command, findClientName(command_id, CommandTokenizer.tokenize(command))));
+        }
+    }
+
+
+    /**
+     * Find the client a command runs on.
+     * @param command_id the id of the command.
+     * @param command_token the tokens of the command.
+     * @return the client name, or null if the command does not run on one client.
+     * @see Const.Commands
+     */
+    private static String findClientName(int command_id, List<String> command_token) {
+        int client_index = switch (command_id) {
+            case 3, 4, 6, 12 -> 1; // enroll, disconnect, reboot, deletealldatafromdatabase
+            case 11 -> 3; // delete db
+            default -> -1;
+        };
+        if (client_index < 0 || client_index >= command_token.size()) return null;
+        return command_token.get(client_index);
+    }
+
+
+    /**
+     * Run the commands of each client on its own thread and wait for all of them to finish.
+     * @param client_lines commands that each run on one client.
+     */
+    private void runParallel(List<Line> client_lines) {
+        Map<String, List<Line>> lines_by_client = new LinkedHashMap<>();
+        for (Line line : client_lines) {
+            lines_by_client.computeIfAbsent(line.client_name, k -> new ArrayList<>()).add(line);
+        }
+        if (lines_by_client.size() == 1) {
+            client_lines.forEach(this::runLine);
+            return;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(
+                Math.min(lines_by_client.size(), Const.SCRIPT_MAX_PARALLEL_CLIENTS)
+        );
+        List<Callable<Void>> tasks = new ArrayList<>(lines_by_client.size());
+        for (List<Line> lines_of_client : lines_by_client.values()) {
+            tasks.add(() -> {
+                lines_of_client.forEach(this::runLine);
+                return null;
+            });
+        }
+        try {
+            for (Future<Void> future : executor.invokeAll(tasks)) {
+                future.get();
+            }
+        }
+        catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        }
+        catch (ExecutionException ee) {
+            ee.printStackTrace();
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+
+    private void runLine(Line line) {
+        ResultContext result = new ResultContext(app);
+        long start_nanos = System.nanoTime();
+        if (CommandExecutor.checkValidCommand(line.command) == Const.Commands.RUN_SCRIPT.getId()) {
+            result.sendToConsole(LogHelper.log("A script cannot run another script.", LogTypes.INVALID));
+        }
+        else {
+            app.sendToConsole(LogHelper.log(line.command, LogTypes.CONSOLE));
+            try {
+                CommandExecutor.execute(result, line.command);
+            }
+            catch (RuntimeException re) {
+                re.printStackTrace();
+                result.has_failed = true;
+            }
+        }
+        line.elapsed_millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start_nanos);
+        line.is_successful = !result.has_failed;
+    }
+
+
+    /**
+     * One command of the script and its result.
+     */
+    private static class Line {
+        private final int number;
+        private final String command;
+        private final String client_name;
+        private volatile boolean is_successful;
+        private volatile long elapsed_millis;
+
+
+        private Line(int number, String command, String client_name) {
+            this.number = number;
+            this.command = command;
+            this.client_name = client_name;
+        }
+    }
+
+
+    /**
+     * Passes everything to the app and remembers if the command logged an
+     * error or an invalid message.
+     */
+    private static class ResultContext extends ForwardingAppContext {
+        private volatile boolean has_failed;
+
+
+        private ResultContext(AppContext app) {
+            super(app);
+        }
+
+
+        @Override
+        public void sendToConsole(LogRecord record) {
+            if (record != null && (record.getType() == LogTypes.ERROR || record.getType() == LogTypes.INVALID)) {
+                has_failed = true;
+            }
+            super.sendToConsole(record);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package core;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The CommandTokenizer splits a console input into tokens. Tokens are separated
+ * by whitespace; a double quoted text is one token, so multi-word arguments can
+ * be given, e.g. event new "Science Fair" "Main Hall". Inside quotes, \" is a
+ * quote and \\ is a backslash.
+ */
+public class CommandTokenizer {
+
+    private CommandTokenizer() {}
+
+
+    /**
+     * Split an input into tokens.
+     * @param input the console input.
+     * @return the tokens, without the quotes. An unterminated quote runs to the end of the input.
+     */
+    public static List<String> tokenize(String input) {
+        List<String> tokens = new ArrayList<>();
+        StringBuilder token = new StringBuilder();
+        boolean is_in_token = false;
+        boolean is_quoted = false;
+
+        for (int i = 0; i < input.length(); i++) {
+            char c = input.charAt(i);
+            if (is_quoted) {
+                if (c == '\\' && i + 1 < input.length() && (input.charAt(i + 1) == '"' || input.charAt(i + 1) == '\\')) {
+                    token.append(input.charAt(++i));
+                }
+                else if (c == '"') {
+                    is_quoted = false;
+                }
+                else {
+                    token.append(c);
+                }
+            }
+            else if (Character.isWhitespace(c)) {
+                if (is_in_token) {
+                    tokens.add(token.toString());
+                    token.setLength(0);
+                    is_in_token = false;
+                }
+            }
+            else {
+                is_in_token = true;
+                if (c == '"') is_quoted = true;
+                else token.append(c);
+            }
+        }
+        if (is_in_token) tokens.add(token.toString());
+        return tokens;
+    }
+}
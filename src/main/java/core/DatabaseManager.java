@@ -1,13 +1,20 @@
 package core;
 
 import io.github.cdimascio.dotenv.Dotenv;
+import utility.Const;
+import utility.LatencyHistogram;
+import utility.MetricsRegistry;
 import utility.TempAttendanceData;
 import utility.TempEnrollmentData;
 import utility.TempExportQueryData;
 
 import java.sql.*;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * The DatabaseManager class will handle the database communication and
@@ -16,6 +23,14 @@ import java.util.List;
 public class DatabaseManager {
     private static final String DB_USERNAME;
     private static final String DB_PASSWORD;
+    private static final LatencyHistogram CONNECTION_ACQUIRE_MICROS =
+            MetricsRegistry.histogram("db.connection.acquire_micros");
+    private static final StackWalker STACK_WALKER = StackWalker.getInstance();
+    // method name -> its db.method.<name>_micros histogram, looked up once per method.
+    private static final Map<String, LatencyHistogram> METHOD_MICROS = new ConcurrentHashMap<>();
+
+    // open connection -> when and by which method it was opened, to time every method.
+    private final Map<Connection, MethodTiming> method_timings = new IdentityHashMap<>();
 
     static {
         Dotenv dotenv = Dotenv.load();
@@ -28,13 +43,15 @@ public class DatabaseManager {
      * Open a connection to the database.
      * <p>
      *     NOTE: The connection object should be closed using the method
-     *     {@link #closeThis(Connection)}.
+     *     {@link #closeThis(Connection)}. Every statement of the connection
+     *     is timed by a {@link TimedConnection}.
      * </p>
      * @return a connection object
      * @throws SQLException if a database access error or the url is null.
      */
     public Connection openConnection() throws SQLException {
         Connection connection = null;
+        long start_nanos = System.nanoTime();
         try {
             Class.forName("org.postgresql.Driver");
             connection = DriverManager.getConnection(
@@ -42,6 +59,21 @@ public class DatabaseManager {
                     DB_USERNAME,
                     DB_PASSWORD
             );
+            long acquire_nanos = System.nanoTime() - start_nanos;
+            CONNECTION_ACQUIRE_MICROS.record(acquire_nanos / 1000);
+            ServerStats.databaseConnectionOpened();
+            // the method that opened the connection, e.g. recordAttendance.
+            String method_name = STACK_WALKER.walk(frames -> frames.skip(1).findFirst())
+                    .map(StackWalker.StackFrame::getMethodName)
+                    .orElse("unknown");
+            connection = TimedConnection.wrap(connection, method_name, acquire_nanos);
+            FlightEvents.DatabaseMethodEvent method_event = new FlightEvents.DatabaseMethodEvent();
+            method_event.begin();
+            method_event.acquireMicros = (System.nanoTime() - start_nanos) / 1000;
+            LatencyHistogram method_micros = METHOD_MICROS.computeIfAbsent(
+                    method_name, name -> MetricsRegistry.histogram("db.method." + name + "_micros")
+            );
+            method_timings.put(connection, new MethodTiming(method_name, method_micros, start_nanos, method_event));
         }
         catch (ClassNotFoundException cnfe) {
             cnfe.printStackTrace();
@@ -50,7 +82,8 @@ public class DatabaseManager {
     }
 
     /**
-     * Closes a non-null connection.
+     * Closes a non-null connection. The time since the connection was opened
+     * is recorded as the time of the method that opened it.
      * @param connection Closable connection
      */
     public void closeThis(Connection connection) {
@@ -61,6 +94,22 @@ public class DatabaseManager {
             catch (SQLException sqle) {
                 sqle.printStackTrace();
             }
+            finally {
+                ServerStats.databaseConnectionClosed();
+                MethodTiming timing = method_timings.remove(connection);
+                if (timing != null) {
+                    timing.method_micros().record((System.nanoTime() - timing.start_nanos()) / 1000);
+                    FlightEvents.DatabaseMethodEvent method_event = timing.method_event();
+                    method_event.end();
+                    if (method_event.shouldCommit()) {
+                        TimedConnection timed_connection = TimedConnection.of(connection);
+                        method_event.method = timing.method_name();
+                        method_event.rows = timed_connection.getTotalRows();
+                        method_event.outcome = timed_connection.isFailed() ? "FAIL" : "OK";
+                        method_event.commit();
+                    }
+                }
+            }
         }
     }
 
@@ -251,7 +300,13 @@ public class DatabaseManager {
     }
 
 
-    public boolean recordAttendance(TempAttendanceData attendance_data) {
+    /**
+     * Record the attendance of the user of a fingerprint, once per day.
+     * @param attendance_data the attendance to be recorded. The first name of the user is set on it.
+     * @param trace the trace of the scan, marked at the end of every database phase.
+     * @return false if the user does not exist, already attended today or the insert failed.
+     */
+    public boolean recordAttendance(TempAttendanceData attendance_data, ScanTrace trace) {
         Connection connection = null;
         PreparedStatement find_userID_stmt = null;
         PreparedStatement find_userFN_stmt = null;
@@ -262,6 +317,7 @@ public class DatabaseManager {
         boolean isSuccessful = true;
         try {
             connection = openConnection();
+            trace.mark(ScanTrace.Phase.CONNECT);
 
             // Find a users record based on the fingerprint_id.
             String find_userID_script = "SELECT user_id FROM users " +
@@ -276,8 +332,11 @@ public class DatabaseManager {
             if (users_result.next()) {
                 user_id = users_result.getInt("user_id");
             }
+            trace.mark(ScanTrace.Phase.LOOKUP);
 
-            if (user_id != 0 && !checkAttendanceNowExists(user_id, attendance_data.getDateNow())) {
+            boolean is_duplicate = user_id == 0 || checkAttendanceNowExists(user_id, attendance_data.getDateNow());
+            trace.mark(ScanTrace.Phase.DEDUP);
+            if (!is_duplicate) {
                 // Query the first_name of the attendee in the user_info table based on user_id.
                 String find_userFN_script = "SELECT first_name FROM user_info " +
                         "WHERE user_id = ?";
@@ -290,6 +349,7 @@ public class DatabaseManager {
                     attendee_first_name = user_info_result.getString("first_name");
                     attendance_data.setFirstName(attendee_first_name);
                 }
+                trace.mark(ScanTrace.Phase.NAME);
 
                 // Record the attendance.
                 String record_attendance_script = "INSERT INTO attendance (" +
@@ -306,6 +366,7 @@ public class DatabaseManager {
                 record_attendance_stmt.setString(4, attendance_data.getEventName());
                 record_attendance_stmt.setString(5, attendance_data.getEventLocation());
                 record_attendance_stmt.executeUpdate();
+                trace.mark(ScanTrace.Phase.INSERT);
             }
             else {
                 isSuccessful = false;
@@ -322,6 +383,7 @@ public class DatabaseManager {
             closeThis(users_result);
             closeThis(user_info_result);
             closeThis(connection);
+            if (isSuccessful) trace.mark(ScanTrace.Phase.COMMIT);
         }
 
         return isSuccessful;
@@ -365,11 +427,11 @@ public class DatabaseManager {
     }
 
 
-    public List<String> queryAttendanceByDate(TempExportQueryData export_data) {
+    public List<String[]> queryAttendanceByDate(TempExportQueryData export_data) {
         Connection connection = null;
         PreparedStatement stmt = null;
         ResultSet date_query_result = null;
-        List<String> data = null;
+        List<String[]> data = null;
         try {
             connection = openConnection();
 
@@ -380,16 +442,15 @@ public class DatabaseManager {
             date_query_result = stmt.executeQuery();
 
             data = new ArrayList<>();
-            data.add("Attendee Name, Date Attended, Time Attended, Event Name, Event Location");
+            data.add(Const.ATTENDANCE_EXPORT_COLUMNS);
             if (!date_query_result.next()) {
-                data.add("NO RESULTS FROM SPECIFIED DATE, 0, 0, 0, 0");
+                data.add(new String[] {"NO RESULTS FROM SPECIFIED DATE", "0", "0", "0", "0"});
             }
             else {
                 do {
-                    String row_data;
                     int user_id = date_query_result.getInt("user_id");
-                    Date date_attended = date_query_result.getDate("date_attended");
-                    Time time_attended = date_query_result.getTime("time_attended");
+                    String date_attended = date_query_result.getString("date_attended");
+                    String time_attended = date_query_result.getString("time_attended");
                     String event_name = date_query_result.getString("event_name");
                     String event_loc = date_query_result.getString("event_location");
 
@@ -411,16 +472,7 @@ public class DatabaseManager {
                     closeThis(user_query_stmt);
                     closeThis(user_query_result);
 
-                    row_data = String.format(
-                            "%s, %s, %s, %s, %s",
-                            full_name,
-                            date_attended,
-                            time_attended,
-                            event_name,
-                            event_loc
-                    );
-
-                    data.add(row_data);
+                    data.add(new String[] {full_name, date_attended, time_attended, event_name, event_loc});
                 }
                 while (date_query_result.next());
             }
@@ -437,11 +489,11 @@ public class DatabaseManager {
     }
 
 
-    public List<String> queryAttendanceByEventName(TempExportQueryData exportData) {
+    public List<String[]> queryAttendanceByEventName(TempExportQueryData exportData) {
         Connection connection = null;
         PreparedStatement stmt = null;
         ResultSet event_query_result = null;
-        List<String> data = null;
+        List<String[]> data = null;
         try {
             connection = openConnection();
 
@@ -452,16 +504,15 @@ public class DatabaseManager {
             event_query_result = stmt.executeQuery();
 
             data = new ArrayList<>();
-            data.add("Attendee Name, Date Attended, Time Attended, Event Name, Event Location");
+            data.add(Const.ATTENDANCE_EXPORT_COLUMNS);
             if (!event_query_result.next()) {
-                data.add("NO RESULTS FROM SPECIFIED EVENT, 0, 0, 0, 0");
+                data.add(new String[] {"NO RESULTS FROM SPECIFIED EVENT", "0", "0", "0", "0"});
             }
             else {
                 do {
-                    String row_data;
                     int user_id = event_query_result.getInt("user_id");
-                    Date date_attended = event_query_result.getDate("date_attended");
-                    Time time_attended = event_query_result.getTime("time_attended");
+                    String date_attended = event_query_result.getString("date_attended");
+                    String time_attended = event_query_result.getString("time_attended");
                     String event_name = event_query_result.getString("event_name");
                     String event_loc = event_query_result.getString("event_location");
 
@@ -482,16 +533,7 @@ public class DatabaseManager {
                     closeThis(user_query_stmt);
                     closeThis(user_query_result);
 
-                    row_data = String.format(
-                            "%s, %s, %s, %s, %s",
-                            full_name,
-                            date_attended,
-                            time_attended,
-                            event_name,
-                            event_loc
-                    );
-
-                    data.add(row_data);
+                    data.add(new String[] {full_name, date_attended, time_attended, event_name, event_loc});
                 }
                 while (event_query_result.next());
             }
@@ -508,11 +550,11 @@ public class DatabaseManager {
     }
 
 
-    public List<String> queryAllUsers() {
+    public List<String[]> queryAllUsers() {
         Connection connection = null;
         PreparedStatement stmt = null;
         ResultSet user_query_result = null;
-        List<String> data = null;
+        List<String[]> data = null;
         try {
             connection = openConnection();
 
@@ -521,18 +563,14 @@ public class DatabaseManager {
             user_query_result = stmt.executeQuery();
 
             data = new ArrayList<>();
-            data.add("USERS ENROLLED");
+            data.add(new String[] {"USERS ENROLLED"});
             if (!user_query_result.next()) {
-                data.add("NO ENROLLED USERS");
+                data.add(new String[] {"NO ENROLLED USERS"});
             }
             else {
                 do {
                     String full_name = user_query_result.getString("full_name");
-                    String row_data = String.format(
-                            "%s",
-                            full_name
-                    );
-                    data.add(row_data);
+                    data.add(new String[] {full_name});
                 }
                 while (user_query_result.next());
             }
@@ -549,11 +587,11 @@ public class DatabaseManager {
     }
 
 
-    public List<String> queryAllAttendanceData() {
+    public List<String[]> queryAllAttendanceData() {
         Connection connection = null;
         PreparedStatement stmt = null;
         ResultSet attendance_query_result = null;
-        List<String> data = null;
+        List<String[]> data = null;
         try {
             connection = openConnection();
 
@@ -562,17 +600,16 @@ public class DatabaseManager {
             attendance_query_result = stmt.executeQuery();
 
             data =  new ArrayList<>();
-            data.add("Attendee Name, Date Attended, Time Attended, Event Name, Event Location");
+            data.add(Const.ATTENDANCE_EXPORT_COLUMNS);
 
             if (!attendance_query_result.next()) {
-                data.add("NO ATTENDANCE DATA, 0, 0, 0, 0");
+                data.add(new String[] {"NO ATTENDANCE DATA", "0", "0", "0", "0"});
             }
             else {
                 do {
-                    String row_data;
                     int user_id = attendance_query_result.getInt("user_id");
-                    Date date_attended = attendance_query_result.getDate("date_attended");
-                    Time time_attended = attendance_query_result.getTime("time_attended");
+                    String date_attended = attendance_query_result.getString("date_attended");
+                    String time_attended = attendance_query_result.getString("time_attended");
                     String event_name = attendance_query_result.getString("event_name");
                     String event_loc = attendance_query_result.getString("event_location");
 
@@ -593,16 +630,7 @@ public class DatabaseManager {
                     closeThis(user_query_stmt);
                     closeThis(user_query_result);
 
-                    row_data = String.format(
-                            "%s, %s, %s, %s, %s",
-                            full_name,
-                            date_attended,
-                            time_attended,
-                            event_name,
-                            event_loc
-                    );
-
-                    data.add(row_data);
+                    data.add(new String[] {full_name, date_attended, time_attended, event_name, event_loc});
                 }
                 while (attendance_query_result.next());
             }
@@ -617,6 +645,291 @@ public class DatabaseManager {
     }
 
 
+    /**
+     * Get the data version of the attendance recorded on the queried date.
+     * The version changes whenever a row of that date is inserted or deleted.
+     * @param export_data the export data holding the date.
+     * @return the version, or null if an error occurred.
+     * @see utility.ExportCache
+     */
+    public String queryAttendanceVersionByDate(TempExportQueryData export_data) {
+        String version_script = "SELECT COUNT(*), COALESCE(MAX(attendance_id), 0), COALESCE(SUM(attendance_id), 0) " +
+                "FROM attendance WHERE date_attended = ?";
+        Connection connection = null;
+        PreparedStatement stmt = null;
+        try {
+            connection = openConnection();
+            stmt = connection.prepareStatement(version_script);
+            stmt.setDate(1, export_data.getDateQuery());
+            return queryVersion(stmt);
+        }
+        catch (SQLException sqle) {
+            sqle.printStackTrace();
+            return null;
+        }
+        finally {
+            closeThis(stmt);
+            closeThis(connection);
+        }
+    }
+
+
+    /**
+     * Get the data version of the attendance recorded for the queried event.
+     * The version changes whenever a row of that event is inserted or deleted.
+     * @param export_data the export data holding the event name.
+     * @return the version, or null if an error occurred.
+     * @see utility.ExportCache
+     */
+    public String queryAttendanceVersionByEventName(TempExportQueryData export_data) {
+        String version_script = "SELECT COUNT(*), COALESCE(MAX(attendance_id), 0), COALESCE(SUM(attendance_id), 0) " +
+                "FROM attendance WHERE event_name = ?";
+        Connection connection = null;
+        PreparedStatement stmt = null;
+        try {
+            connection = openConnection();
+            stmt = connection.prepareStatement(version_script);
+            stmt.setString(1, export_data.getEventNameQuery());
+            return queryVersion(stmt);
+        }
+        catch (SQLException sqle) {
+            sqle.printStackTrace();
+            return null;
+        }
+        finally {
+            closeThis(stmt);
+            closeThis(connection);
+        }
+    }
+
+
+    /**
+     * Run a version query of the form SELECT count, max id, sum of ids.
+     * @param stmt the prepared version query.
+     * @return the version as "count-max-sum".
+     * @throws SQLException if a database access error occurs.
+     */
+    private String queryVersion(PreparedStatement stmt) throws SQLException {
+        ResultSet version_result = null;
+        try {
+            version_result = stmt.executeQuery();
+            version_result.next(); // an aggregate query always returns one row.
+            return version_result.getLong(1) + "-" + version_result.getLong(2) + "-" + version_result.getLong(3);
+        }
+        finally {
+            closeThis(version_result);
+        }
+    }
+
+
+    /**
+     * Get the lowest and highest attendance_id in the attendance table.
+     * Used to split the table into key ranges for a parallel export.
+     * @return an array of {min, max}, an empty array if the table has no rows,
+     * or null if an error occurred.
+     * @see ParallelExporter
+     */
+    public int[] queryAttendanceIdBounds() {
+        Connection connection = null;
+        PreparedStatement stmt = null;
+        ResultSet bounds_result = null;
+        int[] bounds = null;
+        try {
+            connection = openConnection();
+
+            String bounds_script = "SELECT MIN(attendance_id) AS min_id, " +
+                    "MAX(attendance_id) AS max_id " +
+                    "FROM attendance";
+            stmt = connection.prepareStatement(bounds_script);
+            bounds_result = stmt.executeQuery();
+
+            bounds = new int[0];
+            if (bounds_result.next()) {
+                int min_id = bounds_result.getInt("min_id");
+                if (!bounds_result.wasNull()) {
+                    bounds = new int[] {min_id, bounds_result.getInt("max_id")};
+                }
+            }
+        }
+        catch (SQLException sqle) {
+            sqle.printStackTrace();
+        }
+        finally {
+            closeThis(stmt);
+            closeThis(bounds_result);
+            closeThis(connection);
+        }
+        return bounds;
+    }
+
+
+    /**
+     * Query the attendance rows whose attendance_id is within [from_id, to_id).
+     * The attendee name is joined in the same query so each range only needs
+     * one round trip. The returned rows have no header.
+     * @param from_id the first attendance_id of the range (inclusive).
+     * @param to_id the end of the range (exclusive).
+     * @return the rows ordered by attendance_id, or null if an error occurred.
+     */
+    public List<String[]> queryAttendanceIdRange(int from_id, int to_id) {
+        Connection connection = null;
+        PreparedStatement stmt = null;
+        ResultSet range_result = null;
+        List<String[]> data = null;
+        try {
+            connection = openConnection();
+
+            String find_range_script = "SELECT COALESCE(u.full_name, 'NO USER FOUND') AS full_name, " +
+                    "a.date_attended, a.time_attended, a.event_name, a.event_location " +
+                    "FROM attendance a LEFT JOIN users u ON u.user_id = a.user_id " +
+                    "WHERE a.attendance_id >= ? AND a.attendance_id < ? " +
+                    "ORDER BY a.attendance_id";
+            stmt = connection.prepareStatement(find_range_script);
+            stmt.setInt(1, from_id);
+            stmt.setInt(2, to_id);
+            range_result = stmt.executeQuery();
+
+            data = readJoinedAttendanceRows(range_result);
+        }
+        catch (SQLException sqle) {
+            sqle.printStackTrace();
+            data = null;
+        }
+        finally {
+            closeThis(stmt);
+            closeThis(range_result);
+            closeThis(connection);
+        }
+        return data;
+    }
+
+
+    /**
+     * Query the attendance rows recorded between two dates.
+     * The returned rows have no header.
+     * @param from_date the first date of the range (inclusive).
+     * @param to_date the last date of the range (inclusive).
+     * @return the rows ordered by date, time and attendance_id, or null if an error occurred.
+     */
+    public List<String[]> queryAttendanceDateRange(Date from_date, Date to_date) {
+        Connection connection = null;
+        PreparedStatement stmt = null;
+        ResultSet range_result = null;
+        List<String[]> data = null;
+        try {
+            connection = openConnection();
+
+            String find_range_script = "SELECT COALESCE(u.full_name, 'NO USER FOUND') AS full_name, " +
+                    "a.date_attended, a.time_attended, a.event_name, a.event_location " +
+                    "FROM attendance a LEFT JOIN users u ON u.user_id = a.user_id " +
+                    "WHERE a.date_attended >= ? AND a.date_attended <= ? " +
+                    "ORDER BY a.date_attended, a.time_attended, a.attendance_id";
+            stmt = connection.prepareStatement(find_range_script);
+            stmt.setDate(1, from_date);
+            stmt.setDate(2, to_date);
+            range_result = stmt.executeQuery();
+
+            data = readJoinedAttendanceRows(range_result);
+        }
+        catch (SQLException sqle) {
+            sqle.printStackTrace();
+            data = null;
+        }
+        finally {
+            closeThis(stmt);
+            closeThis(range_result);
+            closeThis(connection);
+        }
+        return data;
+    }
+
+
+    /**
+     * Query the attendance rows recorded after the watermark of an incremental export.
+     * The highest attendance_id that was read is stored back into the export data.
+     * <p>
+     *     An attendance_id is taken when a row is inserted, not when it is committed,
+     *     so a row with a lower id can still become visible after a higher one. The
+     *     rows stop before the first row recorded in the last
+     *     {@link Const#EXPORT_SETTLE_SECONDS} seconds: every id below it has settled
+     *     and the watermark can not skip a row that commits late.
+     * </p>
+     * @param export_data the export data holding the watermark.
+     * @return the header followed by the new rows ordered by attendance_id,
+     * or null if an error occurred.
+     * @see TempExportQueryData#buildSinceAttendanceId(int)
+     */
+    public List<String[]> queryAttendanceSince(TempExportQueryData export_data) {
+        Connection connection = null;
+        PreparedStatement stmt = null;
+        ResultSet since_result = null;
+        List<String[]> data = null;
+        try {
+            connection = openConnection();
+
+            String find_since_script = "SELECT a.attendance_id, " +
+                    "COALESCE(u.full_name, 'NO USER FOUND') AS full_name, " +
+                    "a.date_attended, a.time_attended, a.event_name, a.event_location " +
+                    "FROM attendance a LEFT JOIN users u ON u.user_id = a.user_id " +
+                    "WHERE a.attendance_id > ? AND a.attendance_id < COALESCE((" +
+                    "SELECT MIN(r.attendance_id) FROM attendance r " +
+                    "WHERE r.attendance_id > ? AND r.date_attended + r.time_attended > ?), 2147483647) " +
+                    "ORDER BY a.attendance_id";
+            stmt = connection.prepareStatement(find_since_script);
+            stmt.setInt(1, export_data.getSinceAttendanceIdQuery());
+            stmt.setInt(2, export_data.getSinceAttendanceIdQuery());
+            stmt.setTimestamp(3, Timestamp.valueOf(LocalDateTime.now().minusSeconds(Const.EXPORT_SETTLE_SECONDS)));
+            since_result = stmt.executeQuery();
+
+            data = new ArrayList<>();
+            data.add(Const.ATTENDANCE_EXPORT_COLUMNS);
+            int last_attendance_id = export_data.getSinceAttendanceIdQuery();
+            while (since_result.next()) {
+                last_attendance_id = since_result.getInt("attendance_id");
+                data.add(new String[] {
+                        since_result.getString("full_name"),
+                        since_result.getString("date_attended"),
+                        since_result.getString("time_attended"),
+                        since_result.getString("event_name"),
+                        since_result.getString("event_location")
+                });
+            }
+            export_data.setLastAttendanceId(last_attendance_id);
+        }
+        catch (SQLException sqle) {
+            sqle.printStackTrace();
+            data = null;
+        }
+        finally {
+            closeThis(stmt);
+            closeThis(since_result);
+            closeThis(connection);
+        }
+        return data;
+    }
+
+
+    /**
+     * Read every row of an attendance query that already joined the full_name column.
+     * @param result the result set to be read.
+     * @return the rows of fields.
+     * @throws SQLException if a database access error occurs.
+     */
+    private List<String[]> readJoinedAttendanceRows(ResultSet result) throws SQLException {
+        List<String[]> data = new ArrayList<>();
+        while (result.next()) {
+            data.add(new String[] {
+                    result.getString("full_name"),
+                    result.getString("date_attended"),
+                    result.getString("time_attended"),
+                    result.getString("event_name"),
+                    result.getString("event_location")
+            });
+        }
+        return data;
+    }
+
+
     public boolean checkFingerIDExists(int fingerprint_id, String client_id) {
         boolean idExists = false;
         Connection connection = null;
@@ -733,4 +1046,45 @@ public class DatabaseManager {
         }
         return tExists;
     }
+
+
+    /**
+     * Open one connection and run a trivial query so the first real query does
+     * not pay for loading the driver classes, the connection handshake and the
+     * catalog lookups. Meant to run in the background during startup.
+     * <p>
+     *     Connections are not pooled, so only the class loading and the caches
+     *     of the driver and the database carry over to later connections.
+     * </p>
+     * @return true if the database could be reached.
+     */
+    public boolean warmUp() {
+        Connection connection = null;
+        Statement warm_up_stmt = null;
+        ResultSet result = null;
+        try {
+            connection = openConnection();
+            warm_up_stmt = connection.createStatement();
+            result = warm_up_stmt.executeQuery("SELECT 1");
+            result.next();
+            closeThis(result);
+            result = connection.getMetaData().getTables(null, null, "attendance", null);
+            return true;
+        }
+        catch (SQLException sqle) {
+            return false; // the database may just be offline, the first real query reports it.
+        }
+        finally {
+            closeThis(result);
+            closeThis(warm_up_stmt);
+            closeThis(connection);
+        }
+    }
+
+
+    /**
+     * When and by which method a connection was opened, and its flight recorder event.
+     */
+    private record MethodTiming(String method_name, LatencyHistogram method_micros, long start_nanos,
+                                FlightEvents.DatabaseMethodEvent method_event) {}
 }
@@ -0,0 +1,125 @@
+package core;
+
+import jdk.jfr.*;
+
+/**
+ * The Java Flight Recorder events of the server. An event costs next to
+ * nothing while no recording is running: it is only filled in and written
+ * when {@code shouldCommit()} is true.
+ * @see FlightRecording for the jfr command.
+ */
+class FlightEvents {
+
+    private FlightEvents() {}
+
+
+    @Name("attendance.Scan")
+    @Label("Scan")
+    @Category({"Attendance Server", "Client"})
+    @Description("A scanFinger message, from the request of the client to the reply of the server.")
+    @StackTrace(false)
+    static class ScanEvent extends Event {
+        @Label("Client Name")
+        String clientName;
+
+        @Label("Fingerprint ID")
+        String fingerprintId;
+
+        @Label("Outcome")
+        @Description("OK if the attendance was recorded, else FAIL.")
+        String outcome;
+    }
+
+
+    @Name("attendance.Enroll")
+    @Label("Enroll")
+    @Category({"Attendance Server", "Client"})
+    @Description("An enrollFinger message, from the enrollee data of the client to the reply of the server.")
+    @StackTrace(false)
+    static class EnrollEvent extends Event {
+        @Label("Client Name")
+        String clientName;
+
+        @Label("Fingerprint ID")
+        String fingerprintId;
+
+        @Label("Outcome")
+        @Description("OK if the enrollee was saved, else FAIL.")
+        String outcome;
+    }
+
+
+    @Name("attendance.DatabaseMethod")
+    @Label("Database Method")
+    @Category({"Attendance Server", "Database"})
+    @Description("A DatabaseManager method, from opening its connection to closing it.")
+    @StackTrace(false)
+    static class DatabaseMethodEvent extends Event {
+        @Label("Method")
+        String method;
+
+        @Label("Connection Acquire Time")
+        @Timespan(Timespan.MICROSECONDS)
+        long acquireMicros;
+
+        @Label("Rows")
+        @Description("The rows returned or updated by all the statements of the method.")
+        long rows;
+
+        @Label("Outcome")
+        @Description("OK, or FAIL if a statement threw an SQLException.")
+        String outcome;
+    }
+
+
+    @Name("attendance.Export")
+    @Label("Export")
+    @Category({"Attendance Server", "Export"})
+    @Description("An export file written or copied from the export cache.")
+    @StackTrace(false)
+    static class ExportEvent extends Event {
+        @Label("File Name")
+        String fileName;
+
+        @Label("Format")
+        String format;
+
+        @Label("Rows")
+        @Description("The rows written, without the header, or -1 for a cached export.")
+        long rows;
+
+        @Label("Outcome")
+        @Description("WRITTEN, CACHED or FAILED.")
+        String outcome;
+    }
+
+
+    @Name("attendance.ClientConnect")
+    @Label("Client Connect")
+    @Category({"Attendance Server", "Client"})
+    @StackTrace(false)
+    static class ClientConnectEvent extends Event {
+        @Label("Client Name")
+        String clientName;
+
+        @Label("Address")
+        String address;
+    }
+
+
+    @Name("attendance.ClientDisconnect")
+    @Label("Client Disconnect")
+    @Category({"Attendance Server", "Client"})
+    @Description("A client disconnected. The duration is the time it was connected.")
+    @StackTrace(false)
+    static class ClientDisconnectEvent extends Event {
+        @Label("Client Name")
+        String clientName;
+
+        @Label("Client ID")
+        String clientId;
+
+        @Label("Address")
+        String address;
+    }
+}
@@ -0,0 +1,107 @@
+package core;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Event;
+import jdk.jfr.Recording;
+import utility.Const;
+import utility.LogHelper;
+import utility.LogTypes;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * The FlightRecording runs one Java Flight Recorder recording for the jfr
+ * command, with the JDK default settings and every {@link FlightEvents} event.
+ * Dumps are written to the directory the app runs in.
+ * <p>
+ *     The recording keeps at most {@link Const#FLIGHT_RECORDING_MAX_BYTES} and
+ *     {@link Const#FLIGHT_RECORDING_MAX_AGE_MINUTES} of data on disk, so a
+ *     recording left running does not fill the disk.
+ * </p>
+ */
+public class FlightRecording {
+    private static final DateTimeFormatter DUMP_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd_HHmmss");
+    private static Recording recording;
+
+    private FlightRecording() {}
+
+
+    /**
+     * Start a recording if none is running.
+     * @param app the app to log to.
+     */
+    public static synchronized void start(AppContext app) {
+        if (recording != null) {
+            app.sendToConsole(LogHelper.log("A recording is already running.", LogTypes.INVALID));
+            return;
+        }
+        try {
+            recording = new Recording(Configuration.getConfiguration("default"));
+        }
+        catch (IOException | ParseException e) {
+            e.printStackTrace();
+            recording = new Recording();
+        }
+        recording.setName("attendance-server");
+        recording.setToDisk(true);
+        recording.setMaxSize(Const.FLIGHT_RECORDING_MAX_BYTES);
+        recording.setMaxAge(Duration.ofMinutes(Const.FLIGHT_RECORDING_MAX_AGE_MINUTES));
+        for (Class<?> event_class : FlightEvents.class.getDeclaredClasses()) {
+            recording.enable(event_class.asSubclass(Event.class));
+        }
+        recording.start();
+        app.sendToConsole(LogHelper.log(String.format(
+                "Flight recording started, keeping the last %d minutes up to %d MB.",
+                Const.FLIGHT_RECORDING_MAX_AGE_MINUTES, Const.FLIGHT_RECORDING_MAX_BYTES / (1024 * 1024)
+        ), LogTypes.INFO));
+    }
+
+
+    /**
+     * Write what was recorded so far to a new file and keep recording.
+     * @param app the app to log to.
+     */
+    public static synchronized void dump(AppContext app) {
+        if (recording == null) {
+            app.sendToConsole(LogHelper.log("No recording is running. Use jfr start.", LogTypes.INVALID));
+            return;
+        }
+        writeDump(app);
+    }
+
+
+    /**
+     * Write the recording to a new file and stop it.
+     * @param app the app to log to.
+     */
+    public static synchronized void stop(AppContext app) {
+        if (recording == null) {
+            app.sendToConsole(LogHelper.log("No recording is running.", LogTypes.INVALID));
+            return;
+        }
+        writeDump(app);
+        recording.close();
+        recording = null;
+        app.sendToConsole(LogHelper.log("Flight recording stopped.", LogTypes.INFO));
+    }
+
+
+    private static void writeDump(AppContext app) {
+        Path dump_path = Path.of(
+                System.getProperty("user.dir"),
+                "attendance-server_" + LocalDateTime.now().format(DUMP_FORMAT) + ".jfr"
+        );
+        try {
+            recording.dump(dump_path);
+            app.sendToConsole(LogHelper.log("Flight recording written to " + dump_path, LogTypes.INFO));
+        }
+        catch (IOException ioe) {
+            app.sendToConsole(LogHelper.log("Cannot write the flight recording to " + dump_path, LogTypes.ERROR));
+        }
+    }
+}
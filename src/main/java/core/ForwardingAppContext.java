@@ -0,0 +1,82 @@
+package core;
+
+import utility.LogIndex;
+import utility.LogRecord;
+import utility.TempEnrollmentData;
+
+/**
+ * The ForwardingAppContext passes every call to the app it wraps. Subclasses
+ * override the calls they need to observe or change, e.g. to capture the
+ * console output of one command.
+ */
+class ForwardingAppContext implements AppContext {
+    private final AppContext app;
+
+
+    /**
+     * @param app the app every call is passed to.
+     */
+    ForwardingAppContext(AppContext app) {
+        this.app = app;
+    }
+
+
+    @Override
+    public void sendToConsole(LogRecord record) {
+        app.sendToConsole(record);
+    }
+
+
+    @Override
+    public void clientConnected(String client_name) {
+        app.clientConnected(client_name);
+    }
+
+
+    @Override
+    public void clientDisconnected(String client_name) {
+        app.clientDisconnected(client_name);
+    }
+
+
+    @Override
+    public ServerManager getServerManager() {
+        return app.getServerManager();
+    }
+
+
+    @Override
+    public EventData getEventData() {
+        return app.getEventData();
+    }
+
+
+    @Override
+    public LogIndex getLogIndex() {
+        return app.getLogIndex();
+    }
+
+
+    @Override
+    public void startServer() {
+        app.startServer();
+    }
+
+
+    @Override
+    public void stopServer() {
+        app.stopServer();
+    }
+
+
+    @Override
+    public TempEnrollmentData promptEnrollment(String client_id) {
+        return app.promptEnrollment(client_id);
+    }
+
+
+    @Override
+    public void runInBackground(String name, Runnable task) {
+        app.runInBackground(name, task);
+    }
+}
@@ -0,0 +1,394 @@
+package core;
+
+import io.github.cdimascio.dotenv.Dotenv;
+import utility.*;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The HeadlessServer runs the server without JavaFX, e.g. as a service.
+ * Commands are read from the standard input and the console is written to
+ * the standard output and the log file. The server is started right away.
+ * <p>
+ *     The host and port are taken from the --host= and --port= arguments, then
+ *     from the SERVER_HOST and SERVER_PORT environment or .env variables, and
+ *     default to {@link Const#DEFAULT_HOST}:{@link Const#DEFAULT_PORT}. The
+ *     admin http server is started when --admin-port= or ADMIN_PORT is set.
+ * </p>
+ * <p>
+ *     The app keeps running when the standard input is closed, as it is for a
+ *     service, until the server is stopped. Typing exit stops the server and
+ *     the app.
+ * </p>
+ */
+public final class HeadlessServer implements AppContext {
+    private static final LatencyHistogram CONSOLE_WRITE_MICROS = MetricsRegistry.histogram("console.write_micros");
+    private static final LongAdder CONSOLE_DROPPED = MetricsRegistry.counter("console.dropped");
+
+    private final String host;
+    private final int port;
+    private final int admin_port;
+    private final String admin_token;
+    private final String feed_host;
+    private final int feed_port;
+    private final String feed_token;
+    private final LogRingBuffer<LogRecord> console_buffer = new LogRingBuffer<>(Const.CONSOLE_BUFFER_CAPACITY);
+    private final LogIndex log_index = new LogIndex(Const.LOG_INDEX_CAPACITY);
+    private final EventData event_data = new EventData();
+    private final FileLogSink log_sink;
+    private final Thread console_writer;
+    // held by the console writer while it prints and by an enrollment while it prompts.
+    private final ReentrantLock stdout_lock = new ReentrantLock();
+    private final BufferedReader stdin = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+    private volatile boolean is_running;
+    private volatile ServerManager server_manager;
+    private volatile Thread server_thread;
+
+
+    /**
+     * @param host the host the server is bound to.
+     * @param port the port the server is bound to.
+     * @param admin_port the port of the admin http server, or 0 to not start it.
+     * @param admin_token the token of the admin http server, or null to make a random one.
+     * @param feed_host the host the attendance feed is bound to.
+     * @param feed_port the port of the attendance feed, or 0 to not start it.
+     * @param feed_token the token of the attendance feed, or null to make a random one.
+     */
+    public HeadlessServer(String host, int port, int admin_port, String admin_token,
+                          String feed_host, int feed_port, String feed_token) {
+        this.host = host;
+        this.port = port;
+        this.admin_port = admin_port;
+        this.admin_token = admin_token;
+        this.feed_host = feed_host;
+        this.feed_port = feed_port;
+        this.feed_token = feed_token;
+        event_data.setCurrentEventName("Unspecified");
+        event_data.setCurrentEventLocation("Unspecified");
+        log_sink = new FileLogSink(
+                Path.of(System.getProperty("user.dir"), Const.LOG_DIRECTORY),
+                Const.LOG_BASE_NAME,
+                Const.LOG_MAX_BYTES,
+                Const.LOG_MAX_AGE_MILLIS,
+                Const.LOG_GZIP_ROTATED
+        );
+        console_writer = new Thread(this::writeConsoleLoop, "headless-console");
+        console_writer.setDaemon(true);
+    }
+
+
+    public static void main(String[] args) {
+        Dotenv dotenv = Dotenv.configure().ignoreIfMissing().load(); // also reads the environment variables.
+        String host = dotenv.get("SERVER_HOST", Const.DEFAULT_HOST);
+        String port_unparsed = dotenv.get("SERVER_PORT", Integer.toString(Const.DEFAULT_PORT));
+        String admin_port_unparsed = dotenv.get("ADMIN_PORT", "0");
+        String feed_host = dotenv.get("FEED_HOST", Const.ATTENDANCE_FEED_HOST);
+        String feed_port_unparsed = dotenv.get("FEED_PORT", "0");
+        for (String arg : args) {
+            if (arg.startsWith("--host=")) host = arg.substring("--host=".length());
+            else if (arg.startsWith("--port=")) port_unparsed = arg.substring("--port=".length());
+            else if (arg.startsWith("--admin-port=")) admin_port_unparsed = arg.substring("--admin-port=".length());
+            else if (arg.startsWith("--feed-host=")) feed_host = arg.substring("--feed-host=".length());
+            else if (arg.startsWith("--feed-port=")) feed_port_unparsed = arg.substring("--feed-port=".length());
+        }
+
+        int port;
+        int admin_port;
+        int feed_port;
+        try {
+            port = Integer.parseInt(port_unparsed);
+            admin_port = Integer.parseInt(admin_port_unparsed);
+            feed_port = Integer.parseInt(feed_port_unparsed);
+        }
+        catch (NumberFormatException nfe) {
+            System.err.println("Invalid port: " + port_unparsed + ", admin port: " + admin_port_unparsed
+                    + ", feed port: " + feed_port_unparsed);
+            System.exit(1);
+            return;
+        }
+        new HeadlessServer(
+                host, port, admin_port, dotenv.get("ADMIN_TOKEN"), feed_host, feed_port, dotenv.get("FEED_TOKEN")
+        ).run();
+    }
+
+
+    /**
+     * Start the server and execute the commands from the standard input.
+     */
+    public void run() {
+        is_running = true;
+        log_sink.setErrorListener(this::sendToConsole); // e.g. a full disk, shown in the console.
+        log_sink.start();
+        console_writer.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(this::shutdown, "headless-shutdown"));
+
+        StartupTimer.mark("init");
+        sendToConsole(LogHelper.log(
+                "Wireless-Fingerprint-Based-Attendance-Logger-Server by NameGroup (headless).", LogTypes.CONSOLE
+        ));
+        startServer();
+        if (admin_port > 0) AdminHttpServer.start(this, admin_port, admin_token);
+        if (feed_port > 0) AttendanceFeedServer.start(this, feed_host, feed_port, feed_token);
+        StartupTimer.mark("server");
+        sendToConsole(LogHelper.log(StartupTimer.report(), LogTypes.INFO));
+
+        StartupWarmUp.start(this);
+        QueryStats.logSlowQueriesTo(this);
+        MetricsRegistry.registerMBean();
+
+        try {
+            String input;
+            while ((input = stdin.readLine()) != null) {
+                if (input.strip().equals("exit")) {
+                    stopServer();
+                    break;
+                }
+                sendToConsole(LogHelper.log(input, LogTypes.CONSOLE));
+                CommandExecutor.execute(this, input.strip());
+            }
+            // the standard input is closed when running as a service, keep serving until the server stops.
+            Thread running_server = server_thread;
+            if (running_server != null) running_server.join();
+        }
+        catch (IOException ioe) {
+            ioe.printStackTrace();
+        }
+        catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+
+    /**
+     * Stop the server if it is still running and write the last console lines.
+     * @implNote Runs as a shutdown hook, so it also runs when the service is stopped.
+     */
+    private void shutdown() {
+        AdminHttpServer.stop();
+        AttendanceFeedServer.stop();
+        ServerManager running_server = server_manager;
+        if (running_server != null && !running_server.isClosed()) {
+            stopServer();
+        }
+        Thread server = server_thread;
+        try {
+            if (server != null) server.join(TimeUnit.SECONDS.toMillis(5));
+        }
+        catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        }
+        is_running = false;
+        LockSupport.unpark(console_writer);
+        try {
+            console_writer.join(TimeUnit.SECONDS.toMillis(5));
+        }
+        catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        }
+        log_sink.close();
+    }
+
+
+    /**
+     * The console writer mainloop. Writes the queued records to the standard
+     * output in batches, with one flush per batch, and adds them to the log index.
+     */
+    private void writeConsoleLoop() {
+        List<LogRecord> batch = new ArrayList<>(Const.CONSOLE_MAX_LINES_PER_FRAME);
+        PrintStream stdout = System.out;
+        while (true) {
+            long start_nanos = System.nanoTime();
+            batch.clear();
+            console_buffer.drainTo(batch, Const.CONSOLE_MAX_LINES_PER_FRAME);
+            long dropped = console_buffer.takeDropped();
+            CONSOLE_DROPPED.add(dropped);
+            LogRecord dropped_record = dropped > 0 ? LogHelper.log(
+                    dropped + " console messages were dropped because the console could not keep up.",
+                    LogTypes.WARNING
+            ) : null;
+            if (dropped_record != null) batch.add(dropped_record); // null if warnings are turned off.
+
+            if (batch.isEmpty()) {
+                if (!is_running) break; // every queued record is written.
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(Const.LOG_SINK_IDLE_MILLIS));
+                continue;
+            }
+            StringBuilder lines = new StringBuilder();
+            for (LogRecord record : batch) {
+                lines.append(LogHelper.format(record)).append(System.lineSeparator());
+            }
+            stdout_lock.lock();
+            try {
+                stdout.print(lines);
+                stdout.flush();
+            }
+            finally {
+                stdout_lock.unlock();
+            }
+            log_index.addAll(batch);
+            CONSOLE_WRITE_MICROS.record((System.nanoTime() - start_nanos) / 1000);
+        }
+    }
+
+
+    @Override
+    public void sendToConsole(LogRecord record) {
+        if (record != null) {
+            console_buffer.offer(record);
+            log_sink.publish(record);
+        }
+    }
+
+
+    @Override
+    public void clientConnected(String client_name) {
+        // there is no clients list to update, the server already logs the connection.
+    }
+
+
+    @Override
+    public void clientDisconnected(String client_name) {
+        // there is no clients list to update, the server already logs the disconnection.
+    }
+
+
+    @Override
+    public ServerManager getServerManager() {
+        return server_manager;
+    }
+
+
+    @Override
+    public EventData getEventData() {
+        return event_data;
+    }
+
+
+    @Override
+    public LogIndex getLogIndex() {
+        return log_index;
+    }
+
+
+    @Override
+    public void startServer() {
+        ServerManager running_server = server_manager;
+        if (running_server != null && !running_server.isClosed()) {
+            sendToConsole(LogHelper.log("Server is already running.", LogTypes.INVALID));
+            return;
+        }
+        try {
+            server_manager = new ServerManager(this, host, port);
+            server_thread = new Thread(server_manager, "server");
+            server_thread.start();
+        }
+        catch (IOException ioe) {
+            sendToConsole(LogHelper.log(
+                    "Error opening socket. The server may already be running in another process.", LogTypes.ERROR
+            ));
+        }
+        catch (IllegalArgumentException iae) {
+            sendToConsole(LogHelper.log(
+                    "Invalid hostname or port. The hostname is either null or the port is out of range.",
+                    LogTypes.ERROR
+            ));
+        }
+    }
+
+
+    @Override
+    public void stopServer() {
+        try {
+            if (server_manager == null) {
+                sendToConsole(LogHelper.log("Server is null. Start the server first.", LogTypes.ERROR));
+                throw new IOException();
+            }
+            server_manager.stopServer();
+        }
+        catch (IOException ioe) {
+            sendToConsole(LogHelper.log("Error when closing server.", LogTypes.ERROR));
+        }
+    }
+
+
+    /**
+     * Run the task on the thread reading the commands, so no command is read
+     * from the standard input while a script may still prompt for enrollment data.
+     */
+    @Override
+    public void runInBackground(String name, Runnable task) {
+        task.run();
+    }
+
+
+    /**
+     * Ask for the enrollment data on the standard input, one field at a time.
+     * Invalid fields are asked again; an empty first name cancels the enrollment.
+     * The console writer is paused until the enrollment ends, so log lines do not
+     * break into the prompts; they are queued and printed after it.
+     * @implNote Synchronized, so the prompts of a script on several clients do not mix.
+     */
+    @Override
+    public synchronized TempEnrollmentData promptEnrollment(String client_id) {
+        DatabaseManager database_manager = new DatabaseManager();
+        stdout_lock.lock();
+        try {
+            String first_name = prompt("First Name (empty to cancel)", ".*");
+            if (first_name == null || first_name.isBlank()) return null;
+            String middle_name = prompt("Middle Name", ".*");
+            String last_name = prompt("Last Name", ".*");
+            String age = prompt("Age", Const.AGE_PATTERN);
+            String gender = prompt("Gender (" + String.join("/", Const.GENDERS) + ")",
+                    "^(" + String.join("|", Const.GENDERS) + ")$");
+            String phone_number = prompt("Phone Number", Const.PHONE_NUMBER_PATTERN);
+            String address = prompt("Address", ".*");
+            String fingerprint_id = null;
+            while (fingerprint_id == null) {
+                fingerprint_id = prompt("Fingerprint ID", Const.FINGERPRINT_ID_PATTERN);
+                if (fingerprint_id == null) return null;
+                if (database_manager.checkFingerIDExists(Integer.parseInt(fingerprint_id), client_id)) {
+                    System.out.println("Fingerprint ID is already used on this client.");
+                    fingerprint_id = null;
+                }
+            }
+            if (middle_name == null || last_name == null || age == null || gender == null ||
+                    phone_number == null || address == null) return null;
+
+            TempEnrollmentData enrollee_data = new TempEnrollmentData();
+            enrollee_data.buildEnrolleeName(first_name, middle_name, last_name);
+            enrollee_data.buildEnrolleeInfo(age, gender, phone_number, address);
+            enrollee_data.setFingerprintId(fingerprint_id, client_id);
+            return enrollee_data;
+        }
+        catch (IOException ioe) {
+            ioe.printStackTrace();
+            return null;
+        }
+        finally {
+            stdout_lock.unlock();
+        }
+    }
+
+
+    /**
+     * Read one field from the standard input until it matches a pattern.
+     * @return the field, or null if the standard input is closed.
+     */
+    private String prompt(String field, String pattern) throws IOException {
+        while (true) {
+            System.out.print(field + ": ");
+            System.out.flush();
+            String value = stdin.readLine();
+            if (value == null || value.strip().matches(pattern)) return value == null ? null : value.strip();
+            System.out.println("Invalid " + field + ".");
+        }
+    }
+}
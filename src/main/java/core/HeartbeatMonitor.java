@@ -0,0 +1,68 @@
+package core;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The HeartbeatMonitor aggregates the round trip times of the client heartbeats
+ * so the server can log one summary line per interval instead of one line per
+ * beat. Beats are recorded from every client thread without locking.
+ */
+public class HeartbeatMonitor {
+
+    /**
+     * How the heartbeats are written to the console.
+     */
+    public enum Mode {
+        EACH,       // one line per beat.
+        SUMMARY,    // one line per interval with the min/avg/max round trip time.
+        OFF
+    }
+
+    private static volatile Mode mode = Mode.SUMMARY;
+
+    private final LongAdder beats = new LongAdder();
+    private final LongAdder total_rtt = new LongAdder();
+    private final AtomicLong min_rtt = new AtomicLong(Long.MAX_VALUE);
+    private final AtomicLong max_rtt = new AtomicLong(Long.MIN_VALUE);
+
+
+    public static Mode getMode() {
+        return mode;
+    }
+
+
+    public static void setMode(Mode new_mode) {
+        mode = new_mode;
+    }
+
+
+    /**
+     * Record the round trip time of one heartbeat.
+     * @param rtt the round trip time in milliseconds.
+     */
+    public void record(long rtt) {
+        beats.increment();
+        total_rtt.add(rtt);
+        min_rtt.accumulateAndGet(rtt, Math::min);
+        max_rtt.accumulateAndGet(rtt, Math::max);
+    }
+
+
+    /**
+     * Build the summary of the heartbeats recorded since the last call and reset them.
+     * @param connected_clients the number of clients currently connected.
+     * @return the summary, or null if there were no heartbeats.
+     */
+    public String takeSummary(int connected_clients) {
+        long beat_count = beats.sumThenReset();
+        long rtt_sum = total_rtt.sumThenReset();
+        long min = min_rtt.getAndSet(Long.MAX_VALUE);
+        long max = max_rtt.getAndSet(Long.MIN_VALUE);
+        if (beat_count == 0) return null;
+
+        return "heartbeats=" + beat_count +
+                "    clients=" + connected_clients +
+                "    rt min/avg/max=" + min + "/" + (rtt_sum / beat_count) + "/" + max + "ms";
+    }
+}
@@ -0,0 +1,121 @@
+package core;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * The ParallelExporter splits an attendance export into key ranges and reads
+ * each range concurrently. Every range opens its own database connection so
+ * the ranges do not wait on each other.
+ * <p>
+ *     The parts are returned in order. They can either be merged into one
+ *     export with {@link #merge(String[], List)} or written as numbered part files.
+ * </p>
+ */
+public class ParallelExporter {
+
+    private ParallelExporter() {}
+
+
+    /**
+     * Read all attendance data by splitting the table into attendance_id ranges.
+     * @param workers the number of ranges to be read concurrently.
+     * @return the parts in attendance_id order, or null if any range failed.
+     */
+    public static List<List<String[]>> queryAllAttendance(int workers) {
+        DatabaseManager database_manager = new DatabaseManager();
+        int[] bounds = database_manager.queryAttendanceIdBounds();
+        if (bounds == null) return null;
+        if (bounds.length == 0) return new ArrayList<>(); // no attendance data.
+
+        List<Callable<List<String[]>>> ranges = new ArrayList<>();
+        long min_id = bounds[0];
+        long span = (long) bounds[1] - min_id + 1;
+        long chunk = (span + workers - 1) / workers;
+        for (long from_id = min_id; from_id <= bounds[1]; from_id += chunk) {
+            int range_from = (int) from_id;
+            int range_to = (int) Math.min(from_id + chunk, (long) bounds[1] + 1);
+            ranges.add(() -> new DatabaseManager().queryAttendanceIdRange(range_from, range_to));
+        }
+        return runRanges(ranges);
+    }
+
+
+    /**
+     * Read the attendance data between two dates by splitting the days into ranges.
+     * @param from_date the first date (inclusive).
+     * @param to_date the last date (inclusive).
+     * @param workers the number of ranges to be read concurrently.
+     * @return the parts in date order, or null if any range failed.
+     */
+    public static List<List<String[]>> queryAttendanceBetween(Date from_date, Date to_date, int workers) {
+        long first_day = from_date.toLocalDate().toEpochDay();
+        long last_day = to_date.toLocalDate().toEpochDay();
+        if (last_day < first_day) return new ArrayList<>();
+
+        List<Callable<List<String[]>>> ranges = new ArrayList<>();
+        long span = last_day - first_day + 1;
+        long chunk = (span + workers - 1) / workers;
+        for (long day = first_day; day <= last_day; day += chunk) {
+            Date range_from = Date.valueOf(LocalDate.ofEpochDay(day));
+            Date range_to = Date.valueOf(LocalDate.ofEpochDay(Math.min(day + chunk - 1, last_day)));
+            ranges.add(() -> new DatabaseManager().queryAttendanceDateRange(range_from, range_to));
+        }
+        return runRanges(ranges);
+    }
+
+
+    /**
+     * Merge the parts into one list of rows, in order, preceded by the header.
+     * @param header the first line of the export.
+     * @param parts the parts returned by one of the query methods.
+     * @return the merged rows.
+     */
+    public static List<String[]> merge(String[] header, List<List<String[]>> parts) {
+        int total_rows = 1;
+        for (List<String[]> part : parts) {
+            total_rows += part.size();
+        }
+        List<String[]> data = new ArrayList<>(total_rows);
+        data.add(header);
+        for (List<String[]> part : parts) {
+            data.addAll(part);
+        }
+        return data;
+    }
+
+
+    /**
+     * Run each range on its own thread and wait for all of them to finish.
+     * @param ranges the range queries.
+     * @return the results in the same order as the ranges, or null if any range failed.
+     */
+    private static List<List<String[]>> runRanges(List<Callable<List<String[]>>> ranges) {
+        if (ranges.isEmpty()) return new ArrayList<>();
+
+        ExecutorService executor = Executors.newFixedThreadPool(ranges.size());
+        List<List<String[]>> parts = new ArrayList<>(ranges.size());
+        try {
+            for (Future<List<String[]>> future : executor.invokeAll(ranges)) {
+                List<String[]> part = future.get();
+                if (part == null) return null; // a range failed, the export would be incomplete.
+                parts.add(part);
+            }
+        }
+        catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+        catch (ExecutionException ee) {
+            ee.printStackTrace();
+            return null;
+        }
+        finally {
+            executor.shutdownNow();
+        }
+        return parts;
+    }
+}
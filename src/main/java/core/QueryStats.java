@@ -0,0 +1,160 @@
+package core;
+
+import utility.Const;
+import utility.LatencyHistogram;
+import utility.LogHelper;
+import utility.LogTypes;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * The QueryStats keeps the time and rows of every statement run by the
+ * {@link DatabaseManager}, per method and statement, for the db stats command.
+ * The literals of a statement are replaced with ? before it is kept or logged,
+ * so a statement built with its values appears once and no value is shown.
+ * The redacted form of a statement is kept, so a prepared statement is only
+ * redacted on its first execution.
+ * <p>
+ *     A statement slower than the slow query threshold is also logged to the
+ *     app set with {@link #logSlowQueriesTo(AppContext)}, with the types of its
+ *     parameters in place of their values.
+ * </p>
+ */
+public class QueryStats {
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern NUMBER_LITERAL = Pattern.compile("\\b\\d+(?:\\.\\d+)?\\b");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private static final Map<StatementKey, StatementStats> statement_stats = new ConcurrentHashMap<>();
+    // raw statement -> redacted statement, at most DB_REDACTED_SQL_CAPACITY statements.
+    private static final Map<String, String> redacted_sqls = new ConcurrentHashMap<>();
+    private static volatile long slow_query_millis = Const.DB_SLOW_QUERY_MILLIS;
+    private static volatile AppContext slow_query_app;
+
+    private QueryStats() {}
+
+
+    /**
+     * The method and the redacted statement the stats are kept for.
+     */
+    public record StatementKey(String method_name, String sql) {}
+
+
+    /**
+     * The stats of one statement.
+     */
+    public static class StatementStats {
+        private final LatencyHistogram micros = new LatencyHistogram();
+        private final LongAdder total_micros = new LongAdder();
+        private final LongAdder rows = new LongAdder();
+
+        public LatencyHistogram.Snapshot getMicros() {
+            return micros.snapshot();
+        }
+
+        public long getTotalMicros() {
+            return total_micros.sum();
+        }
+
+        public long getRows() {
+            return rows.sum();
+        }
+    }
+
+
+    /**
+     * Record one execution of a statement.
+     * @param method_name the DatabaseManager method that ran the statement.
+     * @param sql the statement, with its literals if it was not prepared.
+     * @param elapsed_nanos the time the statement took to execute.
+     * @param rows the rows returned or updated.
+     * @param acquire_nanos the time it took to open the connection of the statement.
+     * @param parameter_types the types of the parameters of the statement.
+     */
+    static void record(String method_name, String sql, long elapsed_nanos, long rows,
+                       long acquire_nanos, List<String> parameter_types) {
+        String redacted_sql = redactCached(sql);
+        StatementStats stats = statement_stats.computeIfAbsent(
+                new StatementKey(method_name, redacted_sql), k -> new StatementStats()
+        );
+        stats.micros.record(elapsed_nanos / 1000);
+        stats.total_micros.add(elapsed_nanos / 1000);
+        stats.rows.add(rows);
+
+        AppContext app = slow_query_app;
+        if (app != null && elapsed_nanos >= slow_query_millis * 1_000_000) {
+            app.sendToConsole(LogHelper.log(String.format(
+                    "Slow query in %s: %.1fms (connection wait %.1fms, %d rows) %s params=%s",
+                    method_name, elapsed_nanos / 1e6, acquire_nanos / 1e6, rows, redacted_sql, parameter_types
+            ), LogTypes.WARNING));
+        }
+    }
+
+
+    /**
+     * Redact a statement, or take its redacted form if it was already redacted.
+     * Once the cache is full, new statements, e.g. built with their literals,
+     * are redacted every time.
+     * @param sql the statement.
+     * @return the redacted statement.
+     */
+    private static String redactCached(String sql) {
+        if (sql == null) return redact(null);
+        String redacted_sql = redacted_sqls.get(sql);
+        if (redacted_sql != null) return redacted_sql;
+        redacted_sql = redact(sql);
+        if (redacted_sqls.size() < Const.DB_REDACTED_SQL_CAPACITY) redacted_sqls.put(sql, redacted_sql);
+        return redacted_sql;
+    }
+
+
+    /**
+     * Replace the string and number literals of a statement with ? and
+     * collapse its whitespace.
+     * @param sql the statement.
+     * @return the redacted statement.
+     */
+    public static String redact(String sql) {
+        if (sql == null) return "unknown";
+        String redacted_sql = STRING_LITERAL.matcher(sql).replaceAll("'?'");
+        redacted_sql = NUMBER_LITERAL.matcher(redacted_sql).replaceAll("?");
+        return WHITESPACE.matcher(redacted_sql).replaceAll(" ").strip();
+    }
+
+
+    /**
+     * @return the stats of every statement, the most total time first.
+     */
+    public static List<Map.Entry<StatementKey, StatementStats>> getStatementStats() {
+        List<Map.Entry<StatementKey, StatementStats>> entries = new ArrayList<>(statement_stats.entrySet());
+        entries.sort(Comparator.comparingLong(
+                (Map.Entry<StatementKey, StatementStats> entry) -> entry.getValue().getTotalMicros()
+        ).reversed());
+        return entries;
+    }
+
+
+    /**
+     * Log the statements slower than the slow query threshold to an app.
+     * @param app the app to log to.
+     */
+    public static void logSlowQueriesTo(AppContext app) {
+        slow_query_app = app;
+    }
+
+
+    public static long getSlowQueryMillis() {
+        return slow_query_millis;
+    }
+
+
+    public static void setSlowQueryMillis(long slow_query_millis) {
+        QueryStats.slow_query_millis = slow_query_millis;
+    }
+}
@@ -0,0 +1,112 @@
+package core;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The ScanTrace is the timeline of one scanFinger message, from reading it
+ * off the socket to writing the reply back. Each phase is marked when it
+ * ends, so the time of a phase is the time since the phase marked before it.
+ * <p>
+ *     A trace is filled in by the client thread alone and is only read after
+ *     it is added to the {@link TraceStore}.
+ * </p>
+ */
+public class ScanTrace {
+    private static final AtomicLong next_trace_id = new AtomicLong(1);
+
+    private final long trace_id = next_trace_id.getAndIncrement();
+    private final long start_millis = System.currentTimeMillis();
+    private final long start_nanos;
+    private final String client_name;
+    private final long[] phase_nanos = new long[Phase.values().length];
+    private String fingerprint_id;
+    private String outcome = "FAIL";
+    private long total_nanos;
+
+
+    /**
+     * The phases of a scan, in the order they run.
+     */
+    public enum Phase {
+        READ("read"),       // the fingerprint id read from the socket.
+        PARSE("parse"),     // the attendance data built from the fingerprint id.
+        CONNECT("connect"), // the database connection opened.
+        LOOKUP("lookup"),   // the user of the fingerprint id found.
+        DEDUP("dedup"),     // checked that the user has no attendance today yet.
+        NAME("name"),       // the first name of the user found.
+        INSERT("insert"),   // the attendance inserted.
+        COMMIT("commit"),   // the statements and connection released; the insert auto-commits.
+        REPLY("reply");     // OK and the first name, or FAIL, written back to the client.
+
+        private final String label;
+
+        Phase(String label) {
+            this.label = label;
+        }
+    }
+
+
+    /**
+     * Start a trace.
+     * @param client_name the name of the client that sent the scan.
+     * @param start_nanos when the scanFinger message was read, from System.nanoTime().
+     */
+    public ScanTrace(String client_name, long start_nanos) {
+        this.client_name = client_name;
+        this.start_nanos = start_nanos;
+    }
+
+
+    /**
+     * Mark the end of a phase.
+     * @param phase the phase that just ended.
+     */
+    public void mark(Phase phase) {
+        phase_nanos[phase.ordinal()] = Math.max(System.nanoTime() - start_nanos, 1);
+    }
+
+
+    public void setFingerprintId(String fingerprint_id) {
+        this.fingerprint_id = fingerprint_id;
+    }
+
+
+    /**
+     * End the trace.
+     * @param is_successful true if the attendance was recorded.
+     */
+    public void finish(boolean is_successful) {
+        outcome = is_successful ? "OK" : "FAIL";
+        total_nanos = System.nanoTime() - start_nanos;
+    }
+
+
+    public long getTraceId() {
+        return trace_id;
+    }
+
+
+    public long getTotalNanos() {
+        return total_nanos;
+    }
+
+
+    /**
+     * Format the trace with the time of every phase in milliseconds. Phases
+     * that did not run, e.g. the insert of a duplicate scan, are left out.
+     * @return the formatted trace.
+     */
+    public String format() {
+        StringBuilder line = new StringBuilder(160);
+        line.append(String.format("trace %d  %tT  %s  fp=%s  %s  total=%.2fms  ",
+                trace_id, start_millis, client_name, fingerprint_id, outcome, total_nanos / 1e6));
+        long previous_nanos = 0;
+        for (Phase phase : Phase.values()) {
+            long nanos = phase_nanos[phase.ordinal()];
+            if (nanos == 0) continue;
+            line.append(String.format(" %s=%.2f", phase.label, (nanos - previous_nanos) / 1e6));
+            previous_nanos = nanos;
+        }
+        return line.toString();
+    }
+}
@@ -2,10 +2,15 @@ package core;
 
 import java.io.*;
 import java.net.*;
-import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 
-import gui.MainWindow;
 import utility.*;
 
 
@@ -17,19 +22,38 @@ import utility.*;
  */
 @SuppressWarnings({"unused", "noinspection", "LoopConditionNotUpdatedInsideLoop", "StatementWithEmptyBody"})
 public class ServerManager implements Runnable {
+    private static final LatencyHistogram MESSAGE_READ_MICROS = MetricsRegistry.histogram("client.message.read_micros");
+    private static final LatencyHistogram SEND_COMMAND_MICROS = MetricsRegistry.histogram("client.send_command_micros");
+    private static final LongAdder SEND_COMMAND_ERRORS = MetricsRegistry.counter("client.send_command.errors");
+    // client message -> time to handle it, looked up once so unknown messages can't create metrics.
+    private static final Map<String, LatencyHistogram> MESSAGE_HANDLE_MICROS = Map.of(
+            "beat", MetricsRegistry.histogram("client.handle.beat_micros"),
+            "disconnect", MetricsRegistry.histogram("client.handle.disconnect_micros"),
+            "enrollFinger", MetricsRegistry.histogram("client.handle.enrollFinger_micros"),
+            "scanFinger", MetricsRegistry.histogram("client.handle.scanFinger_micros"),
+            "deleteFingerOk", MetricsRegistry.histogram("client.handle.deleteFingerOk_micros"),
+            "deleteFingerFail", MetricsRegistry.histogram("client.handle.deleteFingerFail_micros"),
+            "deleteAllDataFromDatabase", MetricsRegistry.histogram("client.handle.deleteAllDataFromDatabase_micros")
+    );
+    private static final LatencyHistogram UNKNOWN_MESSAGE_HANDLE_MICROS =
+            MetricsRegistry.histogram("client.handle.unknown_micros");
+
     private final ServerSocket server_socket;
-    private final ArrayList<FSClient> fsclients = new ArrayList<>();
-    private final MainWindow app;
+    // read far more often than changed, and safe to iterate while clients connect and disconnect.
+    private final CopyOnWriteArrayList<FSClient> fsclients = new CopyOnWriteArrayList<>();
+    private final AppContext app;
+    private final HeartbeatMonitor heartbeat_monitor = new HeartbeatMonitor();
     private boolean is_running;
 
 
     /**
+     * @param context the app the server logs to and reports its clients to.
      * @param hostname the fixed host name.
      * @param port the fixed port number.
      * @exception IOException error when opening the socket.
      */
-    public ServerManager(MainWindow mw, String hostname, int port) throws IOException, IllegalArgumentException {
-        app = mw;
+    public ServerManager(AppContext context, String hostname, int port) throws IOException, IllegalArgumentException {
+        app = context;
         server_socket = new ServerSocket();
         SocketAddress address = new InetSocketAddress(hostname, port);
         server_socket.bind(address);
@@ -39,6 +63,15 @@ public class ServerManager implements Runnable {
     @Override
     public void run() {
         is_running = true;
+        ScheduledExecutorService heartbeat_summary = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "heartbeat-summary");
+            thread.setDaemon(true);
+            return thread;
+        });
+        heartbeat_summary.scheduleAtFixedRate(
+                this::logHeartbeatSummary, Const.HEARTBEAT_INTERVAL, Const.HEARTBEAT_INTERVAL, TimeUnit.MILLISECONDS
+        );
+
         while (is_running) {
             try {
                 LogHelper.debugLog("Server started.");
@@ -54,6 +87,7 @@ public class ServerManager implements Runnable {
                 FSClient client = new FSClient(client_socket);
                 // add to clients list for method access.
                 fsclients.add(client);
+                app.clientConnected(client.getClientName());
                 new Thread(client).start();
             }
             catch (IOException e) {
@@ -70,10 +104,20 @@ public class ServerManager implements Runnable {
                 app.sendToConsole(LogHelper.log("Server sucessfully closed.", LogTypes.INFO));
                 LogHelper.debugLog("Server stopped.");
             }
-            finally {
-                sendClientListUpdate();
-            }
         }
+        heartbeat_summary.shutdownNow();
+    }
+
+
+    /**
+     * Log the heartbeats of the last interval as one line.
+     * Only done if the heartbeat mode is set to SUMMARY.
+     * @see HeartbeatMonitor
+     */
+    private void logHeartbeatSummary() {
+        String summary = heartbeat_monitor.takeSummary(fsclients.size());
+        if (summary == null || HeartbeatMonitor.getMode() != HeartbeatMonitor.Mode.SUMMARY) return;
+        app.sendToConsole(LogHelper.log(summary, LogTypes.SERVER));
     }
 
 
@@ -105,27 +149,71 @@ public class ServerManager implements Runnable {
 
     /**
      * Returns the list of clients connected to the server.
-     * @return the Arraylist of clients.
+     * @return the list of clients. Safe to iterate while clients connect and disconnect.
      */
-    public ArrayList<FSClient> getClients() {
+    public List<FSClient> getClients() {
         return fsclients;
     }
 
 
     /**
-     * Updates the clients list from the gui.
+     * Remove the client from the clients list upon disconnection.
+     * @param client a client socket.
      */
-    public void sendClientListUpdate() {
-        app.updateClientsList(fsclients);
+    public void removeClient(FSClient client) {
+        fsclients.remove(client);
     }
 
 
     /**
-     * Remove the client from the clients list upon disconnection.
-     * @param client a client socket.
+     * Generate an 8-character client name. 62^8 name combinations.
+     * @return the generated client name.
+     * @implNote this method is only used in the constructor of the client.
      */
-    public void removeClient(FSClient client) {
-        fsclients.remove(client);
+    static String generateClientName() {
+        int random_int;
+        char random_character;
+        StringBuilder generated_client_name = new StringBuilder();
+
+        for (int i = 0; i < 8; i++) {
+            random_int = ThreadLocalRandom.current().nextInt(0, Const.CHARSET.length());
+            random_character = Const.CHARSET.charAt(random_int);
+            generated_client_name.append(random_character);
+        }
+
+        return generated_client_name.toString();
+    }
+
+
+    /**
+     * Read the lines of an enrollFinger message. The client sends the first,
+     * middle and last name, age, gender, phone number, address and fingerprint
+     * id, one per line.
+     * @param input the input stream of the client.
+     * @return the lines, as sent.
+     * @throws IOException error when reading from the client.
+     */
+    static String[] readEnrolleeLines(BufferedReader input) throws IOException {
+        String[] enrollee_lines = new String[8];
+        for (int i = 0; i < enrollee_lines.length; i++) {
+            enrollee_lines[i] = input.readLine();
+        }
+        return enrollee_lines;
+    }
+
+
+    /**
+     * Build the enrollee data from the lines of an enrollFinger message.
+     * @param enrollee_lines the lines read by {@link #readEnrolleeLines(BufferedReader)}.
+     * @param client_identifier the identifier the client sent when it connected.
+     * @return the enrollee data.
+     */
+    static TempEnrollmentData buildEnrollee(String[] enrollee_lines, String client_identifier) {
+        TempEnrollmentData enrollee_data = new TempEnrollmentData();
+        enrollee_data.buildEnrolleeName(enrollee_lines[0], enrollee_lines[1], enrollee_lines[2]);
+        enrollee_data.buildEnrolleeInfo(enrollee_lines[3], enrollee_lines[4], enrollee_lines[5], enrollee_lines[6]);
+        enrollee_data.setFingerprintId(enrollee_lines[7], client_identifier);
+        return enrollee_data;
     }
 
 
@@ -178,9 +266,17 @@ public class ServerManager implements Runnable {
         @Override
         public void run() {
             is_connected = true;
+            FlightEvents.ClientConnectEvent connect_event = new FlightEvents.ClientConnectEvent();
+            if (connect_event.shouldCommit()) {
+                connect_event.clientName = client_name;
+                connect_event.address = client_socket_address;
+                connect_event.commit();
+            }
+            FlightEvents.ClientDisconnectEvent disconnect_event = new FlightEvents.ClientDisconnectEvent();
+            disconnect_event.begin(); // the event lasts as long as the client is connected.
             try {
                 app.sendToConsole(LogHelper.log(
-                        "Just connected to client " + client_socket_address, LogTypes.SERVER
+                        "Just connected to client " + client_socket_address, LogTypes.SERVER, client_name
                 ));
                 // connect input and output streams for communication and send feedback to the client
                 setIO();
@@ -203,7 +299,7 @@ public class ServerManager implements Runnable {
                             app.sendToConsole(LogHelper.log(
                                     String.format("No response from client %s in a set amount of time." ,
                                             client_name),
-                                    LogTypes.WARNING
+                                    LogTypes.WARNING, client_name
                             ));
                             disconnect();
                         }
@@ -212,7 +308,10 @@ public class ServerManager implements Runnable {
 
                     // detect if the input buffer is not empty.
                     if (input.ready()) {
+                        long read_start_nanos = System.nanoTime();
                         message = input.readLine();
+                        long handle_start_nanos = System.nanoTime();
+                        MESSAGE_READ_MICROS.record((handle_start_nanos - read_start_nanos) / 1000);
                         // app.sendToConsole(LogHelper.log(message, LogTypes.CLIENT));
 
                         // Events
@@ -220,36 +319,39 @@ public class ServerManager implements Runnable {
                             case "beat" -> {
                                 // part of heartbeat mechanism
                                 responseTime = System.currentTimeMillis();
-                                app.sendToConsole(LogHelper.log(
-                                        String.format("client=%s    rt=%dms",
-                                                client_name,
-                                                (responseTime - currentMillisTime)),
-                                        LogTypes.SERVER
-                                ));
+                                long rtt = responseTime - currentMillisTime;
+                                heartbeat_monitor.record(rtt);
+                                ServerStats.recordHeartbeat(client_name, rtt);
+                                if (HeartbeatMonitor.getMode() == HeartbeatMonitor.Mode.EACH) {
+                                    app.sendToConsole(LogHelper.log(
+                                            () -> "client=" + client_name + "    rt=" + rtt + "ms",
+                                            LogTypes.SERVER, client_name
+                                    ));
+                                }
 
                                 sendCommand("heartbeat");
                             }
                             case "disconnect" -> {
 
                                 app.sendToConsole(LogHelper.log(
-                                        "Closing connection for client " + client_name, LogTypes.SERVER
+                                        "Closing connection for client " + client_name, LogTypes.SERVER, client_name
                                 ));
                                 disconnect();
                             }
                             case "enrollFinger" -> {
-                                String first_name = input.readLine();
-                                String middle_name = input.readLine();
-                                String last_name =  input.readLine();
-                                String age = input.readLine();
-                                String gender = input.readLine();
-                                String phone_number = input.readLine();
-                                String address = input.readLine();
-                                String finger_id_unparsed = input.readLine();
-
-                                TempEnrollmentData enrollee_data = new TempEnrollmentData();
-                                enrollee_data.buildEnrolleeName(first_name, middle_name, last_name);
-                                enrollee_data.buildEnrolleeInfo(age, gender, phone_number, address);
-                                enrollee_data.setFingerprintId(finger_id_unparsed, client_identifier);
+                                FlightEvents.EnrollEvent enroll_event = new FlightEvents.EnrollEvent();
+                                enroll_event.begin();
+                                String[] enrollee_lines = readEnrolleeLines(input);
+                                String first_name = enrollee_lines[0];
+                                String middle_name = enrollee_lines[1];
+                                String last_name = enrollee_lines[2];
+                                String age = enrollee_lines[3];
+                                String gender = enrollee_lines[4];
+                                String phone_number = enrollee_lines[5];
+                                String address = enrollee_lines[6];
+                                String finger_id_unparsed = enrollee_lines[7];
+
+                                TempEnrollmentData enrollee_data = buildEnrollee(enrollee_lines, client_identifier);
 
                                 DatabaseManager database_manager = new DatabaseManager();
                                 boolean isSuccessful = database_manager.enrollUser(enrollee_data);
@@ -260,33 +362,61 @@ public class ServerManager implements Runnable {
                                                     first_name + " " +
                                                     middle_name + " " +
                                                     last_name,
-                                            LogTypes.CLIENT
+                                            LogTypes.CLIENT, client_name
                                     ));
                                     app.sendToConsole(LogHelper.log(
                                             "=======================     INFORMATION     =======================",
-                                            LogTypes.CLIENT
+                                            LogTypes.CLIENT, client_name
+                                    ));
+                                    app.sendToConsole(LogHelper.log(
+                                            "First Name : " + first_name, LogTypes.CLIENT, client_name
+                                    ));
+                                    app.sendToConsole(LogHelper.log(
+                                            "Middle Name: " + middle_name, LogTypes.CLIENT, client_name
+                                    ));
+                                    app.sendToConsole(LogHelper.log(
+                                            "Last Name  : " + last_name, LogTypes.CLIENT, client_name
+                                    ));
+                                    app.sendToConsole(LogHelper.log(
+                                            "Age        : " + age, LogTypes.CLIENT, client_name
+                                    ));
+                                    app.sendToConsole(LogHelper.log(
+                                            "Gender     : " + gender, LogTypes.CLIENT, client_name
+                                    ));
+                                    app.sendToConsole(LogHelper.log(
+                                            "Phone No.  : " + phone_number, LogTypes.CLIENT, client_name
+                                    ));
+                                    app.sendToConsole(LogHelper.log(
+                                            "Address    : " + address, LogTypes.CLIENT, client_name
                                     ));
-                                    app.sendToConsole(LogHelper.log("First Name : " + first_name, LogTypes.CLIENT));
-                                    app.sendToConsole(LogHelper.log("Middle Name: " + middle_name, LogTypes.CLIENT));
-                                    app.sendToConsole(LogHelper.log("Last Name  : " + last_name, LogTypes.CLIENT));
-                                    app.sendToConsole(LogHelper.log("Age        : " + age, LogTypes.CLIENT));
-                                    app.sendToConsole(LogHelper.log("Gender     : " + gender, LogTypes.CLIENT));
-                                    app.sendToConsole(LogHelper.log("Phone No.  : " + phone_number, LogTypes.CLIENT));
-                                    app.sendToConsole(LogHelper.log("Address    : " + address, LogTypes.CLIENT));
                                     sendCommand("OK");
                                 }
                                 else {
                                     app.sendToConsole(LogHelper.log(
-                                            "An exception occurred when enrolling to database.", LogTypes.ERROR
+                                            "An exception occurred when enrolling to database.",
+                                            LogTypes.ERROR, client_name
                                     ));
                                     sendCommand("FAIL");
                                 }
+                                enroll_event.end(); // after the reply, as in its description.
+                                if (enroll_event.shouldCommit()) {
+                                    enroll_event.clientName = client_name;
+                                    enroll_event.fingerprintId = finger_id_unparsed;
+                                    enroll_event.outcome = isSuccessful ? "OK" : "FAIL";
+                                    enroll_event.commit();
+                                }
                             }
                             case "scanFinger" -> {
+                                FlightEvents.ScanEvent scan_event = new FlightEvents.ScanEvent();
+                                scan_event.begin();
+                                ScanTrace trace = new ScanTrace(client_name, read_start_nanos);
                                 String finger_id_unparsed = input.readLine();
+                                trace.setFingerprintId(finger_id_unparsed);
+                                trace.mark(ScanTrace.Phase.READ);
                                 app.sendToConsole(LogHelper.log(
-                                        "Searching database for user with fingerprint ID: " + finger_id_unparsed,
-                                        LogTypes.CLIENT
+                                        "Searching database for user with fingerprint ID: " + finger_id_unparsed +
+                                                " (trace " + trace.getTraceId() + ")",
+                                        LogTypes.CLIENT, client_name
                                 ));
 
                                 DatabaseManager database_manager = new DatabaseManager();
@@ -298,7 +428,8 @@ public class ServerManager implements Runnable {
                                         event_data.getCurrentEventLocation(),
                                         client_identifier
                                 );
-                                boolean isSuccessful = database_manager.recordAttendance(attendance_data);
+                                trace.mark(ScanTrace.Phase.PARSE);
+                                boolean isSuccessful = database_manager.recordAttendance(attendance_data, trace);
 
                                 if (isSuccessful) {
                                     sendCommand("OK");
@@ -309,17 +440,32 @@ public class ServerManager implements Runnable {
                                                     attendee_first_name +
                                                     " Matches fingerprint ID " +
                                                     finger_id_unparsed,
-                                            LogTypes.CLIENT
+                                            LogTypes.CLIENT, client_name
                                     ));
                                     sendCommand(attendee_first_name);
+                                    trace.mark(ScanTrace.Phase.REPLY);
+                                    AttendanceFeed.publish(attendance_data, client_name);
                                 }
                                 else {
                                     sendCommand("FAIL");
+                                    trace.mark(ScanTrace.Phase.REPLY);
                                     app.sendToConsole(LogHelper.log(
                                             "An exception occurred when creating attendance record." +
-                                                    "Maybe the record exists in the database.", LogTypes.ERROR
+                                                    "Maybe the record exists in the database.",
+                                                    LogTypes.ERROR, client_name
                                     ));
                                 }
+                                scan_event.end(); // after the reply, as in its description.
+                                if (scan_event.shouldCommit()) {
+                                    scan_event.clientName = client_name;
+                                    scan_event.fingerprintId = finger_id_unparsed;
+                                    scan_event.outcome = isSuccessful ? "OK" : "FAIL";
+                                    scan_event.commit();
+                                }
+                                trace.finish(isSuccessful);
+                                TraceStore.add(trace);
+                                // the same start and end as the trace, so the stats and the traces agree.
+                                ServerStats.recordScan(trace.getTotalNanos(), isSuccessful);
                             }
                             case "deleteFingerOk" ->
                                 app.sendToConsole(LogHelper.log(
@@ -327,7 +473,7 @@ public class ServerManager implements Runnable {
                                                 client_name +
                                                 " with identifier " +
                                                 client_identifier,
-                                        LogTypes.CLIENT
+                                        LogTypes.CLIENT, client_name
                                 ));
                             case "deleteFingerFail" ->
                                 app.sendToConsole(LogHelper.log(
@@ -335,16 +481,18 @@ public class ServerManager implements Runnable {
                                                 client_name +
                                                 " with identifier " +
                                                 client_identifier,
-                                        LogTypes.CLIENT
+                                        LogTypes.CLIENT, client_name
                                 ));
                             case "deleteAllDataFromDatabase" ->
                                 app.sendToConsole(LogHelper.log(
                                         String.format(
                                                 "ALL DATA from client %s with id %s is wiped!",
                                                 client_name, client_identifier),
-                                        LogTypes.WARNING
+                                        LogTypes.WARNING, client_name
                                 ));
                         }
+                        MESSAGE_HANDLE_MICROS.getOrDefault(message, UNKNOWN_MESSAGE_HANDLE_MICROS)
+                                .record((System.nanoTime() - handle_start_nanos) / 1000);
 
                         // update the time for the heartbeat mechanism
                         currentMillisTime = System.currentTimeMillis();
@@ -361,7 +509,7 @@ public class ServerManager implements Runnable {
             catch (InterruptedException ie) {
                 app.sendToConsole(LogHelper.log(
                         "Forced to close connection with client " + client_name,
-                        LogTypes.WARNING
+                        LogTypes.WARNING, client_name
                 ));
                 sendCommand("disconnect");
                 disconnect();
@@ -369,7 +517,15 @@ public class ServerManager implements Runnable {
             finally {
                 closeAll();
                 removeClient(this);
-                sendClientListUpdate();
+                ServerStats.removeClient(client_name);
+                app.clientDisconnected(client_name);
+                disconnect_event.end();
+                if (disconnect_event.shouldCommit()) {
+                    disconnect_event.clientName = client_name;
+                    disconnect_event.clientId = client_identifier;
+                    disconnect_event.address = client_socket_address;
+                    disconnect_event.commit();
+                }
             }
         }
 
@@ -401,21 +557,21 @@ public class ServerManager implements Runnable {
                 if (input != null) {
                     app.sendToConsole(LogHelper.log(
                             "Closing input for client " + client_name,
-                            LogTypes.SERVER
+                            LogTypes.SERVER, client_name
                     ));
                     input.close();
                 }
                 if (output != null) {
                     app.sendToConsole(LogHelper.log(
                             "Closing output for client " + client_name,
-                            LogTypes.SERVER
+                            LogTypes.SERVER, client_name
                     ));
                     output.close();
                 }
                 if (client_socket != null) {
                     app.sendToConsole(LogHelper.log(
                             "Closing socket for client " + client_name,
-                            LogTypes.SERVER
+                            LogTypes.SERVER, client_name
                     ));
                     client_socket.close();
                 }
@@ -424,32 +580,12 @@ public class ServerManager implements Runnable {
                 ioe.printStackTrace();
                 app.sendToConsole(LogHelper.log(
                         "Error closing connection from client.",
-                        LogTypes.ERROR
+                        LogTypes.ERROR, client_name
                         ));
             }
             app.sendToConsole(LogHelper.log(
                     "Successfully closed connection for client " + client_name,
-                    LogTypes.SERVER));
-        }
-
-
-        /**
-         * Generate an 8-character client name. 62^8 name combinations.
-         * @return the generated client name.
-         * @implNote this method is only used in the constructor of the client.
-         */
-        private String generateClientName() {
-            int random_int;
-            char random_character;
-            StringBuilder generated_client_name = new StringBuilder();
-
-            for (int i = 0; i < 8; i++) {
-                random_int = ThreadLocalRandom.current().nextInt(0, Const.CHARSET.length());
-                random_character = Const.CHARSET.charAt(random_int);
-                generated_client_name.append(random_character);
-            }
-
-            return generated_client_name.toString();
+                    LogTypes.SERVER, client_name));
         }
 
 
@@ -460,12 +596,17 @@ public class ServerManager implements Runnable {
          * @see CommandExecutor
          */
         public void sendCommand(String command) {
+            long start_nanos = System.nanoTime();
             try {
                 output.write(command + "\n");
                 output.flush();
+                SEND_COMMAND_MICROS.record((System.nanoTime() - start_nanos) / 1000);
             }
             catch (IOException ioe) {
-                app.sendToConsole(LogHelper.log("Error sending command to " + client_name, LogTypes.ERROR));
+                SEND_COMMAND_ERRORS.increment();
+                app.sendToConsole(LogHelper.log(
+                        "Error sending command to " + client_name, LogTypes.ERROR, client_name
+                ));
             }
         }
     }
@@ -0,0 +1,122 @@
+package core;
+
+import utility.LatencyHistogram;
+import utility.MetricsRegistry;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The ServerStats class counts what the server is doing so a dashboard can
+ * sample it at a fixed rate. Recording never blocks and never touches the UI,
+ * so it costs the same no matter how often the dashboard refreshes.
+ * <p>
+ *     The counters and the scan latencies are kept in the {@link MetricsRegistry}.
+ * </p>
+ */
+public class ServerStats {
+    private static final LongAdder scans = MetricsRegistry.counter("scan.count");
+    private static final LongAdder failed_scans = MetricsRegistry.counter("scan.failed");
+    private static final LatencyHistogram total_scan_latency_micros = MetricsRegistry.histogram("scan.latency_micros");
+    private static final LongAdder opened_db_connections = MetricsRegistry.counter("db.connection.opened");
+    private static final LongAdder closed_db_connections = MetricsRegistry.counter("db.connection.closed");
+    // reset by every sample of the dashboard.
+    private static final LatencyHistogram scan_latency_micros = new LatencyHistogram();
+    // client name -> round trip time of its last heartbeat in milliseconds.
+    private static final Map<String, Long> heartbeat_rtts = new ConcurrentHashMap<>();
+
+    private ServerStats() {}
+
+
+    /**
+     * Record a scan, from the scan request of a client to the reply of the server.
+     * @param latency_nanos the time between the request and the reply.
+     * @param is_successful false if the attendance could not be recorded.
+     */
+    public static void recordScan(long latency_nanos, boolean is_successful) {
+        scans.increment();
+        if (!is_successful) failed_scans.increment();
+        scan_latency_micros.record(latency_nanos / 1000);
+        total_scan_latency_micros.record(latency_nanos / 1000);
+    }
+
+
+    /**
+     * Record the round trip time of the last heartbeat of a client.
+     * @param client_name the name of the client.
+     * @param rtt the round trip time in milliseconds.
+     */
+    public static void recordHeartbeat(String client_name, long rtt) {
+        heartbeat_rtts.put(client_name, rtt);
+    }
+
+
+    /**
+     * Forget a client that disconnected.
+     * @param client_name the name of the client.
+     */
+    public static void removeClient(String client_name) {
+        heartbeat_rtts.remove(client_name);
+    }
+
+
+    public static void databaseConnectionOpened() {
+        opened_db_connections.increment();
+    }
+
+
+    public static void databaseConnectionClosed() {
+        closed_db_connections.increment();
+    }
+
+
+    /**
+     * @return the number of scans since the server started.
+     */
+    public static long getScanCount() {
+        return scans.sum();
+    }
+
+
+    /**
+     * @return the number of failed scans since the server started.
+     */
+    public static long getFailedScanCount() {
+        return failed_scans.sum();
+    }
+
+
+    /**
+     * Take the scan latencies recorded since the last call.
+     * @return the snapshot, in microseconds.
+     */
+    public static LatencyHistogram.Snapshot takeScanLatencies() {
+        return scan_latency_micros.snapshotAndReset();
+    }
+
+
+    /**
+     * Take every scan latency recorded since the server started.
+     * @return the snapshot, in microseconds.
+     */
+    public static LatencyHistogram.Snapshot getTotalScanLatencies() {
+        return total_scan_latency_micros.snapshot();
+    }
+
+
+    /**
+     * @return the number of database connections currently open.
+     */
+    public static int getOpenDatabaseConnections() {
+        return (int) (opened_db_connections.sum() - closed_db_connections.sum());
+    }
+
+
+    /**
+     * @return the last heartbeat round trip time of every connected client, in milliseconds.
+     */
+    public static Map<String, Long> getHeartbeatRtts() {
+        return Map.copyOf(heartbeat_rtts);
+    }
+}
@@ -0,0 +1,54 @@
+package core;
+
+import utility.ExportCache;
+import utility.LogHelper;
+import utility.LogTypes;
+
+/**
+ * The StartupWarmUp loads the JDBC driver, opens a first database connection
+ * and loads the export cache index in the background, so the first command of
+ * the user does not pay for them.
+ */
+public class StartupWarmUp {
+
+    private StartupWarmUp() {}
+
+
+    /**
+     * Start the warm-up on a daemon thread. The result is logged to the console.
+     * @param app the app to log to.
+     */
+    public static void start(AppContext app) {
+        Thread warm_up_thread = new Thread(() -> warmUp(app), "warm-up");
+        warm_up_thread.setDaemon(true);
+        warm_up_thread.start();
+    }
+
+
+    private static void warmUp(AppContext app) {
+        long start_millis = System.currentTimeMillis();
+        ExportCache.preload();
+        boolean is_database_reachable;
+        try {
+            is_database_reachable = new DatabaseManager().warmUp();
+        }
+        catch (ExceptionInInitializerError | NoClassDefFoundError e) {
+            // the .env file with the database credentials is missing.
+            app.sendToConsole(LogHelper.log(
+                    "Warm-up could not load the database credentials. Check the .env file.", LogTypes.WARNING
+            ));
+            return;
+        }
+        long warm_up_millis = System.currentTimeMillis() - start_millis;
+
+        if (is_database_reachable) {
+            app.sendToConsole(LogHelper.log("Warm-up finished in " + warm_up_millis + "ms.", LogTypes.INFO));
+        }
+        else {
+            app.sendToConsole(LogHelper.log(
+                    "Warm-up could not reach the database after " + warm_up_millis + "ms. Check if it is running.",
+                    LogTypes.WARNING
+            ));
+        }
+    }
+}
@@ -0,0 +1,247 @@
+package core;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The TimedConnection wraps a JDBC connection, its statements and their
+ * result sets in dynamic proxies, so every statement executed through the
+ * {@link DatabaseManager} is timed and its rows are counted without touching
+ * the queries themselves. Every execution is reported to {@link QueryStats}
+ * once its rows are known: when its result set or statement is closed, when
+ * the statement is executed again or when the connection is closed.
+ * The rows of {@code execute()} are read from its update count or counted
+ * on the result set of {@code getResultSet()}.
+ * The rows of all its executions and whether one of them failed are kept
+ * for the whole connection, see {@link #of(Connection)}.
+ * <p>
+ *     Only the types of the statement parameters are kept, never their values.
+ * </p>
+ */
+class TimedConnection implements InvocationHandler {
+    private final Connection connection;
+    private final String method_name;
+    private final long acquire_nanos;
+    private final List<TimedStatement> statements = new ArrayList<>();
+    private long total_rows;
+    private boolean is_failed;
+
+
+    private TimedConnection(Connection connection, String method_name, long acquire_nanos) {
+        this.connection = connection;
+        this.method_name = method_name;
+        this.acquire_nanos = acquire_nanos;
+    }
+
+
+    /**
+     * Wrap a connection.
+     * @param connection the connection opened by the driver.
+     * @param method_name the DatabaseManager method that opened it, e.g. recordAttendance.
+     * @param acquire_nanos the time it took to open the connection.
+     * @return the timed connection.
+     */
+    static Connection wrap(Connection connection, String method_name, long acquire_nanos) {
+        return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[] {Connection.class},
+                new TimedConnection(connection, method_name, acquire_nanos)
+        );
+    }
+
+
+    /**
+     * Get the handler of a wrapped connection.
+     * @param timed_connection a connection returned by {@link #wrap(Connection, String, long)}.
+     * @return the handler, to read the totals of the connection.
+     */
+    static TimedConnection of(Connection timed_connection) {
+        return (TimedConnection) Proxy.getInvocationHandler(timed_connection);
+    }
+
+
+    /**
+     * @return the rows of every execution finished so far, all of them once the connection is closed.
+     */
+    long getTotalRows() {
+        return total_rows;
+    }
+
+
+    /**
+     * @return true if an execution of a statement of the connection threw an SQLException.
+     */
+    boolean isFailed() {
+        return is_failed;
+    }
+
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        if (method.getName().equals("close")) {
+            for (TimedStatement statement : statements) {
+                statement.finishExecution();
+            }
+            statements.clear();
+        }
+        Object result = invokeTarget(connection, method, args);
+
+        if (result instanceof Statement statement) {
+            String sql = (args != null && args.length > 0 && args[0] instanceof String s) ? s : null;
+            TimedStatement timed_statement = new TimedStatement(statement, sql);
+            statements.add(timed_statement);
+            Class<?> statement_type = (statement instanceof PreparedStatement)
+                    ? PreparedStatement.class : Statement.class;
+            return Proxy.newProxyInstance(
+                    Statement.class.getClassLoader(), new Class<?>[] {statement_type}, timed_statement
+            );
+        }
+        return result;
+    }
+
+
+    private static Object invokeTarget(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        }
+        catch (InvocationTargetException ite) {
+            throw ite.getCause(); // e.g. the SQLException of the driver.
+        }
+    }
+
+
+    /**
+     * Times the executions of one statement.
+     */
+    private class TimedStatement implements InvocationHandler {
+        private final Statement statement;
+        private final String prepared_sql;
+        private final List<String> parameter_types = new ArrayList<>();
+        private Execution execution;
+
+
+        private TimedStatement(Statement statement, String prepared_sql) {
+            this.statement = statement;
+            this.prepared_sql = prepared_sql;
+        }
+
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer index) {
+                setParameterType(index, name.equals("setNull") || args[1] == null
+                        ? "null" : args[1].getClass().getSimpleName());
+            }
+            else if (name.equals("clearParameters")) {
+                parameter_types.clear();
+            }
+            else if (name.equals("close")) {
+                finishExecution();
+            }
+            else if (name.equals("getResultSet") && execution != null) {
+                // the result of execute(), counted like the result of executeQuery().
+                Object result = invokeTarget(statement, method, args);
+                return (result instanceof ResultSet result_set) ? execution.countRows(result_set) : result;
+            }
+            if (!name.startsWith("execute")) return invokeTarget(statement, method, args);
+
+            finishExecution();
+            String sql = (args != null && args.length > 0 && args[0] instanceof String s) ? s : prepared_sql;
+            long start_nanos = System.nanoTime();
+            Object result;
+            try {
+                result = invokeTarget(statement, method, args);
+            }
+            catch (SQLException sqle) {
+                is_failed = true;
+                throw sqle;
+            }
+            execution = new Execution(sql, System.nanoTime() - start_nanos, List.copyOf(parameter_types));
+
+            if (result instanceof ResultSet result_set) return execution.countRows(result_set);
+            if (Boolean.FALSE.equals(result)) {
+                // execute() ran an update, its rows are the update count.
+                execution.rows = Math.max(statement.getUpdateCount(), 0);
+            }
+            else if (result instanceof Integer update_count) execution.rows = update_count;
+            else if (result instanceof Long update_count) execution.rows = update_count;
+            else if (result instanceof int[] update_counts) {
+                for (int update_count : update_counts) execution.rows += Math.max(update_count, 0);
+            }
+            if (!Boolean.TRUE.equals(result)) finishExecution(); // the rows of an update are known now.
+            return result;
+        }
+
+
+        private void setParameterType(int index, String type) {
+            while (parameter_types.size() < index) parameter_types.add("?");
+            parameter_types.set(index - 1, type);
+        }
+
+
+        private void finishExecution() {
+            if (execution != null) execution.finish();
+            execution = null;
+        }
+    }
+
+
+    /**
+     * One execution of a statement, reported once.
+     */
+    private class Execution {
+        private final String sql;
+        private final long elapsed_nanos;
+        private final List<String> parameter_types;
+        private long rows;
+        private boolean is_finished;
+        private ResultSet counted_result_set;
+        private ResultSet counted_result_proxy;
+
+
+        private Execution(String sql, long elapsed_nanos, List<String> parameter_types) {
+            this.sql = sql;
+            this.elapsed_nanos = elapsed_nanos;
+            this.parameter_types = parameter_types;
+        }
+
+
+        /**
+         * Wrap the result set of the execution so its rows are counted and its close finishes the execution.
+         * The same result set is only wrapped once, e.g. when getResultSet() is called again.
+         */
+        private ResultSet countRows(ResultSet result_set) {
+            if (result_set == counted_result_set) return counted_result_proxy;
+            counted_result_set = result_set;
+            counted_result_proxy = (ResultSet) Proxy.newProxyInstance(
+                    ResultSet.class.getClassLoader(),
+                    new Class<?>[] {ResultSet.class},
+                    (result_proxy, result_method, result_args) -> {
+                        if (result_method.getName().equals("close")) finish();
+                        Object value = invokeTarget(result_set, result_method, result_args);
+                        if (result_method.getName().equals("next") && Boolean.TRUE.equals(value)) rows++;
+                        return value;
+                    }
+            );
+            return counted_result_proxy;
+        }
+
+
+        private void finish() {
+            if (is_finished) return;
+            is_finished = true;
+            total_rows += rows;
+            QueryStats.record(method_name, sql, elapsed_nanos, rows, acquire_nanos, parameter_types);
+        }
+    }
+}
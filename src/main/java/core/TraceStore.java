@@ -0,0 +1,54 @@
+package core;
+
+import utility.Const;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * The TraceStore keeps the last {@link Const#TRACE_STORE_CAPACITY} scan
+ * traces in a ring, for the trace command. The oldest trace is overwritten
+ * when the ring is full, so the store never grows.
+ */
+public class TraceStore {
+    private static final ScanTrace[] traces = new ScanTrace[Const.TRACE_STORE_CAPACITY];
+    private static long added; // guarded by TraceStore.class
+
+    private TraceStore() {}
+
+
+    /**
+     * Add a finished trace.
+     * @param trace the trace.
+     */
+    public static synchronized void add(ScanTrace trace) {
+        traces[(int) (added % traces.length)] = trace;
+        added++;
+    }
+
+
+    /**
+     * @param count the number of traces.
+     * @return the last traces, the newest first.
+     */
+    public static synchronized List<ScanTrace> getLast(int count) {
+        int size = (int) Math.min(Math.max(count, 0), Math.min(added, traces.length));
+        List<ScanTrace> last = new ArrayList<>(size);
+        for (int i = 1; i <= size; i++) {
+            last.add(traces[(int) ((added - i) % traces.length)]);
+        }
+        return last;
+    }
+
+
+    /**
+     * @param count the number of traces, none if negative.
+     * @return the slowest of the stored traces, the slowest first.
+     */
+    public static List<ScanTrace> getSlowest(int count) {
+        List<ScanTrace> slowest = getLast(traces.length);
+        slowest.sort(Comparator.comparingLong(ScanTrace::getTotalNanos).reversed());
+        return slowest.subList(0, Math.min(Math.max(count, 0), slowest.size()));
+    }
+}
@@ -0,0 +1,88 @@
+package gui;
+
+import javafx.collections.ObservableListBase;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An observable list with a fixed capacity, backed by a circular array. Once
+ * the list is full, appending new elements evicts the oldest ones, so the
+ * memory used by the console stays flat no matter how long the app runs.
+ * <p>
+ *     Must only be used on the JavaFX application thread.
+ * </p>
+ * @param <E> the type of the elements.
+ */
+class ConsoleRingList<E> extends ObservableListBase<E> {
+    private final Object[] ring;
+    private int head;
+    private int size;
+
+
+    /**
+     * @param capacity the maximum number of elements kept in the list.
+     */
+    ConsoleRingList(int capacity) {
+        ring = new Object[capacity];
+    }
+
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public E get(int index) {
+        if (index < 0 || index >= size) throw new IndexOutOfBoundsException(index);
+        return (E) ring[(head + index) % ring.length];
+    }
+
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+
+    /**
+     * Append a batch of elements, evicting the oldest elements if the list is full.
+     * Listeners are notified with a single change.
+     * @param batch the elements to be appended, oldest first.
+     * @return the evicted elements, oldest first.
+     */
+    List<E> appendEvicting(List<? extends E> batch) {
+        List<E> evicted = new ArrayList<>();
+        if (batch.isEmpty()) return evicted;
+
+        int capacity = ring.length;
+        int overflow = Math.max(size + batch.size() - capacity, 0);
+        int evicted_from_ring = Math.min(overflow, size);
+        for (int i = 0; i < evicted_from_ring; i++) {
+            evicted.add(get(i));
+        }
+        // a batch larger than the capacity evicts its own oldest elements too.
+        int skipped_from_batch = overflow - evicted_from_ring;
+        evicted.addAll(batch.subList(0, skipped_from_batch));
+
+        beginChange();
+        try {
+            if (evicted_from_ring > 0) {
+                nextRemove(0, new ArrayList<>(evicted.subList(0, evicted_from_ring)));
+                for (int i = 0; i < evicted_from_ring; i++) {
+                    ring[(head + i) % capacity] = null;
+                }
+                head = (head + evicted_from_ring) % capacity;
+                size -= evicted_from_ring;
+            }
+
+            int added_from = size;
+            for (int i = skipped_from_batch; i < batch.size(); i++) {
+                ring[(head + size) % capacity] = batch.get(i);
+                size++;
+            }
+            nextAdd(added_from, size);
+        }
+        finally {
+            endChange();
+        }
+        return evicted;
+    }
+}
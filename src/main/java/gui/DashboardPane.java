@@ -0,0 +1,177 @@
+package gui;
+
+import core.ServerManager;
+import core.ServerStats;
+import javafx.animation.Animation;
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
+import javafx.geometry.Insets;
+import javafx.scene.chart.*;
+import javafx.scene.layout.ColumnConstraints;
+import javafx.scene.layout.GridPane;
+import javafx.scene.layout.Priority;
+import javafx.scene.layout.RowConstraints;
+import javafx.util.Duration;
+import utility.Const;
+import utility.LatencyHistogram;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The DashboardPane shows live charts of the server: scans per second, scan
+ * latency percentiles, open database connections, connected scanners and the
+ * heartbeat round trip time of every scanner.
+ * <p>
+ *     The charts are driven by sampling {@link ServerStats} at a fixed rate,
+ *     never by the events themselves, so the cost of the dashboard does not
+ *     grow with the load of the server. Sampling only runs while the dashboard
+ *     is shown.
+ * </p>
+ */
+class DashboardPane extends GridPane {
+    private final MainWindow app;
+    private final Timeline sampler;
+
+    private final XYChart.Series<Number, Number> scans_series = new XYChart.Series<>();
+    private final XYChart.Series<Number, Number> latency_p50_series = new XYChart.Series<>();
+    private final XYChart.Series<Number, Number> latency_p95_series = new XYChart.Series<>();
+    private final XYChart.Series<Number, Number> latency_p99_series = new XYChart.Series<>();
+    private final XYChart.Series<Number, Number> db_connections_series = new XYChart.Series<>();
+    private final XYChart.Series<Number, Number> scanners_series = new XYChart.Series<>();
+    private final XYChart.Series<String, Number> heartbeat_series = new XYChart.Series<>();
+
+    private long last_scan_count;
+    private long last_sample_nanos;
+    private long elapsed_seconds;
+
+
+    /**
+     * @param app the main window, used to get the connected scanners.
+     */
+    DashboardPane(MainWindow app) {
+        this.app = app;
+        getStyleClass().add("dashboard");
+        setPadding(new Insets(Const.WindowSizes.BORDERPANE_MARGIN.getValue()));
+        setHgap(10);
+        setVgap(10);
+
+        scans_series.setName("scans/sec");
+        latency_p50_series.setName("p50");
+        latency_p95_series.setName("p95");
+        latency_p99_series.setName("p99");
+        db_connections_series.setName("open connections");
+        scanners_series.setName("scanners");
+        heartbeat_series.setName("last rtt");
+
+        add(createLineChart("Scans per second", "scans/sec", List.of(scans_series)), 0, 0);
+        add(createLineChart("Scan-to-ack latency", "ms",
+                List.of(latency_p50_series, latency_p95_series, latency_p99_series)), 1, 0);
+        add(createLineChart("Database connections", "open", List.of(db_connections_series)), 0, 1);
+        add(createLineChart("Connected scanners", "scanners", List.of(scanners_series)), 1, 1);
+
+        CategoryAxis client_axis = new CategoryAxis();
+        NumberAxis rtt_axis = new NumberAxis();
+        rtt_axis.setLabel("ms");
+        BarChart<String, Number> heartbeat_chart = new BarChart<>(client_axis, rtt_axis);
+        heartbeat_chart.setTitle("Heartbeat round trip time (slowest " + Const.DASHBOARD_MAX_SCANNERS + ")");
+        heartbeat_chart.setAnimated(false);
+        heartbeat_chart.setLegendVisible(false);
+        heartbeat_chart.getData().add(heartbeat_series);
+        add(heartbeat_chart, 0, 2, 2, 1);
+
+        for (int i = 0; i < 2; i++) {
+            ColumnConstraints column = new ColumnConstraints();
+            column.setPercentWidth(50);
+            getColumnConstraints().add(column);
+        }
+        for (int i = 0; i < 3; i++) {
+            RowConstraints row = new RowConstraints();
+            row.setVgrow(Priority.ALWAYS);
+            getRowConstraints().add(row);
+        }
+
+        sampler = new Timeline(new KeyFrame(Duration.millis(Const.DASHBOARD_REFRESH_MILLIS), event -> sample()));
+        sampler.setCycleCount(Animation.INDEFINITE);
+    }
+
+
+    private static LineChart<Number, Number> createLineChart(
+            String title, String y_label, List<XYChart.Series<Number, Number>> series
+    ) {
+        NumberAxis time_axis = new NumberAxis();
+        time_axis.setLabel("seconds");
+        time_axis.setForceZeroInRange(false);
+        NumberAxis value_axis = new NumberAxis();
+        value_axis.setLabel(y_label);
+
+        LineChart<Number, Number> chart = new LineChart<>(time_axis, value_axis);
+        chart.setTitle(title);
+        chart.setAnimated(false);
+        chart.setCreateSymbols(false);
+        chart.getData().addAll(series);
+        return chart;
+    }
+
+
+    /**
+     * Start sampling, e.g. when the dashboard is shown.
+     */
+    void start() {
+        last_scan_count = ServerStats.getScanCount();
+        last_sample_nanos = System.nanoTime();
+        ServerStats.takeScanLatencies(); // drop the latencies recorded while hidden.
+        sampler.play();
+    }
+
+
+    /**
+     * Stop sampling, e.g. when the dashboard is hidden.
+     */
+    void stop() {
+        sampler.stop();
+    }
+
+
+    /**
+     * Add one point to every chart.
+     * @implNote Called by the sampler on the JavaFX application thread.
+     */
+    private void sample() {
+        long now_nanos = System.nanoTime();
+        double interval_seconds = (now_nanos - last_sample_nanos) / 1e9;
+        last_sample_nanos = now_nanos;
+        elapsed_seconds += Math.round(interval_seconds);
+
+        long scan_count = ServerStats.getScanCount();
+        addPoint(scans_series, (scan_count - last_scan_count) / interval_seconds);
+        last_scan_count = scan_count;
+
+        LatencyHistogram.Snapshot latencies = ServerStats.takeScanLatencies();
+        addPoint(latency_p50_series, latencies.getValueAtPercentile(50) / 1000.0);
+        addPoint(latency_p95_series, latencies.getValueAtPercentile(95) / 1000.0);
+        addPoint(latency_p99_series, latencies.getValueAtPercentile(99) / 1000.0);
+
+        addPoint(db_connections_series, ServerStats.getOpenDatabaseConnections());
+
+        ServerManager server_manager = app.getServerManager();
+        boolean is_running = server_manager != null && !server_manager.isClosed();
+        addPoint(scanners_series, is_running ? server_manager.getClients().size() : 0);
+
+        List<XYChart.Data<String, Number>> slowest = new ArrayList<>();
+        ServerStats.getHeartbeatRtts().entrySet().stream()
+                .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+                .limit(Const.DASHBOARD_MAX_SCANNERS)
+                .forEach(entry -> slowest.add(new XYChart.Data<>(entry.getKey(), entry.getValue())));
+        heartbeat_series.getData().setAll(slowest);
+    }
+
+
+    private void addPoint(XYChart.Series<Number, Number> series, Number value) {
+        series.getData().add(new XYChart.Data<>(elapsed_seconds, value));
+        if (series.getData().size() > Const.DASHBOARD_WINDOW_SAMPLES) {
+            series.getData().remove(0);
+        }
+    }
+}
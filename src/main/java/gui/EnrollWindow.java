@@ -74,9 +74,7 @@ public class EnrollWindow {
         enroll_stage.setResizable(false);
         enroll_stage.setTitle("Fill out Form.");
         enroll_stage.setWidth(800);
-        for (Const.Icons i : Const.Icons.values()) {
-            enroll_stage.getIcons().add(i.getIconImage());
-        }
+        enroll_stage.getIcons().addAll(GuiResources.getWindowIcons());
         initHeaderUI();
         initBodyUI();
         initFooterUI();
@@ -106,18 +104,12 @@ public class EnrollWindow {
         age_field = new TextField();
         age_field.textProperty().addListener((observable, oldValue, newValue) -> {
             // Check if input is a number and a valid age (from 1 to 99).
-            valid_age = age_field.getText().matches(
-                    "^([1-9]|[1-9][0-9])$"
-            );
+            valid_age = age_field.getText().matches(Const.AGE_PATTERN);
             updateButtonState();
         });
         gender_field = new ChoiceBox<>();
         gender_field.setValue("Select an option...");
-        gender_field.getItems().addAll(
-                "Male",
-                "Female",
-                "Other"
-        );
+        gender_field.getItems().addAll(Const.GENDERS);
         gender_field.getSelectionModel().selectedItemProperty().addListener((observable, oldValue, newValue) -> {
             valid_gender_selection = !gender_field.getValue()
                                                   .equals("Select an option...");
@@ -126,9 +118,7 @@ public class EnrollWindow {
         phone_number_field = new TextField();
         phone_number_field.textProperty().addListener((observable, oldValue, newValue) -> {
             // Check if valid PH phone number.
-            valid_phone_number = phone_number_field.getText().matches(
-                    "^(09|\\+639)\\d{9}$"
-            );
+            valid_phone_number = phone_number_field.getText().matches(Const.PHONE_NUMBER_PATTERN);
             updateButtonState();
         });
         address_field = new TextField();
@@ -141,14 +131,7 @@ public class EnrollWindow {
         fingerprint_id_field.textProperty().addListener((observable, old_value, new_value) -> {
             String fingerprint_id_unparsed = fingerprint_id_field.getText();
             valid_fingerprint_id = false;
-            boolean validInput = fingerprint_id_unparsed.matches(
-                    // 0-255
-                    "^(2[0-5][0-5]|" +
-                            "1[0-9][0-9]|" +
-                            "[1-9][0-9]|" +
-                            "[1-9]" +
-                            ")$"
-            );
+            boolean validInput = fingerprint_id_unparsed.matches(Const.FINGERPRINT_ID_PATTERN); // 1-255
             if (validInput) {
                 int fingerprint_id = Integer.parseInt(fingerprint_id_unparsed);
                 valid_fingerprint_id = !database_manager.checkFingerIDExists(fingerprint_id, client_id);
@@ -0,0 +1,76 @@
+package gui;
+
+import javafx.scene.image.Image;
+import javafx.scene.text.Font;
+import utility.Const;
+
+import java.util.List;
+
+/**
+ * The GuiResources class holds the images and fonts used by the windows.
+ * They are kept out of Const so the non-GUI code, including the headless
+ * server, never loads a JavaFX class.
+ * <p>
+ *     Every resource is loaded the first time it is used, by its own holder
+ *     class, so a window only pays for the resources it shows. The window icons
+ *     are decoded in the background.
+ * </p>
+ */
+public class GuiResources {
+
+    /**
+     * Disable instantiation of this object.
+     */
+    private GuiResources() {}
+
+
+    /**
+     * @return the icons of every window, from the largest to the smallest.
+     */
+    public static List<Image> getWindowIcons() {
+        return WindowIconsHolder.ICONS;
+    }
+
+
+    public static Image getEnrollIcon() {
+        return EnrollIconHolder.ICON;
+    }
+
+
+    public static Image getDisconnectIcon() {
+        return DisconnectIconHolder.ICON;
+    }
+
+
+    /**
+     * @return the font of the console.
+     */
+    public static Font getConsoleFont() {
+        return ConsoleFontHolder.FONT;
+    }
+
+
+    private static class WindowIconsHolder {
+        static final List<Image> ICONS = List.of(
+                new Image(Const.ICON_PATH, true),
+                new Image(Const.ICON64_PATH, true),
+                new Image(Const.ICON32_PATH, true),
+                new Image(Const.ICON16_PATH, true)
+        );
+    }
+
+
+    private static class EnrollIconHolder {
+        static final Image ICON = new Image(Const.ENROLL_ICON_PATH);
+    }
+
+
+    private static class DisconnectIconHolder {
+        static final Image ICON = new Image(Const.DISCONNECT_ICON_PATH);
+    }
+
+
+    private static class ConsoleFontHolder {
+        static final Font FONT = new Font("Consolas", 13);
+    }
+}
@@ -44,9 +44,7 @@ public class LoginWindow {
         login_stage.setAlwaysOnTop(true);
         login_stage.setResizable(false);
 
-        for (Const.Icons i : Const.Icons.values()) {
-            login_stage.getIcons().add(i.getIconImage());
-        }
+        login_stage.getIcons().addAll(GuiResources.getWindowIcons());
 
         initUI();
         // Handle the login window close event.
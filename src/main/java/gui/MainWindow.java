@@ -1,18 +1,15 @@
 package gui;
 
 import core.EventData;
+import javafx.animation.AnimationTimer;
 import javafx.application.Platform;
 import javafx.application.Application;
 import javafx.collections.FXCollections;
-import javafx.collections.ListChangeListener;
 import javafx.collections.ObservableList;
 import javafx.event.ActionEvent;
 import javafx.geometry.Insets;
-import javafx.scene.Node;
 import javafx.scene.image.ImageView;
 import javafx.scene.paint.Color;
-import javafx.scene.text.Text;
-import javafx.scene.text.TextFlow;
 import javafx.stage.Stage;
 import javafx.scene.Scene;
 import javafx.scene.control.*;
@@ -20,12 +17,31 @@ import javafx.scene.input.KeyCode;
 import javafx.scene.layout.*;
 import javafx.util.Duration;
 import java.io.IOException;
-import java.util.ArrayList;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.LongAdder;
+import core.AdminHttpServer;
+import core.AttendanceFeedServer;
+import core.AppContext;
 import core.CommandExecutor;
+import core.QueryStats;
 import core.ServerManager;
+import core.StartupWarmUp;
 import utility.Const;
+import utility.FileLogSink;
+import utility.LatencyHistogram;
 import utility.LogHelper;
+import utility.LogIndex;
+import utility.LogRecord;
+import utility.LogRingBuffer;
 import utility.LogTypes;
+import utility.MetricsRegistry;
+import utility.StartupTimer;
+import utility.TempEnrollmentData;
 
 
 /**
@@ -37,9 +53,16 @@ import utility.LogTypes;
         "FieldCanBeLocal",
         "unused"
 })
-public class MainWindow extends Application {
+public class MainWindow extends Application implements AppContext {
+    private static final LatencyHistogram CONSOLE_RENDER_MICROS = MetricsRegistry.histogram("console.render_micros");
+    private static final LongAdder CONSOLE_DROPPED = MetricsRegistry.counter("console.dropped");
+
     private final ObservableList<String> commands_list = FXCollections.observableArrayList();
     private final ObservableList<String> clients_list = FXCollections.observableArrayList();
+    private final LogRingBuffer<LogRecord> console_buffer = new LogRingBuffer<>(Const.CONSOLE_BUFFER_CAPACITY);
+    private final List<LogRecord> console_batch = new ArrayList<>();
+    private final LogIndex log_index = new LogIndex(Const.LOG_INDEX_CAPACITY);
+    private final ConcurrentLinkedQueue<ClientChange> client_changes = new ConcurrentLinkedQueue<>();
     private ServerManager server_manager;
     private LoginWindow login_window;
     private Stage primary_stage;
@@ -53,7 +76,11 @@ public class MainWindow extends Application {
     private Button start_server_button;
     private Button stop_server_button;
     private Label console_label;
-    private TextFlow console_output;
+    private ListView<LogRecord> console_output;
+    private ConsoleRingList<LogRecord> console_lines;
+    private AnimationTimer console_renderer;
+    private DashboardPane dashboard;
+    private FileLogSink log_sink;
     private TextField command_field;
     private Button command_button;
 
@@ -73,6 +100,17 @@ public class MainWindow extends Application {
         event_data = new EventData();
         event_data.setCurrentEventName("Unspecified");
         event_data.setCurrentEventLocation("Unspecified");
+
+        log_sink = new FileLogSink(
+                Path.of(System.getProperty("user.dir"), Const.LOG_DIRECTORY),
+                Const.LOG_BASE_NAME,
+                Const.LOG_MAX_BYTES,
+                Const.LOG_MAX_AGE_MILLIS,
+                Const.LOG_GZIP_ROTATED
+        );
+        log_sink.setErrorListener(this::sendToConsole); // e.g. a full disk, shown in the console.
+        log_sink.start();
+        StartupTimer.mark("init");
     }
 
 
@@ -84,12 +122,19 @@ public class MainWindow extends Application {
      */
     @Override
     public void start(Stage stage) {
+        StartupWarmUp.start(this); // warm up the database while the user fills in the login window.
+        QueryStats.logSlowQueriesTo(this);
+        MetricsRegistry.registerMBean();
+
         login_window = new LoginWindow(new Stage());
         login_window.initUI();
+        StartupTimer.mark("login-window");
         login_window.showAndWait(); // blocking method
+        StartupTimer.mark("login (waiting for the user)");
 
         primary_stage = stage;
         initUI();
+        StartupTimer.mark("main-window");
         // handle the MainWindow close event
         // if the server is not closed then remind user to close.
         // NOTE: if server_manager is null then a NullPointerException is thrown.
@@ -107,9 +152,7 @@ public class MainWindow extends Application {
                     alert_window.setContentText("Please close the server before exiting the app.");
                     // Adding icon to the alert window
                     Stage alert_window_stage = (Stage) alert_window.getDialogPane().getScene().getWindow();
-                    for (Const.Icons i : Const.Icons.values()) {
-                        alert_window_stage.getIcons().add(i.getIconImage());
-                    }
+                    alert_window_stage.getIcons().addAll(GuiResources.getWindowIcons());
                     // Adding a stylesheet to the alert window
                     DialogPane alert_window_dialog_pane = alert_window.getDialogPane();
                     alert_window_dialog_pane.getStyleClass().add("alert-window");
@@ -129,6 +172,8 @@ public class MainWindow extends Application {
         // to continue to the main app.
         if (!login_window.getWillExitApp()) {
             primary_stage.show();
+            StartupTimer.mark("show");
+            sendToConsole(LogHelper.log(StartupTimer.report(), LogTypes.INFO));
         }
     }
 
@@ -138,6 +183,11 @@ public class MainWindow extends Application {
      */
     @Override
     public void stop() {
+        if (console_renderer != null) console_renderer.stop();
+        if (dashboard != null) dashboard.stop();
+        AdminHttpServer.stop();
+        AttendanceFeedServer.stop();
+        if (log_sink != null) log_sink.close();
         LogHelper.debugLog("Successfully close the app.");
     }
 
@@ -198,30 +248,28 @@ public class MainWindow extends Application {
         // ----- Column 2 ----- //
         VBox col2 = new VBox();
 
-        ScrollPane console_container = new ScrollPane();
-        console_container.getStyleClass().add("console-container");
-        console_container.setFitToWidth(false);
-        console_container.setHbarPolicy(ScrollPane.ScrollBarPolicy.AS_NEEDED);  // show console scrollbar when needed
-        console_container.setVbarPolicy(ScrollPane.ScrollBarPolicy.ALWAYS);     // Always show console scrollbar
-        console_container.setPannable(false);
-
         console_label = new Label("Console");
-        console_output = new TextFlow();
+        console_lines = new ConsoleRingList<>(Const.CONSOLE_CAPACITY);
+        console_output = new ListView<>(console_lines);
         console_output.getStyleClass().add("console-output");
+        console_output.setCellFactory(param -> new ConsoleCell()); // only the visible lines get a cell.
         console_output.setMaxSize(Double.MAX_VALUE, Double.MAX_VALUE);
         console_output.setFocusTraversable(false);
-        console_output.getChildren().addListener((ListChangeListener<Node>) observable -> {
-            console_output.layout();        // update the layout of the text nodes.
-            console_container.layout();     // update the layout of the console output node.
-            console_container.setVvalue(1); // Auto scroll to bottom of the console.
-        });
-        console_container.setContent(console_output);
+
+        // drain the logged text once per frame instead of once per line.
+        console_renderer = new AnimationTimer() {
+            @Override
+            public void handle(long now) {
+                renderConsoleBatch();
+                applyClientChanges();
+            }
+        };
+        console_renderer.start();
 
         // initialize console text
-        Text namegroup_Text = new Text("Wireless-Fingerprint-Based-Attendance-Logger-Server by NameGroup.\n\n");
-        namegroup_Text.setFont(Const.CONSOLAS);
-        namegroup_Text.setFill(Color.WHITE);
-        console_output.getChildren().add(namegroup_Text);
+        sendToConsole(LogHelper.log(
+                "Wireless-Fingerprint-Based-Attendance-Logger-Server by NameGroup.", LogTypes.CONSOLE
+        ));
 
         command_field = new TextField();
         command_field.getStyleClass().add("command-field");
@@ -238,21 +286,33 @@ public class MainWindow extends Application {
 
         col2.getChildren().addAll(
                 console_label,
-                console_container,
+                console_output,
                 command_field
         );
 
         // fill the remaining spaces on the gui by stretching the components.
-        VBox.setVgrow(console_container, Priority.ALWAYS);
+        VBox.setVgrow(console_output, Priority.ALWAYS);
         HBox.setHgrow(command_field, Priority.ALWAYS);
 
+        // ----- Tabs ----- //
+        dashboard = new DashboardPane(this);
+        Tab console_tab = new Tab("Console", col2);
+        Tab dashboard_tab = new Tab("Dashboard", dashboard);
+        // only sample the stats while the dashboard is visible.
+        dashboard_tab.setOnSelectionChanged(event -> {
+            if (dashboard_tab.isSelected()) dashboard.start();
+            else dashboard.stop();
+        });
+        TabPane tabs = new TabPane(console_tab, dashboard_tab);
+        tabs.setTabClosingPolicy(TabPane.TabClosingPolicy.UNAVAILABLE);
+
         // ----- Layout ----- //
         BorderPane root = new BorderPane();
         root.setLeft(col1);
-        root.setCenter(col2);
+        root.setCenter(tabs);
 
         BorderPane.setMargin(col1, new Insets(Const.WindowSizes.BORDERPANE_MARGIN.getValue()));
-        BorderPane.setMargin(col2, new Insets(Const.WindowSizes.BORDERPANE_MARGIN.getValue()));
+        BorderPane.setMargin(tabs, new Insets(Const.WindowSizes.BORDERPANE_MARGIN.getValue()));
 
         // ----- Stage and Scene ----- //
         Scene scene = new Scene(root);
@@ -264,9 +324,7 @@ public class MainWindow extends Application {
         primary_stage.setMinHeight(Const.WindowSizes.MIN_HEIGHT.getValue());
         primary_stage.setMinWidth(Const.WindowSizes.MIN_WIDTH.getValue());
         primary_stage.setTitle(Const.StringValues.WINDOW_TITLE.getValue());
-        for (Const.Icons i : Const.Icons.values()) {
-            primary_stage.getIcons().add(i.getIconImage());
-        }
+        primary_stage.getIcons().addAll(GuiResources.getWindowIcons());
         primary_stage.setScene(scene);
     }
 
@@ -324,57 +382,239 @@ public class MainWindow extends Application {
     }
 
 
+    @Override
+    public void startServer() {
+        callOnFxThread(() -> {
+            start_server(new ActionEvent());
+            return null;
+        });
+    }
+
+
+    @Override
+    public void stopServer() {
+        callOnFxThread(() -> {
+            stop_server(new ActionEvent());
+            return null;
+        });
+    }
+
+
+    /**
+     * Run a task on a daemon thread, so the console keeps taking input while it runs.
+     */
+    @Override
+    public void runInBackground(String name, Runnable task) {
+        Thread background_thread = new Thread(task, name);
+        background_thread.setDaemon(true);
+        background_thread.start();
+    }
+
+
+    /**
+     * Call a task on the JavaFX application thread and wait for its result,
+     * e.g. when a script command touches the gui from a background thread.
+     * @param task the task to be called.
+     * @return the result of the task, or null if it failed.
+     */
+    private <T> T callOnFxThread(Callable<T> task) {
+        FutureTask<T> future_task = new FutureTask<>(task);
+        if (Platform.isFxApplicationThread()) future_task.run();
+        else Platform.runLater(future_task);
+        try {
+            return future_task.get();
+        }
+        catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+        catch (ExecutionException ee) {
+            ee.printStackTrace();
+            return null;
+        }
+    }
+
+
+    @Override
     public ServerManager getServerManager() {
         return server_manager;
     }
 
 
     /**
-     * Append text to the console. This method is run in a thread to
-     * avoid concurrency errors.
-     * @param rich_text formatted text to be appended.
-     * @implNote send to console's text parameter should be returned by
+     * Append a log record to the console. The record is queued in a lock-free ring
+     * buffer and rendered on the next frame, so this method never blocks and is
+     * safe to call from any thread. The record is also written to the log file.
+     * @param record the record to be appended. Null records are ignored.
+     * @implNote send to console's record parameter should be returned by
      * LogHelper's log function.
      * @see LogHelper for console logging.
      */
-    public void sendToConsole(Text rich_text) {
-        if (rich_text != null) {
-            Platform.runLater(() -> console_output.getChildren().add(rich_text));
+    @Override
+    public void sendToConsole(LogRecord record) {
+        if (record != null) {
+            console_buffer.offer(record);
+            log_sink.publish(record);
         }
     }
 
 
     /**
-     * Update the list of clients that connected to the server.
-     * @param fsclients the list of clients to be displayed.
-     * @see ServerManager for the list of clients in the fsclients array list.
+     * Append every record queued since the last frame to the console as one batch,
+     * followed by a single scroll to the bottom. The oldest lines are evicted
+     * once the console is full; they remain in the log file.
+     * @implNote Called by the console renderer on the JavaFX application thread.
      */
-    public void updateClientsList(ArrayList<ServerManager.FSClient> fsclients) {
-        Platform.runLater(
-                () -> {
-                    clients_list.clear();
-                    for (ServerManager.FSClient client : fsclients) {
-                        clients_list.add(client.getClientName());
-                    }
-                });
+    private void renderConsoleBatch() {
+        long start_nanos = System.nanoTime();
+        console_buffer.drainTo(console_batch, Const.CONSOLE_MAX_LINES_PER_FRAME);
+        long dropped = console_buffer.takeDropped();
+        CONSOLE_DROPPED.add(dropped);
+        LogRecord dropped_record = dropped > 0 ? LogHelper.log(
+                dropped + " console messages were dropped because the console could not keep up.",
+                LogTypes.WARNING
+        ) : null;
+        if (dropped_record != null) console_batch.add(dropped_record); // null if warnings are turned off.
+        if (console_batch.isEmpty()) return;
+
+        log_index.addAll(console_batch);
+        // evicted records are not lost, every record is also written to the log file.
+        console_lines.appendEvicting(console_batch);
+        console_batch.clear();
+        console_output.scrollTo(console_lines.size() - 1); // Auto scroll to bottom of the console.
+        CONSOLE_RENDER_MICROS.record((System.nanoTime() - start_nanos) / 1000);
+    }
+
+
+    /**
+     * Returns the index of the recent log records, used by the log find command.
+     * @return the log index.
+     */
+    @Override
+    public LogIndex getLogIndex() {
+        return log_index;
     }
 
 
+    /**
+     * Queue a client to be added to the clients list. Safe to call from any thread.
+     * @param client_name the name of the client that connected.
+     * @see ServerManager
+     */
+    @Override
+    public void clientConnected(String client_name) {
+        client_changes.add(new ClientChange(client_name, true));
+    }
+
+
+    /**
+     * Queue a client to be removed from the clients list. Safe to call from any thread.
+     * @param client_name the name of the client that disconnected.
+     * @see ServerManager
+     */
+    @Override
+    public void clientDisconnected(String client_name) {
+        client_changes.add(new ClientChange(client_name, false));
+    }
+
+
+    /**
+     * Apply every client change queued since the last frame to the clients list.
+     * Changes are coalesced per client, so a client that connected and disconnected
+     * within a frame never reaches the list, and the list gets at most one removal
+     * and one addition per frame.
+     * @implNote Called by the console renderer on the JavaFX application thread.
+     */
+    private void applyClientChanges() {
+        if (client_changes.isEmpty()) return;
+
+        // client name -> true if connected at the end of the frame.
+        Map<String, Boolean> net_changes = new LinkedHashMap<>();
+        ClientChange change;
+        while ((change = client_changes.poll()) != null) {
+            net_changes.put(change.client_name(), change.is_connected());
+        }
+
+        Set<String> removed = new HashSet<>();
+        List<String> added = new ArrayList<>();
+        Set<String> listed = new HashSet<>(clients_list);
+        net_changes.forEach((client_name, is_connected) -> {
+            if (!is_connected && listed.contains(client_name)) removed.add(client_name);
+            else if (is_connected && !listed.contains(client_name)) added.add(client_name);
+        });
+        if (!removed.isEmpty()) clients_list.removeAll(removed);
+        if (!added.isEmpty()) clients_list.addAll(added);
+    }
+
+
+    @Override
     public EventData getEventData() {
         return event_data;
     }
 
 
     /**
-     * @implNote Used mainly by the CommandExecutor class
-     * @return a new EnrollWindow instance.
+     * Show an EnrollWindow and wait for the user to submit it.
+     * @implNote Used mainly by the CommandExecutor class. Safe to call from any thread.
+     * @return the submitted enrollment data, or null if the window was closed.
      * @see CommandExecutor
      */
-    public EnrollWindow getEnrollWindow(String client_id) {
-        return new EnrollWindow(new Stage(), client_id);
+    @Override
+    public TempEnrollmentData promptEnrollment(String client_id) {
+        return callOnFxThread(() -> showEnrollWindow(client_id));
     }
 
 
+    private TempEnrollmentData showEnrollWindow(String client_id) {
+        EnrollWindow enroll_window = new EnrollWindow(new Stage(), client_id);
+        if (!enroll_window.getIsSubmitted()) return null;
+
+        TempEnrollmentData enrollee_data = new TempEnrollmentData();
+        enrollee_data.buildEnrolleeName(
+                enroll_window.getFirstName(), enroll_window.getMiddleName(), enroll_window.getLastName()
+        );
+        enrollee_data.buildEnrolleeInfo(
+                enroll_window.getAge(),
+                enroll_window.getGender(),
+                enroll_window.getPhoneNumber(),
+                enroll_window.getAddress()
+        );
+        enrollee_data.setFingerprintId(Integer.toString(enroll_window.getFingerprintId()), client_id);
+        return enrollee_data;
+    }
+
+
+    /**
+     * The ConsoleCell renders one logged line of the console. Cells are reused
+     * by the ListView, so only the visible lines are ever formatted and laid out.
+     */
+    private static class ConsoleCell extends ListCell<LogRecord> {
+        @Override
+        public void updateItem(LogRecord item, boolean empty) {
+            super.updateItem(item, empty);
+            setGraphic(null);
+            if (empty || item == null) {
+                setText(null);
+                return;
+            }
+            setText(LogHelper.format(item));
+            setFont(GuiResources.getConsoleFont());
+            switch (item.getType()) {
+                case ERROR -> setTextFill(Color.RED);
+                case INFO -> setTextFill(Color.DODGERBLUE);
+                case WARNING, INVALID -> setTextFill(Color.ORANGE);
+                default -> setTextFill(Color.WHITE);
+            }
+        }
+    }
+
+
+    /**
+     * A client that connected to or disconnected from the server.
+     */
+    private record ClientChange(String client_name, boolean is_connected) {}
+
+
     /**
      * The ClientCell is a custom cell used by the clients_list_view object
      * which adds two buttons. One for enrolling and disconnecting from a
@@ -393,10 +633,10 @@ public class MainWindow extends Application {
         public ClientCell() {
             super();
 
-            enroll_icon = new ImageView(Const.ENROLL_ICON);
+            enroll_icon = new ImageView(GuiResources.getEnrollIcon());
             enroll_icon.setFitWidth(16);
             enroll_icon.setFitHeight(16);
-            disconnect_icon = new ImageView(Const.DISCONNECT_ICON);
+            disconnect_icon = new ImageView(GuiResources.getDisconnectIcon());
             disconnect_icon.setFitWidth(16);
             disconnect_icon.setFitHeight(16);
 
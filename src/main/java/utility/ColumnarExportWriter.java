@@ -0,0 +1,111 @@
+package utility;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes an export in a compact columnar binary format. The values are stored
+ * column by column so that repeated values, like event names, can be
+ * dictionary encoded.
+ * <p>
+ *     Layout, all integers are big-endian:
+ * </p>
+ * <pre>
+ * magic "FAEX", version (byte), column count (int), row count (int)
+ * for every column:
+ *     column name (UTF), encoding (byte)
+ *     PLAIN:      for every row: present (boolean), value (UTF) if present
+ *     DICTIONARY: entry count (int), entries (UTF),
+ *                 for every row: entry index + 1 (varint), 0 means null
+ * </pre>
+ * A column is dictionary encoded when it has at most one distinct value per
+ * {@link #DICTIONARY_RATIO} rows.
+ */
+public class ColumnarExportWriter implements ExportWriter {
+    public static final byte[] MAGIC = {'F', 'A', 'E', 'X'};
+    public static final byte VERSION = 1;
+    public static final byte PLAIN = 0;
+    public static final byte DICTIONARY = 1;
+    private static final int DICTIONARY_RATIO = 4;
+
+
+    @Override
+    public void write(List<String[]> data, OutputStream output) throws IOException {
+        DataOutputStream data_output = new DataOutputStream(output);
+        String[] header = data.isEmpty() ? new String[0] : data.get(0);
+        int row_count = Math.max(data.size() - 1, 0);
+
+        data_output.write(MAGIC);
+        data_output.writeByte(VERSION);
+        data_output.writeInt(header.length);
+        data_output.writeInt(row_count);
+
+        for (int column = 0; column < header.length; column++) {
+            data_output.writeUTF(header[column]);
+
+            Map<String, Integer> dictionary = buildDictionary(data, column, row_count);
+            if (dictionary == null) {
+                data_output.writeByte(PLAIN);
+                for (int row = 1; row <= row_count; row++) {
+                    String value = fieldAt(data.get(row), column);
+                    data_output.writeBoolean(value != null);
+                    if (value != null) data_output.writeUTF(value);
+                }
+            }
+            else {
+                data_output.writeByte(DICTIONARY);
+                data_output.writeInt(dictionary.size());
+                String[] entries = new String[dictionary.size()];
+                dictionary.forEach((value, index) -> entries[index] = value);
+                for (String entry : entries) {
+                    data_output.writeUTF(entry);
+                }
+                for (int row = 1; row <= row_count; row++) {
+                    String value = fieldAt(data.get(row), column);
+                    writeVarInt(data_output, value == null ? 0 : dictionary.get(value) + 1);
+                }
+            }
+        }
+        data_output.flush();
+    }
+
+
+    /**
+     * Build the dictionary of a column.
+     * @return the index of every distinct value, or null if the column has too many
+     * distinct values to benefit from dictionary encoding.
+     */
+    private static Map<String, Integer> buildDictionary(List<String[]> data, int column, int row_count) {
+        int max_entries = Math.max(row_count / DICTIONARY_RATIO, 1);
+        Map<String, Integer> dictionary = new HashMap<>();
+        for (int row = 1; row <= row_count; row++) {
+            String value = fieldAt(data.get(row), column);
+            if (value != null && dictionary.putIfAbsent(value, dictionary.size()) == null
+                    && dictionary.size() > max_entries) {
+                return null;
+            }
+        }
+        return dictionary;
+    }
+
+
+    private static String fieldAt(String[] row, int column) {
+        return column < row.length ? row[column] : null;
+    }
+
+
+    /**
+     * Write an unsigned variable-length integer, 7 bits per byte.
+     */
+    private static void writeVarInt(DataOutputStream data_output, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            data_output.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        data_output.writeByte(value);
+    }
+}
@@ -1,8 +1,5 @@
 package utility;
 
-import javafx.scene.image.Image;
-import javafx.scene.text.Font;
-
 /**
  * The Const class contains all the constant variables to be used
  * by the classes contained in the current package
@@ -19,16 +16,84 @@ public class Const {
     public static final long HEARTBEAT_INTERVAL = 5000;
     public static final long DISCON_THRESHOLD = 2 * HEARTBEAT_INTERVAL;
 
+    // for the console of the main window
+    public static final int CONSOLE_BUFFER_CAPACITY = 8192;
+    public static final int CONSOLE_MAX_LINES_PER_FRAME = 512;
+    public static final int CONSOLE_CAPACITY = 5000;
+    public static final int LOG_INDEX_CAPACITY = 50000;
+    public static final int LOG_FIND_MAX_RESULTS = 100;
+
+    // for the dashboard of the main window
+    public static final long DASHBOARD_REFRESH_MILLIS = 1000;
+    public static final int DASHBOARD_WINDOW_SAMPLES = 60;
+    public static final int DASHBOARD_MAX_SCANNERS = 20;
+
+    // for the command scripts
+    public static final int SCRIPT_MAX_PARALLEL_CLIENTS = 16;
+
+    // for the scan traces
+    public static final int TRACE_STORE_CAPACITY = 2048;
+    public static final int TRACE_SLOW_COUNT = 10;
+
+    // for the flight recordings, the oldest recorded data is dropped past either limit.
+    public static final long FLIGHT_RECORDING_MAX_BYTES = 256L * 1024 * 1024;
+    public static final long FLIGHT_RECORDING_MAX_AGE_MINUTES = 6 * 60;
+
+    // for the database statement stats
+    public static final long DB_SLOW_QUERY_MILLIS = 200;
+    public static final int DB_STATS_SQL_WIDTH = 72;
+    public static final int DB_REDACTED_SQL_CAPACITY = 1024;
+
+    // for the admin http server
+    public static final String ADMIN_HTTP_HOST = "127.0.0.1";
+    public static final int ADMIN_HTTP_PORT = 62610;
+
+    // for the attendance feed server
+    public static final String ATTENDANCE_FEED_HOST = "127.0.0.1";
+    public static final int ATTENDANCE_FEED_PORT = 62611;
+    public static final int ATTENDANCE_FEED_CAPACITY = 4096;
+    public static final int ATTENDANCE_FEED_MAX_SUBSCRIBERS = 256;
+    public static final long ATTENDANCE_FEED_KEEP_ALIVE_MILLIS = 15000;
+    public static final long ATTENDANCE_FEED_RETRY_MILLIS = 3000;
+    public static final long ATTENDANCE_FEED_WRITE_DEADLINE_MILLIS = 10000;
+    public static final long ATTENDANCE_FEED_REQUEST_TIMEOUT_MILLIS = 5000;
+    public static final int ATTENDANCE_FEED_MAX_REQUEST_BYTES = 8192;
+
+    // for the log files
+    public static final String LOG_DIRECTORY = "logs";
+    public static final String LOG_BASE_NAME = "attendance-server";
+    public static final long LOG_MAX_BYTES = 16L * 1024 * 1024;
+    public static final long LOG_MAX_AGE_MILLIS = 24L * 60 * 60 * 1000;
+    public static final boolean LOG_GZIP_ROTATED = true;
+    public static final int LOG_SINK_BUFFER_CAPACITY = 16384;
+    public static final long LOG_SINK_IDLE_MILLIS = 100;
+    public static final long LOG_SINK_RETRY_MILLIS = 1000;
+    public static final long LOG_SINK_MAX_RETRY_MILLIS = 30_000;
+
+    // for exporting attendance data
+    public static final int MAX_EXPORT_WORKERS = 16;
+    public static final long EXPORT_CACHE_MAX_BYTES = 256L * 1024 * 1024;
+    public static final long EXPORT_SETTLE_SECONDS = 30;
+    public static final String[] ATTENDANCE_EXPORT_COLUMNS =
+            {"Attendee Name", "Date Attended", "Time Attended", "Event Name", "Event Location"};
+
     public static final String CHARSET = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789";
     public static final String ICON_PATH = "img/icondefault.png";
     public static final String ICON64_PATH = "img/icon64x64.png";
     public static final String ICON32_PATH = "img/icon32x32.png";
     public static final String ICON16_PATH = "img/icon16x16.png";
+    public static final String ENROLL_ICON_PATH = "img/enroll24x24.png";
+    public static final String DISCONNECT_ICON_PATH = "img/disconnect24x24.png";
 
-    public static final Image ENROLL_ICON = new Image("img/enroll24x24.png");
-    public static final Image DISCONNECT_ICON = new Image("img/disconnect24x24.png");
+    // for validating enrollment data, in the enroll window and in headless mode.
+    public static final String AGE_PATTERN = "^([1-9]|[1-9][0-9])$";
+    public static final String PHONE_NUMBER_PATTERN = "^(09|\\+639)\\d{9}$";
+    public static final String FINGERPRINT_ID_PATTERN = "^(25[0-5]|2[0-4][0-9]|1[0-9][0-9]|[1-9][0-9]|[1-9])$"; // 1-255
+    public static final String[] GENDERS = {"Male", "Female", "Other"};
 
-    public static final Font CONSOLAS = new Font("Consolas", 13);
+    // for the headless server
+    public static final String DEFAULT_HOST = "0.0.0.0";
+    public static final int DEFAULT_PORT = 62609;
 
     public enum WindowSizes {
         MIN_HEIGHT(600),
@@ -125,26 +190,54 @@ public class Const {
         ),
         TOCSV_DATE(
                 8,
-                "Export data from the database according to a specified date.",
-                "export date <yyyy-mm-dd>",
+                "Export data from the database according to a specified date. " +
+                        "Every export accepts --format=csv (default), csv.gz, jsonl or bin.",
+                "export date <yyyy-mm-dd> [--format=<fmt>]",
                 "export"
         ),
         TOCSV_EVENT(
                 8,
-                "Export data from the database according to a specified event name.",
-                "export event <event-name>",
+                "Export data from the database according to a specified event name. Quote a multi-word name.",
+                "export event <event-name> [--format=<fmt>]",
                 "export"
         ),
         TOCSV_ALLUSER(
                 8,
                 "Export all users from the database.",
-                "export all_users",
+                "export all_users [--format=<fmt>]",
                 "export"
         ),
         TOCSV_ALLATTENDANCE(
                 8,
                 "Export all attendance data from the database.",
-                "export all_attendance",
+                "export all_attendance [--format=<fmt>]",
+                "export"
+        ),
+        TOCSV_PARALLEL(
+                8,
+                "Export all attendance data by reading attendance id ranges in parallel. " +
+                        "Use --parts to write one numbered file per range.",
+                "export parallel <workers> [--parts] [--format=<fmt>]",
+                "export"
+        ),
+        TOCSV_RANGE(
+                8,
+                "Export attendance data between two dates by reading date ranges in parallel. " +
+                        "Use --parts to write one numbered file per range.",
+                "export range <yyyy-mm-dd> <yyyy-mm-dd> <workers> [--parts] [--format=<fmt>]",
+                "export"
+        ),
+        TOCSV_SINCE_LAST(
+                8,
+                "Export the attendance recorded since the last export of a consumer and append it " +
+                        "to <name>. Use --rotate to write a new timestamped file instead.",
+                "export since-last <name> [--rotate] [--format=<fmt>]",
+                "export"
+        ),
+        TOCSV_BENCH(
+                8,
+                "Time the all attendance range export on one worker and on n workers without writing a file.",
+                "export bench <workers>",
                 "export"
         ),
         DISPLAY_CURRENT_EVENT_DATA(
@@ -156,8 +249,7 @@ public class Const {
         SET_EVENT_DATA(
                 10,
                 "Set the new event name and location of the event. " +
-                        "multi-word event name and event loc must be" +
-                        "separated by spaces",
+                        "Quote a multi-word name or location, e.g. event new \"Science Fair\" \"Main Hall\".",
                 "event new <name> <location>",
                 "event new"
         ),
@@ -172,6 +264,76 @@ public class Const {
                 "[for-debug-only] Empty the database of a client.",
                 "deletealldatafromdatabase <client-name>",
                 "deletealldatafromdatabase"
+        ),
+        LOG_LEVEL(
+                13,
+                "Show or hide the console and log file lines of a log type. " +
+                        "Hidden lines are never built.",
+                "log level <type|all> <on|off>",
+                "log level"
+        ),
+        LOG_HEARTBEAT(
+                14,
+                "Log every client heartbeat, one summary line with the min/avg/max round trip time " +
+                        "per heartbeat interval, or no heartbeats at all.",
+                "log heartbeat <each|summary|off>",
+                "log heartbeat"
+        ),
+        LOG_FIND(
+                15,
+                "Find the recent log lines of a client name, a log type or a text such as a fingerprint id. " +
+                        "Since is a duration like 30s, 15m or 2h, or a time of today like 08:30.",
+                "log find <client|type|text> [since]",
+                "log find"
+        ),
+        RUN_SCRIPT(
+                16,
+                "Run the commands of a file, one per line. Lines starting with # are skipped. " +
+                        "Commands on different clients run in parallel.",
+                "run <script-file>",
+                "run"
+        ),
+        ADMIN_HTTP(
+                17,
+                "Start or stop the HTTP admin and metrics API on localhost. " +
+                        "Every request needs the bearer token of ADMIN_TOKEN in the .env file, or the logged one.",
+                "admin <start|stop> [port]",
+                "admin"
+        ),
+        METRICS(
+                18,
+                "Show the counters and latency histograms of the server, optionally only those " +
+                        "starting with a prefix such as db or client. Also readable over JMX.",
+                "metrics [prefix]",
+                "metrics"
+        ),
+        FLIGHT_RECORDING(
+                19,
+                "Start a Java Flight Recorder recording of the scans, enrollments, database methods, " +
+                        "exports and client connections, write it to a .jfr file, or write it and stop.",
+                "jfr <start|dump|stop>",
+                "jfr"
+        ),
+        TRACE(
+                20,
+                "Show the time of every phase of the last n scans, or of the slowest stored scans. " +
+                        "The trace id of a scan is in its console line.",
+                "trace <last <n>|slow [n]>",
+                "trace"
+        ),
+        DATABASE_STATS(
+                21,
+                "Show the count, p50, p99, total time and rows of every database statement, the most " +
+                        "total time first, or set the time above which a statement is logged as slow.",
+                "db <stats|slow <ms>>",
+                "db"
+        ),
+        ATTENDANCE_FEED(
+                22,
+                "Start or stop the live attendance feed for displays, bound to FEED_HOST of the .env file " +
+                        "(localhost by default). Subscribers need FEED_TOKEN, or the logged token.",
+                "feed <start|stop> [port]",
+                "feed"
         );
 
 
@@ -203,22 +365,4 @@ public class Const {
         }
     }
 
-
-    public enum Icons {
-        ICON_DEFAULT(new Image(ICON_PATH)),
-        ICON_64(new Image(ICON64_PATH)),
-        ICON_32(new Image(ICON32_PATH)),
-        ICON_16(new Image(ICON16_PATH));
-
-        private final Image img;
-        Icons (Image img) {
-            this.img = img;
-        }
-
-
-        public Image getIconImage() {
-            return img;
-        }
-    }
-
 }
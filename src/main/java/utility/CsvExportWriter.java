@@ -0,0 +1,39 @@
+package utility;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes an export as RFC 4180 CSV, optionally gzip-compressed.
+ * @see CsvRowEncoder
+ */
+public class CsvExportWriter implements ExportWriter {
+    private final boolean gzip;
+
+
+    /**
+     * @param gzip true to compress the CSV with gzip.
+     */
+    public CsvExportWriter(boolean gzip) {
+        this.gzip = gzip;
+    }
+
+
+    @Override
+    public void write(List<String[]> data, OutputStream output) throws IOException {
+        GZIPOutputStream gzip_output = gzip ? new GZIPOutputStream(output, Exporter.BUFFER_SIZE) : null;
+        Writer csv_writer = new BufferedWriter(
+                new OutputStreamWriter(gzip ? gzip_output : output, StandardCharsets.UTF_8),
+                Exporter.BUFFER_SIZE
+        );
+
+        CsvRowEncoder csv_encoder = new CsvRowEncoder();
+        for (String[] row : data) {
+            csv_encoder.writeRow(csv_writer, row);
+        }
+        csv_writer.flush();
+        if (gzip_output != null) gzip_output.finish(); // write the gzip trailer without closing the output.
+    }
+}
@@ -0,0 +1,109 @@
+package utility;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Encodes rows of fields into CSV lines following RFC 4180. A field is quoted
+ * only if it contains a comma, a double quote or a line break, and double
+ * quotes inside a quoted field are escaped by doubling them.
+ * <p>
+ *     The encoder keeps one character buffer that is reused for every row, so
+ *     encoding a row does not create any intermediate String. An encoder is not
+ *     thread safe; use one encoder per export.
+ * </p>
+ */
+public class CsvRowEncoder {
+    private static final char[] LINE_END = {'\r', '\n'};
+
+    private char[] buffer = new char[256];
+    private int length;
+
+
+    /**
+     * Encode a row and write it, including the line break, to the writer.
+     * @param writer the writer the encoded row is written to.
+     * @param fields the fields of the row. Null fields are written as empty fields.
+     * @throws IOException if an I/O error occurs.
+     */
+    public void writeRow(Writer writer, String[] fields) throws IOException {
+        encode(fields);
+        writer.write(buffer, 0, length);
+    }
+
+
+    /**
+     * Encode a row into the reusable buffer, ending it with CRLF.
+     * @param fields the fields of the row.
+     */
+    private void encode(String[] fields) {
+        length = 0;
+        for (int i = 0; i < fields.length; i++) {
+            if (i > 0) append(',');
+            appendField(fields[i]);
+        }
+        ensureCapacity(LINE_END.length);
+        System.arraycopy(LINE_END, 0, buffer, length, LINE_END.length);
+        length += LINE_END.length;
+    }
+
+
+    /**
+     * Append a single field, quoting it only if it is needed.
+     * @param field the field to be appended.
+     */
+    private void appendField(String field) {
+        if (field == null) return;
+
+        int field_length = field.length();
+        if (!needsQuotes(field)) {
+            ensureCapacity(field_length);
+            field.getChars(0, field_length, buffer, length);
+            length += field_length;
+            return;
+        }
+
+        ensureCapacity(field_length + 2);
+        buffer[length++] = '"';
+        for (int i = 0; i < field_length; i++) {
+            char c = field.charAt(i);
+            if (c == '"') append('"'); // escape a double quote by doubling it.
+            append(c);
+        }
+        append('"');
+    }
+
+
+    /**
+     * Check if a field has to be enclosed in double quotes.
+     * @param field the field to be checked.
+     * @return true if the field contains a comma, a double quote or a line break.
+     */
+    private static boolean needsQuotes(String field) {
+        for (int i = 0; i < field.length(); i++) {
+            char c = field.charAt(i);
+            if (c == ',' || c == '"' || c == '\n' || c == '\r') return true;
+        }
+        return false;
+    }
+
+
+    private void append(char c) {
+        ensureCapacity(1);
+        buffer[length++] = c;
+    }
+
+
+    /**
+     * Grow the buffer if the additional characters do not fit.
+     * @param additional the number of characters about to be appended.
+     */
+    private void ensureCapacity(int additional) {
+        int required = length + additional;
+        if (required > buffer.length) {
+            char[] grown = new char[Math.max(required, buffer.length * 2)];
+            System.arraycopy(buffer, 0, grown, 0, length);
+            buffer = grown;
+        }
+    }
+}
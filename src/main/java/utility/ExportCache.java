@@ -0,0 +1,189 @@
+package utility;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * The ExportCache keeps generated export files on disk so a repeated export of
+ * data that did not change can reuse the file instead of querying the database
+ * again. Entries are keyed by the query parameters, the format and a data
+ * version of the queried day or event, so any change to the data makes the old
+ * entry unreachable.
+ * <p>
+ *     The cache is bounded by {@link Const#EXPORT_CACHE_MAX_BYTES}. The least
+ *     recently used files are deleted first; the last modified time of a file
+ *     records its last use so the order survives a restart.
+ * </p>
+ * <p>
+ *     A cached file is only read while holding the lock of the cache, in
+ *     {@link #copyTo(String, ExportFormat, String)}, so an eviction by a
+ *     concurrent export can not delete it in the middle of a copy.
+ * </p>
+ */
+public class ExportCache {
+    private static final String CACHE_DIRECTORY = "export-cache";
+
+    // file name -> file size, in least recently used order.
+    private static LinkedHashMap<String, Long> entries;
+    private static long total_bytes;
+
+    private ExportCache() {}
+
+
+    /**
+     * Build the key of a cache entry.
+     * @param query the query parameters, e.g. "date=2023-03-01".
+     * @param version the data version of the queried partition.
+     * @param format the format of the export.
+     * @return the key.
+     */
+    public static String buildKey(String query, String version, ExportFormat format) {
+        return query + ";format=" + format.getName() + ";version=" + version;
+    }
+
+
+    /**
+     * Copy a cached export file to a new export file.
+     * @param key the key built by {@link #buildKey(String, String, ExportFormat)}.
+     * @param format the format of the export.
+     * @param filename the name of the new export file, without the extension.
+     * @return the full name of the new export file, or null if there is no entry.
+     * @throws IOException if the new export file can not be written.
+     * @see Exporter#copyExport(String, Path, ExportFormat)
+     */
+    public static synchronized String copyTo(String key, ExportFormat format, String filename) throws IOException {
+        Path cache_path = lookup(key, format);
+        if (cache_path == null) return null;
+        try {
+            return Exporter.copyExport(filename, cache_path, format);
+        }
+        catch (NoSuchFileException nsfe) {
+            // deleted outside the app since the lookup.
+            Long size = entries.remove(toFilename(key, format));
+            if (size != null) total_bytes -= size;
+            return null;
+        }
+    }
+
+
+    /**
+     * Find a cached export file. Only read it while holding the lock of the cache.
+     * @param key the key built by {@link #buildKey(String, String, ExportFormat)}.
+     * @param format the format of the export.
+     * @return the path of the cached file, or null if there is no entry.
+     */
+    private static Path lookup(String key, ExportFormat format) {
+        loadEntries();
+        String cache_filename = toFilename(key, format);
+        if (entries.get(cache_filename) == null) return null; // get() also marks the entry as recently used.
+
+        Path cache_path = getDirectory().resolve(cache_filename);
+        try {
+            Files.setLastModifiedTime(cache_path, FileTime.fromMillis(System.currentTimeMillis()));
+        }
+        catch (IOException ioe) {
+            // the file was deleted outside the app.
+            total_bytes -= entries.remove(cache_filename);
+            return null;
+        }
+        return cache_path;
+    }
+
+
+    /**
+     * Keep a copy of an export file and evict the least recently used files
+     * until the cache fits in its bound again.
+     * @param key the key built by {@link #buildKey(String, String, ExportFormat)}.
+     * @param format the format of the export.
+     * @param export_path the export file to be cached.
+     * @throws IOException if the file can not be copied.
+     */
+    public static synchronized void store(String key, ExportFormat format, Path export_path) throws IOException {
+        loadEntries();
+        String cache_filename = toFilename(key, format);
+        Path cache_path = getDirectory().resolve(cache_filename);
+        Files.createDirectories(getDirectory());
+        Files.copy(export_path, cache_path, StandardCopyOption.REPLACE_EXISTING);
+
+        Long replaced_size = entries.put(cache_filename, Files.size(cache_path));
+        total_bytes += entries.get(cache_filename) - (replaced_size == null ? 0 : replaced_size);
+
+        Iterator<Map.Entry<String, Long>> eldest = entries.entrySet().iterator();
+        while (total_bytes > Const.EXPORT_CACHE_MAX_BYTES && eldest.hasNext()) {
+            Map.Entry<String, Long> entry = eldest.next();
+            if (entry.getKey().equals(cache_filename)) continue; // never evict the entry just stored.
+            Files.deleteIfExists(getDirectory().resolve(entry.getKey()));
+            total_bytes -= entry.getValue();
+            eldest.remove();
+        }
+    }
+
+
+    /**
+     * Load the index of the cache ahead of the first export.
+     * Meant to run in the background during startup.
+     */
+    public static synchronized void preload() {
+        loadEntries();
+    }
+
+
+    /**
+     * Rebuild the index from the cache directory, oldest use first.
+     * Only done once, the index is kept in memory afterwards.
+     */
+    private static void loadEntries() {
+        if (entries != null) return;
+        entries = new LinkedHashMap<>(16, 0.75f, true);
+        total_bytes = 0;
+        if (!Files.isDirectory(getDirectory())) return;
+
+        try (Stream<Path> files = Files.list(getDirectory())) {
+            List<Path> cache_files = new ArrayList<>(files.filter(Files::isRegularFile).toList());
+            cache_files.sort(Comparator.comparing(ExportCache::lastModified));
+            for (Path cache_file : cache_files) {
+                long size = Files.size(cache_file);
+                entries.put(cache_file.getFileName().toString(), size);
+                total_bytes += size;
+            }
+        }
+        catch (IOException ioe) {
+            ioe.printStackTrace();
+        }
+    }
+
+
+    private static FileTime lastModified(Path path) {
+        try {
+            return Files.getLastModifiedTime(path);
+        }
+        catch (IOException ioe) {
+            return FileTime.fromMillis(0);
+        }
+    }
+
+
+    /**
+     * Hash the key into a file name so any query parameter is safe to use.
+     */
+    private static String toFilename(String key, ExportFormat format) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest) + format.getExtension();
+        }
+        catch (NoSuchAlgorithmException nsae) {
+            throw new IllegalStateException(nsae); // every JVM must support SHA-256.
+        }
+    }
+
+
+    private static Path getDirectory() {
+        return Path.of(System.getProperty("user.dir"), CACHE_DIRECTORY);
+    }
+}
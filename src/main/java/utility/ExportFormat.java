@@ -0,0 +1,76 @@
+package utility;
+
+/**
+ * The ExportFormat enum lists the file formats an export can be written in.
+ * The format is selected with the {@code --format=<name>} flag of the export commands.
+ */
+public enum ExportFormat {
+    CSV("csv", ".csv", true, true),
+    CSV_GZIP("csv.gz", ".csv.gz", true, true),
+    JSON_LINES("jsonl", ".jsonl", false, true),
+    COLUMNAR("bin", ".bin", false, false);
+
+    private final String name;
+    private final String extension;
+    private final boolean header_row;
+    private final boolean appendable;
+
+    ExportFormat(String name, String extension, boolean header_row, boolean appendable) {
+        this.name = name;
+        this.extension = extension;
+        this.header_row = header_row;
+        this.appendable = appendable;
+    }
+
+
+    public String getName() {
+        return name;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    /**
+     * @return true if the header is written to the file as its own row.
+     */
+    public boolean hasHeaderRow() {
+        return header_row;
+    }
+
+    /**
+     * @return true if new rows can be appended to an existing file of this format.
+     * Gzip files are appended as a new gzip member.
+     */
+    public boolean isAppendable() {
+        return appendable;
+    }
+
+
+    /**
+     * Create a new writer for this format.
+     * @return the writer.
+     */
+    public ExportWriter newWriter() {
+        return switch (this) {
+            case CSV -> new CsvExportWriter(false);
+            case CSV_GZIP -> new CsvExportWriter(true);
+            case JSON_LINES -> new JsonLinesExportWriter();
+            case COLUMNAR -> new ColumnarExportWriter();
+        };
+    }
+
+
+    /**
+     * Find the format with the given name.
+     * @param name the name provided by the user, e.g. "jsonl".
+     * @return the format.
+     * @throws IllegalArgumentException if there is no format with that name.
+     */
+    public static ExportFormat fromName(String name) throws IllegalArgumentException {
+        for (ExportFormat format : values()) {
+            if (format.name.equalsIgnoreCase(name)) return format;
+        }
+        throw new IllegalArgumentException("Unknown export format: " + name);
+    }
+}
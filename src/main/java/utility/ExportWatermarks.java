@@ -0,0 +1,91 @@
+package utility;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.*;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Keeps the high-water mark of every incremental export consumer, which is the
+ * last attendance_id that was exported to it. The marks are persisted in a
+ * properties file in the same directory as the program.
+ * <p>
+ *     An export reads the watermark, exports the rows after it and sets the new
+ *     watermark while holding the {@link #lockFor(String)} of its consumer, so two
+ *     exports of one consumer, e.g. from the console and the admin server, can not
+ *     both start from the same watermark.
+ * </p>
+ */
+public class ExportWatermarks {
+    private static final String WATERMARKS_FILENAME = "export-watermarks.properties";
+    private static final Map<String, ReentrantLock> consumer_locks = new ConcurrentHashMap<>();
+
+    private ExportWatermarks() {}
+
+
+    /**
+     * @param consumer the name of the consumer.
+     * @return the lock held from reading the watermark of the consumer until it is set.
+     */
+    public static ReentrantLock lockFor(String consumer) {
+        return consumer_locks.computeIfAbsent(consumer, k -> new ReentrantLock());
+    }
+
+
+    /**
+     * Get the watermark of a consumer.
+     * @param consumer the name of the consumer.
+     * @return the last exported attendance_id, or 0 if the consumer has not exported yet.
+     * @throws IOException if the watermarks file can not be read.
+     */
+    public static synchronized int get(String consumer) throws IOException {
+        String watermark = load().getProperty(consumer);
+        try {
+            return watermark == null ? 0 : Integer.parseInt(watermark);
+        }
+        catch (NumberFormatException nfe) {
+            throw new IOException("Invalid watermark for consumer " + consumer, nfe);
+        }
+    }
+
+
+    /**
+     * Persist the watermark of a consumer. The file is replaced atomically so a
+     * crash while saving can not lose the marks of the other consumers.
+     * @param consumer the name of the consumer.
+     * @param last_attendance_id the last exported attendance_id.
+     * @throws IOException if the watermarks file can not be written.
+     */
+    public static synchronized void set(String consumer, int last_attendance_id) throws IOException {
+        Properties watermarks = load();
+        watermarks.setProperty(consumer, Integer.toString(last_attendance_id));
+
+        Path watermarks_path = getPath();
+        Path temp_path = watermarks_path.resolveSibling(WATERMARKS_FILENAME + ".tmp");
+        try (OutputStream output = Files.newOutputStream(temp_path)) {
+            watermarks.store(output, "Last exported attendance_id per consumer");
+        }
+        Files.move(temp_path, watermarks_path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+
+    private static Properties load() throws IOException {
+        Properties watermarks = new Properties();
+        Path watermarks_path = getPath();
+        if (Files.exists(watermarks_path)) {
+            try (InputStream input = Files.newInputStream(watermarks_path)) {
+                watermarks.load(input);
+            }
+        }
+        return watermarks;
+    }
+
+
+    private static Path getPath() {
+        return Path.of(System.getProperty("user.dir"), WATERMARKS_FILENAME);
+    }
+}
@@ -0,0 +1,22 @@
+package utility;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+/**
+ * An ExportWriter writes the rows of an export in one specific file format.
+ * The first row of the data is always the header.
+ * @see ExportFormat for the available writers.
+ */
+public interface ExportWriter {
+
+    /**
+     * Write every row to the output. The output is buffered by the caller and
+     * must not be closed by the writer.
+     * @param data the rows of fields to be written. The first row is the header.
+     * @param output the output the encoded rows are written to.
+     * @throws IOException if an I/O error occurs.
+     */
+    void write(List<String[]> data, OutputStream output) throws IOException;
+}
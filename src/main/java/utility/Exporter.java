@@ -1,48 +1,159 @@
 package utility;
 
-import java.io.BufferedWriter;
-import java.io.File;
-import java.io.FileWriter;
+import java.io.BufferedOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.List;
 
 /**
- * Utility class that handles Database to CSV (Comma Separated Values) exporting.
+ * Utility class that handles Database to file exporting.
+ * @see ExportFormat for the supported file formats.
  */
 public class Exporter {
+    public static final int BUFFER_SIZE = 1 << 16;
+
 
     /**
-     * Build the CSV File. The File will be createed in the same directory as the program.
-     * @param csv_filename the name of the file.
-     * @param data the list of String data that will be appended to the file.
+     * Build the export file in the given format. The File will be created in the same
+     * directory as the program and is written through a FileChannel with a large buffer.
+     * @param filename the name of the file, without the extension.
+     * @param data the rows of fields that will be written to the file. The first row is the header.
+     * @param format the format of the file.
+     * @return the full name of the created file.
      * @throws IOException if an I/O error occurs.
      */
-    public static String buildAttendanceCSV(String csv_filename, List<String> data) throws IOException {
-        int duplicateIndex = 0;
-        String csv_fullfilename = csv_filename + ".csv";
-        String current_directory = System.getProperty("user.dir");
+    public static String buildExport(String filename, List<String[]> data, ExportFormat format) throws IOException {
+        return createExportFile(filename, format, channel -> {
+            OutputStream output = new BufferedOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE);
+            format.newWriter().write(data, output);
+            output.flush();
+        });
+    }
 
-        File csv_file = new File(current_directory, csv_fullfilename);
-        boolean isFileCreated = csv_file.createNewFile();
 
-        // Check for duplicate files.
-        while (!isFileCreated) {
-            ++duplicateIndex;
-            csv_fullfilename = String.format("%s_(%d).csv", csv_filename, duplicateIndex);
-            csv_file = new File(current_directory, csv_fullfilename);
-            isFileCreated = csv_file.createNewFile();
+    /**
+     * Build the export file by copying an already exported file, e.g. one kept by the
+     * {@link ExportCache}. The bytes are transferred channel to channel.
+     * @param filename the name of the file, without the extension.
+     * @param source the file to be copied.
+     * @param format the format of the source file.
+     * @return the full name of the created file.
+     * @throws IOException if an I/O error occurs.
+     */
+    public static String copyExport(String filename, Path source, ExportFormat format) throws IOException {
+        return createExportFile(filename, format, channel -> {
+            try (FileChannel source_channel = FileChannel.open(source, StandardOpenOption.READ)) {
+                long position = 0;
+                long size = source_channel.size();
+                while (position < size) {
+                    position += source_channel.transferTo(position, size - position, channel);
+                }
+            }
+        });
+    }
+
+
+    /**
+     * Append the rows to an export file, creating it if it does not exist yet.
+     * The header row is only written when the file is new.
+     * @param filename the name of the file, without the extension.
+     * @param data the rows of fields to be appended. The first row is the header.
+     * @param format the format of the file.
+     * @return the full name of the file.
+     * @throws IOException if an I/O error occurs.
+     * @throws IllegalArgumentException if the format can not be appended to. Check
+     * {@link ExportFormat#isAppendable()} first.
+     */
+    public static String appendExport(String filename, List<String[]> data, ExportFormat format)
+    throws IOException {
+        if (!format.isAppendable()) {
+            throw new IllegalArgumentException(format.getName() + " exports can not be appended to.");
+        }
+        String full_filename = filename + format.getExtension();
+
+        try (FileChannel channel = FileChannel.open(
+                getExportPath(full_filename),
+                StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND
+        )) {
+            List<String[]> rows = data;
+            if (channel.size() > 0 && format.hasHeaderRow()) {
+                rows = data.subList(1, data.size()); // the file already starts with the header.
+            }
+            OutputStream output = new BufferedOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE);
+            format.newWriter().write(rows, output);
+            output.flush();
         }
+        return full_filename;
+    }
 
-        // append each data to the file.
-        BufferedWriter csv_writer = new BufferedWriter(new FileWriter(csv_file));
 
-        for (String line : data) {
-            csv_writer.newLine();
-            csv_writer.write(line);
+    /**
+     * Get the path of an export file created by this class.
+     * @param full_filename the full name returned when the file was created.
+     * @return the path of the file.
+     */
+    public static Path getExportPath(String full_filename) {
+        return Path.of(System.getProperty("user.dir"), full_filename);
+    }
+
+
+    /**
+     * Create a new export file, adding a number to the name if the file already exists.
+     * If the content can not be written, the partly written file is deleted.
+     * @param filename the name of the file, without the extension.
+     * @param format the format of the file.
+     * @param content writes the content of the file to its channel.
+     * @return the full name of the created file.
+     * @throws IOException if an I/O error occurs.
+     */
+    private static String createExportFile(String filename, ExportFormat format, ChannelContent content)
+    throws IOException {
+        int duplicateIndex = 0;
+        String full_filename = filename + format.getExtension();
+
+        // Check for duplicate files.
+        while (true) {
+            Path export_path = getExportPath(full_filename);
+            FileChannel channel;
+            try {
+                channel = FileChannel.open(export_path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+            }
+            catch (FileAlreadyExistsException faee) {
+                ++duplicateIndex;
+                full_filename = String.format("%s_(%d)%s", filename, duplicateIndex, format.getExtension());
+                continue;
+            }
+
+            try (channel) {
+                content.writeTo(channel);
+                return full_filename;
+            }
+            catch (IOException | RuntimeException e) {
+                // do not leave an empty or truncated export behind, nor take its name from the next export.
+                try {
+                    Files.deleteIfExists(export_path);
+                }
+                catch (IOException delete_ioe) {
+                    e.addSuppressed(delete_ioe);
+                }
+                throw e;
+            }
         }
+    }
 
 
-        csv_writer.close();
-        return csv_fullfilename;
+    /**
+     * Writes the content of a new export file.
+     */
+    private interface ChannelContent {
+        void writeTo(FileChannel channel) throws IOException;
     }
 }
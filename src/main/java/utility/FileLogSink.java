@@ -0,0 +1,246 @@
+package utility;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * The FileLogSink writes every published log record to a rolling log file.
+ * Records are handed to a background writer thread through a lock-free ring
+ * buffer, so a logging thread never blocks on the disk.
+ * <p>
+ *     The writer drains the records in batches and flushes once per batch. The
+ *     current file is rotated once it grows past a size or gets older than a
+ *     set age. Rotated files can be gzip-compressed.
+ * </p>
+ */
+public class FileLogSink {
+    private static final DateTimeFormatter ROTATE_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+    private static final int MAX_BATCH = 4096;
+
+    private final Path directory;
+    private final String base_name;
+    private final long max_bytes;
+    private final long max_age_millis;
+    private final boolean gzip_rotated;
+    private final LogRingBuffer<LogRecord> queue = new LogRingBuffer<>(Const.LOG_SINK_BUFFER_CAPACITY);
+    private final Thread writer_thread;
+    private volatile boolean is_running;
+    private volatile Consumer<LogRecord> error_listener;
+
+    private Writer writer;
+    private long current_bytes;
+    private long opened_at;
+
+
+    /**
+     * @param directory the directory the log files are written to.
+     * @param base_name the name of the current log file, without the extension.
+     * @param max_bytes the size at which the current file is rotated.
+     * @param max_age_millis the age at which the current file is rotated.
+     * @param gzip_rotated true to gzip the rotated files.
+     */
+    public FileLogSink(Path directory, String base_name, long max_bytes, long max_age_millis, boolean gzip_rotated) {
+        this.directory = directory;
+        this.base_name = base_name;
+        this.max_bytes = max_bytes;
+        this.max_age_millis = max_age_millis;
+        this.gzip_rotated = gzip_rotated;
+        writer_thread = new Thread(this::writeLoop, "log-file-sink");
+        writer_thread.setDaemon(true);
+    }
+
+
+    /**
+     * Report the errors of the writer, e.g. a full disk, and its recovery.
+     * The records are reported from the writer thread.
+     * @param error_listener receives the warning records, e.g. the console of the app.
+     */
+    public void setErrorListener(Consumer<LogRecord> error_listener) {
+        this.error_listener = error_listener;
+    }
+
+
+    /**
+     * Start the background writer thread.
+     */
+    public void start() {
+        is_running = true;
+        writer_thread.start();
+    }
+
+
+    /**
+     * Queue a record to be written. Never blocks; if the queue is full the record
+     * is dropped and the number of dropped records is written to the file instead.
+     * @param record the record to be written. Null records are ignored.
+     */
+    public void publish(LogRecord record) {
+        if (record != null) queue.offer(record);
+    }
+
+
+    /**
+     * Stop the writer thread after it wrote every queued record.
+     */
+    public void close() {
+        is_running = false;
+        LockSupport.unpark(writer_thread);
+        try {
+            writer_thread.join(TimeUnit.SECONDS.toMillis(5));
+        }
+        catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+
+    /**
+     * The writer thread mainloop. A batch that cannot be written, e.g. because
+     * the disk is full or a rotated file cannot be renamed, is reported once
+     * and kept; the file is reopened and the batch written again after a
+     * growing pause, so the writer never stops while the app runs.
+     */
+    private void writeLoop() {
+        List<LogRecord> batch = new ArrayList<>(MAX_BATCH);
+        long retry_millis = 0; // 0 while the file is written without errors.
+        while (true) {
+            if (batch.isEmpty()) {
+                queue.drainTo(batch, MAX_BATCH);
+                long dropped = queue.takeDropped();
+                LogRecord dropped_record = dropped > 0 ?
+                        LogHelper.log(dropped + " log records were dropped by the file sink.", LogTypes.WARNING) : null;
+                if (dropped_record != null) batch.add(dropped_record); // null if warnings are turned off.
+            }
+
+            try {
+                if (writer == null) openCurrentFile();
+                if (batch.isEmpty()) {
+                    if (!is_running) break; // every queued record is written.
+                    rotateIfNeeded();
+                    LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(Const.LOG_SINK_IDLE_MILLIS));
+                    continue;
+                }
+                for (LogRecord record : batch) {
+                    writer.write(LogHelper.format(record));
+                    writer.write(System.lineSeparator());
+                }
+                writer.flush(); // one flush per batch.
+                batch.clear();
+                rotateIfNeeded();
+                if (retry_millis > 0) {
+                    retry_millis = 0;
+                    reportError(LogHelper.log("The log file is written again.", LogTypes.INFO));
+                }
+            }
+            catch (IOException ioe) {
+                closeWriter();
+                if (!is_running) break; // the app is closing, do not wait for the disk.
+                if (retry_millis == 0) {
+                    reportError(LogHelper.log(
+                            "Cannot write the log file " + getCurrentPath() + ": " + ioe.getMessage() +
+                                    ". Retrying; records that do not fit in memory are dropped.",
+                            LogTypes.WARNING
+                    ));
+                }
+                retry_millis = Math.min(Math.max(retry_millis * 2, Const.LOG_SINK_RETRY_MILLIS),
+                        Const.LOG_SINK_MAX_RETRY_MILLIS);
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(retry_millis));
+            }
+        }
+        closeWriter();
+    }
+
+
+    private void reportError(LogRecord record) {
+        Consumer<LogRecord> listener = error_listener;
+        if (listener != null && record != null) listener.accept(record);
+    }
+
+
+    private void openCurrentFile() throws IOException {
+        Files.createDirectories(directory);
+        Path current_path = getCurrentPath();
+        current_bytes = Files.exists(current_path) ? Files.size(current_path) : 0;
+        // count the encoded bytes, not the characters, so non-ASCII text rotates at max_bytes.
+        OutputStream counting_output = new FilterOutputStream(
+                Files.newOutputStream(current_path, StandardOpenOption.CREATE, StandardOpenOption.APPEND)
+        ) {
+            @Override
+            public void write(byte[] bytes, int offset, int length) throws IOException {
+                out.write(bytes, offset, length);
+                current_bytes += length;
+            }
+
+            @Override
+            public void write(int b) throws IOException {
+                out.write(b);
+                current_bytes++;
+            }
+        };
+        writer = new BufferedWriter(new OutputStreamWriter(counting_output, StandardCharsets.UTF_8), 1 << 16);
+        opened_at = System.currentTimeMillis();
+    }
+
+
+    /**
+     * Rotate the current file if it is too big or too old. An empty file is never rotated.
+     */
+    private void rotateIfNeeded() throws IOException {
+        boolean is_too_big = current_bytes >= max_bytes;
+        boolean is_too_old = System.currentTimeMillis() - opened_at >= max_age_millis;
+        if (current_bytes == 0 || !(is_too_big || is_too_old)) return;
+
+        closeWriter();
+        String rotated_name = base_name + "-" + LocalDateTime.now().format(ROTATE_FORMAT);
+        Path rotated_path = directory.resolve(rotated_name + ".log");
+        for (int i = 1; Files.exists(rotated_path) || Files.exists(directory.resolve(rotated_path.getFileName() + ".gz")); i++) {
+            rotated_path = directory.resolve(rotated_name + "_" + i + ".log"); // rotated twice in one second.
+        }
+        Files.move(getCurrentPath(), rotated_path);
+        if (gzip_rotated) {
+            gzip(rotated_path);
+        }
+        openCurrentFile();
+    }
+
+
+    /**
+     * Compress a rotated file and delete the uncompressed one.
+     */
+    private void gzip(Path rotated_path) throws IOException {
+        Path gzip_path = rotated_path.resolveSibling(rotated_path.getFileName() + ".gz");
+        try (InputStream input = Files.newInputStream(rotated_path);
+             OutputStream output = new GZIPOutputStream(Files.newOutputStream(gzip_path), 1 << 16)) {
+            input.transferTo(output);
+        }
+        Files.delete(rotated_path);
+    }
+
+
+    private void closeWriter() {
+        if (writer == null) return;
+        try {
+            writer.close();
+        }
+        catch (IOException ioe) {
+            ioe.printStackTrace();
+        }
+        writer = null;
+    }
+
+
+    private Path getCurrentPath() {
+        return directory.resolve(base_name + ".log");
+    }
+}
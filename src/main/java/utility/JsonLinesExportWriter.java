@@ -0,0 +1,66 @@
+package utility;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Writes an export as JSON Lines. Every row after the header becomes one
+ * JSON object per line, keyed by the header's column names.
+ */
+public class JsonLinesExportWriter implements ExportWriter {
+
+    @Override
+    public void write(List<String[]> data, OutputStream output) throws IOException {
+        if (data.isEmpty()) return;
+
+        Writer json_writer = new BufferedWriter(
+                new OutputStreamWriter(output, StandardCharsets.UTF_8),
+                Exporter.BUFFER_SIZE
+        );
+        String[] header = data.get(0);
+        StringBuilder line = new StringBuilder(256);
+
+        for (int row = 1; row < data.size(); row++) {
+            String[] fields = data.get(row);
+            line.setLength(0);
+            line.append('{');
+            for (int i = 0; i < header.length; i++) {
+                if (i > 0) line.append(',');
+                appendString(line, header[i]);
+                line.append(':');
+                String field = i < fields.length ? fields[i] : null;
+                if (field == null) line.append("null");
+                else appendString(line, field);
+            }
+            line.append("}\n");
+            json_writer.append(line);
+        }
+        json_writer.flush();
+    }
+
+
+    /**
+     * Append a JSON string literal, escaping the characters JSON does not allow.
+     * @param line the line being built.
+     * @param value the value to be escaped.
+     */
+    private static void appendString(StringBuilder line, String value) {
+        line.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> line.append("\\\"");
+                case '\\' -> line.append("\\\\");
+                case '\n' -> line.append("\\n");
+                case '\r' -> line.append("\\r");
+                case '\t' -> line.append("\\t");
+                default -> {
+                    if (c < 0x20) line.append(String.format("\\u%04x", (int) c));
+                    else line.append(c);
+                }
+            }
+        }
+        line.append('"');
+    }
+}
@@ -0,0 +1,145 @@
+package utility;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock-free latency histogram with log-linear buckets, in the style of an
+ * HDR histogram. Every power of two is split into 16 linear sub-buckets, so a
+ * recorded value is off by at most 1/16 (about 6%) of itself while the whole
+ * range of a long fits in under a thousand counters.
+ * <p>
+ *     Any thread may {@link #record(long)} without blocking. A reader takes a
+ *     {@link Snapshot} of the values recorded since the last reset, or of
+ *     every value recorded when the histogram is never reset.
+ * </p>
+ */
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = SUB_BUCKETS + (63 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder sum = new LongAdder();
+
+
+    /**
+     * Record one value.
+     * @param value the value, e.g. a latency in microseconds. Negative values are recorded as 0.
+     */
+    public void record(long value) {
+        counts.incrementAndGet(indexOf(Math.max(value, 0)));
+        sum.add(Math.max(value, 0));
+    }
+
+
+    /**
+     * Take the values recorded since the last snapshot and reset the histogram.
+     * @return the snapshot.
+     */
+    public Snapshot snapshotAndReset() {
+        long[] snapshot_counts = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot_counts[i] = counts.getAndSet(i, 0);
+        }
+        return new Snapshot(snapshot_counts, sum.sumThenReset());
+    }
+
+
+    /**
+     * Take the values recorded so far without resetting the histogram.
+     * @return the snapshot.
+     */
+    public Snapshot snapshot() {
+        long[] snapshot_counts = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot_counts[i] = counts.get(i);
+        }
+        return new Snapshot(snapshot_counts, sum.sum());
+    }
+
+
+    private static int indexOf(long value) {
+        if (value < SUB_BUCKETS) return (int) value;
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        int sub_bucket = (int) (value >>> shift) - SUB_BUCKETS; // the 4 bits below the highest one.
+        return SUB_BUCKETS + shift * SUB_BUCKETS + sub_bucket;
+    }
+
+
+    /**
+     * @return the highest value counted in a bucket.
+     */
+    private static long highestValueOf(int index) {
+        if (index < SUB_BUCKETS) return index;
+        int shift = (index - SUB_BUCKETS) / SUB_BUCKETS;
+        long sub_bucket = SUB_BUCKETS + (index - SUB_BUCKETS) % SUB_BUCKETS;
+        return ((sub_bucket + 1) << shift) - 1;
+    }
+
+
+    /**
+     * The values recorded between two snapshots.
+     */
+    public static class Snapshot {
+        private final long[] counts;
+        private final long total_count;
+        private final long sum;
+
+
+        private Snapshot(long[] counts, long sum) {
+            this.counts = counts;
+            this.sum = sum;
+            long total = 0;
+            for (long count : counts) {
+                total += count;
+            }
+            total_count = total;
+        }
+
+
+        public long getTotalCount() {
+            return total_count;
+        }
+
+
+        /**
+         * @return the exact sum of the recorded values.
+         */
+        public long getSum() {
+            return sum;
+        }
+
+
+        /**
+         * @param percentile the percentile, from 0 to 100.
+         * @return the value at the percentile, or 0 if nothing was recorded.
+         */
+        public long getValueAtPercentile(double percentile) {
+            if (total_count == 0) return 0;
+            long rank = Math.max(1, (long) Math.ceil(percentile / 100 * total_count));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) return highestValueOf(i);
+            }
+            return highestValueOf(counts.length - 1);
+        }
+
+
+        /**
+         * Count the values at or below a bound, e.g. for the buckets of a Prometheus histogram.
+         * Values in the bucket holding the bound are counted if the bucket ends at or below it,
+         * so the count is off by at most the width of one bucket.
+         * @param bound the highest value to count.
+         * @return the number of values at or below the bound.
+         */
+        public long getCountAtOrBelow(long bound) {
+            long count = 0;
+            for (int i = 0; i < counts.length && highestValueOf(i) <= bound; i++) {
+                count += counts[i];
+            }
+            return count;
+        }
+    }
+}
@@ -1,10 +1,13 @@
 package utility;
 
-import javafx.scene.paint.Color;
-import javafx.scene.text.Text;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 import java.time.format.FormatStyle;
+import java.util.EnumSet;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
 
 
 /**
@@ -12,17 +15,62 @@ import java.time.format.FormatStyle;
  * It includes the specific date and time the text was logged into an output
  * and also what type of text it is supposed to represent.
  */
-@SuppressWarnings("ConstantConditions")
 public class LogHelper {
+    private static final DateTimeFormatter DATE_TIME_FORMAT =
+            DateTimeFormatter.ofLocalizedDateTime(FormatStyle.SHORT, FormatStyle.MEDIUM);
+
+    private static final LongAdder RECORDS = MetricsRegistry.counter("log.records");
+    private static final LongAdder SUPPRESSED_RECORDS = MetricsRegistry.counter("log.suppressed");
+    private static final LatencyHistogram FORMAT_NANOS = MetricsRegistry.histogram("log.format_nanos");
+
+    // replaced as a whole on every change so readers never need a lock.
+    private static volatile EnumSet<LogTypes> disabled_types = EnumSet.noneOf(LogTypes.class);
+
+    /**
+     * Check if records of a type are logged. Callers can use this to skip
+     * building a message that would be filtered anyway.
+     * @param type the classification of the text.
+     * @return true if records of this type are logged.
+     */
+    public static boolean isEnabled(LogTypes type) {
+        return !disabled_types.contains(type);
+    }
 
     /**
-     * Get the Date and Time at during this specific instant. The Date and Time is
+     * Enable or disable the records of a type at runtime.
+     * @param type the classification of the text.
+     * @param enabled false to drop every record of this type.
+     */
+    public static synchronized void setEnabled(LogTypes type, boolean enabled) {
+        EnumSet<LogTypes> new_disabled_types = EnumSet.copyOf(disabled_types);
+        if (enabled) new_disabled_types.remove(type);
+        else new_disabled_types.add(type);
+        disabled_types = new_disabled_types;
+    }
+
+    /**
+     * Check if records of a type are dropped, counting the dropped records.
+     */
+    private static boolean isSuppressed(LogTypes type) {
+        if (isEnabled(type)) return false;
+        SUPPRESSED_RECORDS.increment();
+        return true;
+    }
+
+    private static LogRecord counted(LogRecord record) {
+        RECORDS.increment();
+        return record;
+    }
+
+    /**
+     * Get the Date and Time of a timestamp. The Date and Time is
      * returned in a specific format.
+     * @param timestamp the time in epoch milliseconds.
      * @return the Date and Time in the format of 'Month/Day/Year, Hr:Min:Sec AM/PM'.
      */
-    private static String getDateTime() {
-        DateTimeFormatter dtf = DateTimeFormatter.ofLocalizedDateTime(FormatStyle.SHORT, FormatStyle.MEDIUM);
-        return LocalDateTime.now().format(dtf);
+    private static String getDateTime(long timestamp) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(timestamp), ZoneId.systemDefault())
+                            .format(DATE_TIME_FORMAT);
     }
 
     /**
@@ -31,37 +79,69 @@ public class LogHelper {
      * @return true if the string is empty.
      */
     public static boolean checkNullText(String text) {
-        return text.matches("^\\s*$");
+        return text.isBlank();
+    }
+
+    /**
+     * Create a log record of a text.
+     * @param text the text to be logged.
+     * @param type the classification of the text.
+     * @return the log record, or null if the text is empty or the type is disabled.
+     * @see #format(LogRecord) for the text of the record.
+     */
+    public static LogRecord log(String text, LogTypes type) {
+        if (isSuppressed(type) || checkNullText(text)) return null;
+        return counted(new LogRecord(System.currentTimeMillis(), type, text));
+    }
+
+    /**
+     * Create a log record whose text is only built when it is rendered.
+     * If the type is disabled the text is never built.
+     * @param text builds the text to be logged.
+     * @param type the classification of the text.
+     * @return the log record, or null if the type is disabled.
+     */
+    public static LogRecord log(Supplier<String> text, LogTypes type) {
+        if (isSuppressed(type)) return null;
+        return counted(new LogRecord(System.currentTimeMillis(), type, text));
     }
 
     /**
-     * Format a text into a valid informative log text.
+     * Create a log record of a text about a client, so it can be found by the client name.
      * @param text the text to be logged.
      * @param type the classification of the text.
-     * @return a formatted text to be used for logging.
+     * @param client the name of the client.
+     * @return the log record, or null if the text is empty or the type is disabled.
+     * @see LogIndex
+     */
+    public static LogRecord log(String text, LogTypes type, String client) {
+        if (isSuppressed(type) || checkNullText(text)) return null;
+        return counted(new LogRecord(System.currentTimeMillis(), type, client, text));
+    }
+
+    /**
+     * Create a log record about a client whose text is only built when it is rendered.
+     * @param text builds the text to be logged.
+     * @param type the classification of the text.
+     * @param client the name of the client.
+     * @return the log record, or null if the type is disabled.
+     */
+    public static LogRecord log(Supplier<String> text, LogTypes type, String client) {
+        if (isSuppressed(type)) return null;
+        return counted(new LogRecord(System.currentTimeMillis(), type, client, text));
+    }
+
+    /**
+     * Format a log record into a valid informative log text.
+     * @param record the record to be formatted.
+     * @return the formatted text: [datetime][logtype]: text
      */
-    public static Text log(String text, LogTypes type) {
-        String log_text;
-        Text rich_text;
-        if (!checkNullText(text)) {
-            log_text = String.format(
-                    "[%s][%s]: %s\n", // ---> [datetime][logtype]: <text>
-                    getDateTime(),
-                    type.getType(),
-                    text
-            );
-            rich_text = new Text(log_text);
-            rich_text.setFont(Const.CONSOLAS);
-
-            switch (type) {
-                case ERROR -> rich_text.setFill(Color.RED);
-                case INFO -> rich_text.setFill(Color.DODGERBLUE);
-                case WARNING, INVALID -> rich_text.setFill(Color.ORANGE);
-                default -> rich_text.setFill(Color.WHITE);
-            }
-            return rich_text;
-        }
-        return null;
+    public static String format(LogRecord record) {
+        long start_nanos = System.nanoTime();
+        String text = "[" + getDateTime(record.getTimestamp()) + "][" + record.getType().getType() + "]: " +
+                record.getMessage();
+        FORMAT_NANOS.record(System.nanoTime() - start_nanos);
+        return text;
     }
 
     /**
@@ -70,7 +150,8 @@ public class LogHelper {
      * @param text the text to be logged.
      */
     public static void debugLog(String text) {
-        String debug_str = log(text, LogTypes.DEBUG).getText();
-        if (debug_str != null) System.out.print(debug_str);
+        if (!isEnabled(LogTypes.DEBUG)) return;
+        LogRecord debug_record = log(text, LogTypes.DEBUG);
+        if (debug_record != null) System.out.println(format(debug_record));
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,273 @@
+package utility;
+
+import java.util.*;
+
+/**
+ * The LogIndex keeps the most recent log records and indexes them by client
+ * name, log type, minute and the words of the message, so a search only
+ * visits the records that match instead of scanning the whole history.
+ * <p>
+ *     Every record gets a sequence number. The index lists hold sequence
+ *     numbers in ascending order, so the records evicted from the front of the
+ *     history are always at the front of their lists, and a "since" search can
+ *     binary search the first sequence number of a minute.
+ * </p>
+ * <p>
+ *     The words of the messages are only indexed when a text is searched, so
+ *     adding records never builds a lazy message; it stays unbuilt unless the
+ *     record is shown or searched.
+ * </p>
+ * <p>
+ *     Console records are not indexed; they are the typed commands and the
+ *     search results themselves, which would match every later search.
+ * </p>
+ */
+public class LogIndex {
+    private static final long BUCKET_MILLIS = 60_000;
+
+    private final LogRecord[] history;
+    private long next_sequence;
+    private long oldest_sequence;
+    private long word_indexed_sequence; // the records before it are in by_word.
+
+    private final Map<String, SequenceList> by_client = new HashMap<>();
+    private final Map<LogTypes, SequenceList> by_type = new EnumMap<>(LogTypes.class);
+    private final Map<String, SequenceList> by_word = new HashMap<>();
+    // minute -> first sequence number logged in that minute.
+    private final TreeMap<Long, Long> by_minute = new TreeMap<>();
+
+
+    /**
+     * @param capacity the number of records kept. Older records are evicted.
+     */
+    public LogIndex(int capacity) {
+        history = new LogRecord[capacity];
+    }
+
+
+    /**
+     * Add records to the index, evicting the oldest ones once it is full.
+     * @param records the records to be added, oldest first. Null and console records are ignored.
+     */
+    public synchronized void addAll(Collection<LogRecord> records) {
+        for (LogRecord record : records) {
+            if (record != null && record.getType() != LogTypes.CONSOLE) add(record);
+        }
+    }
+
+
+    private void add(LogRecord record) {
+        if (next_sequence - oldest_sequence == history.length) {
+            evictOldest();
+        }
+        long sequence = next_sequence++;
+        history[(int) (sequence % history.length)] = record;
+
+        if (record.getClient() != null) {
+            by_client.computeIfAbsent(record.getClient(), k -> new SequenceList()).add(sequence);
+        }
+        by_type.computeIfAbsent(record.getType(), k -> new SequenceList()).add(sequence);
+        by_minute.putIfAbsent(record.getTimestamp() / BUCKET_MILLIS, sequence);
+    }
+
+
+    private void evictOldest() {
+        long sequence = oldest_sequence++;
+        int slot = (int) (sequence % history.length);
+        LogRecord record = history[slot];
+        history[slot] = null;
+
+        if (record.getClient() != null) {
+            removeFirst(by_client, record.getClient(), sequence);
+        }
+        removeFirst(by_type, record.getType(), sequence);
+        if (sequence < word_indexed_sequence) {
+            for (String word : tokenize(record.getMessage())) {
+                removeFirst(by_word, word, sequence);
+            }
+        }
+        else {
+            word_indexed_sequence = oldest_sequence; // evicted before its words were indexed.
+        }
+        // the bucket now starts at the next record, or is gone if that record is in a later minute.
+        Map.Entry<Long, Long> first_bucket;
+        while ((first_bucket = by_minute.firstEntry()) != null && first_bucket.getValue() <= sequence) {
+            by_minute.pollFirstEntry();
+            if (oldest_sequence == next_sequence) break;
+            LogRecord next = history[(int) (oldest_sequence % history.length)];
+            if (next.getTimestamp() / BUCKET_MILLIS == first_bucket.getKey()) {
+                by_minute.put(first_bucket.getKey(), oldest_sequence);
+            }
+        }
+    }
+
+
+    /**
+     * Index the words of the records added since the last text search.
+     */
+    private void indexWords() {
+        for (long sequence = word_indexed_sequence; sequence < next_sequence; sequence++) {
+            LogRecord record = history[(int) (sequence % history.length)];
+            for (String word : tokenize(record.getMessage())) {
+                by_word.computeIfAbsent(word, k -> new SequenceList()).add(sequence);
+            }
+        }
+        word_indexed_sequence = next_sequence;
+    }
+
+
+    private static <K> void removeFirst(Map<K, SequenceList> index, K key, long sequence) {
+        SequenceList sequences = index.get(key);
+        if (sequences == null) return;
+        sequences.removeFirstIf(sequence);
+        if (sequences.isEmpty()) index.remove(key); // keeps the index bounded by the history.
+    }
+
+
+    /**
+     * Find the records of a client.
+     * @param client the client name.
+     * @param since only records logged at or after this epoch millisecond are returned.
+     * @param limit the maximum number of records returned; the most recent are kept.
+     * @return the matching records, oldest first.
+     */
+    public synchronized List<LogRecord> findByClient(String client, long since, int limit) {
+        return collect(by_client.get(client), since, limit, null);
+    }
+
+
+    /**
+     * Find the records of a log type.
+     * @param type the log type.
+     * @param since only records logged at or after this epoch millisecond are returned.
+     * @param limit the maximum number of records returned; the most recent are kept.
+     * @return the matching records, oldest first.
+     */
+    public synchronized List<LogRecord> findByType(LogTypes type, long since, int limit) {
+        return collect(by_type.get(type), since, limit, null);
+    }
+
+
+    /**
+     * Find the records containing every word of a text.
+     * @param text the text to be found, e.g. a fingerprint id.
+     * @param since only records logged at or after this epoch millisecond are returned.
+     * @param limit the maximum number of records returned; the most recent are kept.
+     * @return the matching records, oldest first.
+     */
+    public synchronized List<LogRecord> findByText(String text, long since, int limit) {
+        Set<String> words = tokenize(text);
+        if (words.isEmpty()) return new ArrayList<>();
+        indexWords();
+
+        // walk the rarest word and check the others on each of its records.
+        SequenceList rarest = null;
+        for (String word : words) {
+            SequenceList sequences = by_word.get(word);
+            if (sequences == null) return new ArrayList<>();
+            if (rarest == null || sequences.size() < rarest.size()) rarest = sequences;
+        }
+        return collect(rarest, since, limit, words);
+    }
+
+
+    /**
+     * Check if a client name has records in the index.
+     * @param client the client name.
+     * @return true if the index has records of the client.
+     */
+    public synchronized boolean hasClient(String client) {
+        return by_client.containsKey(client);
+    }
+
+
+    private List<LogRecord> collect(SequenceList sequences, long since, int limit, Set<String> required_words) {
+        ArrayDeque<LogRecord> found = new ArrayDeque<>();
+        Map.Entry<Long, Long> bucket = by_minute.ceilingEntry(since / BUCKET_MILLIS);
+        if (sequences == null || bucket == null) return new ArrayList<>(); // nothing was logged since then.
+        long first_sequence = Math.max(oldest_sequence, bucket.getValue());
+
+        for (int i = sequences.lowerBound(first_sequence); i < sequences.size(); i++) {
+            LogRecord record = history[(int) (sequences.get(i) % history.length)];
+            if (record.getTimestamp() < since) continue; // same minute as since, but earlier.
+            if (required_words != null && !tokenize(record.getMessage()).containsAll(required_words)) continue;
+            found.add(record);
+            if (found.size() > limit) found.removeFirst();
+        }
+        return new ArrayList<>(found);
+    }
+
+
+    /**
+     * Split a message into lowercase words of letters and digits.
+     */
+    private static Set<String> tokenize(String message) {
+        Set<String> words = new HashSet<>();
+        int start = -1;
+        for (int i = 0; i <= message.length(); i++) {
+            boolean is_word_char = i < message.length() && Character.isLetterOrDigit(message.charAt(i));
+            if (is_word_char && start < 0) {
+                start = i;
+            }
+            else if (!is_word_char && start >= 0) {
+                words.add(message.substring(start, i).toLowerCase());
+                start = -1;
+            }
+        }
+        return words;
+    }
+
+
+    /**
+     * A growable list of ascending sequence numbers that can drop its first element.
+     */
+    private static class SequenceList {
+        private long[] sequences = new long[8];
+        private int head;
+        private int size;
+
+        void add(long sequence) {
+            if (head + size == sequences.length) {
+                // reuse the space of the removed elements before growing.
+                long[] grown = size * 2 > sequences.length ? new long[sequences.length * 2] : sequences;
+                System.arraycopy(sequences, head, grown, 0, size);
+                sequences = grown;
+                head = 0;
+            }
+            sequences[head + size++] = sequence;
+        }
+
+        void removeFirstIf(long sequence) {
+            if (size > 0 && sequences[head] == sequence) {
+                head++;
+                size--;
+            }
+        }
+
+        long get(int index) {
+            return sequences[head + index];
+        }
+
+        int size() {
+            return size;
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        /**
+         * @return the index of the first sequence number not less than the given one.
+         */
+        int lowerBound(long sequence) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (get(middle) < sequence) low = middle + 1;
+                else high = middle;
+            }
+            return low;
+        }
+    }
+}
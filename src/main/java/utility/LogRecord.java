@@ -0,0 +1,98 @@
+package utility;
+
+import java.util.function.Supplier;
+
+/**
+ * A LogRecord is one logged message. It only holds the raw data of the
+ * message; turning it into text or into a JavaFX node is left to whoever
+ * renders it, so creating a record is cheap on any thread.
+ * <p>
+ *     The message may be given lazily. The supplier is only called the first
+ *     time the message is needed.
+ * </p>
+ * @see LogHelper#log(String, LogTypes)
+ */
+public final class LogRecord {
+    private final long timestamp;
+    private final LogTypes type;
+    private final String client;
+    private final Supplier<String> message_supplier;
+    private volatile String message;
+
+
+    /**
+     * @param timestamp the time the message was logged, in epoch milliseconds.
+     * @param type the classification of the message.
+     * @param message the message.
+     */
+    public LogRecord(long timestamp, LogTypes type, String message) {
+        this(timestamp, type, null, message);
+    }
+
+
+    /**
+     * @param timestamp the time the message was logged, in epoch milliseconds.
+     * @param type the classification of the message.
+     * @param client the name of the client the message is about, or null.
+     * @param message the message.
+     */
+    public LogRecord(long timestamp, LogTypes type, String client, String message) {
+        this.timestamp = timestamp;
+        this.type = type;
+        this.client = client;
+        this.message = message;
+        this.message_supplier = null;
+    }
+
+
+    /**
+     * @param timestamp the time the message was logged, in epoch milliseconds.
+     * @param type the classification of the message.
+     * @param message_supplier builds the message when it is first needed.
+     */
+    public LogRecord(long timestamp, LogTypes type, Supplier<String> message_supplier) {
+        this(timestamp, type, null, message_supplier);
+    }
+
+
+    /**
+     * @param timestamp the time the message was logged, in epoch milliseconds.
+     * @param type the classification of the message.
+     * @param client the name of the client the message is about, or null.
+     * @param message_supplier builds the message when it is first needed.
+     */
+    public LogRecord(long timestamp, LogTypes type, String client, Supplier<String> message_supplier) {
+        this.timestamp = timestamp;
+        this.type = type;
+        this.client = client;
+        this.message_supplier = message_supplier;
+    }
+
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public LogTypes getType() {
+        return type;
+    }
+
+    /**
+     * @return the name of the client the message is about, or null.
+     */
+    public String getClient() {
+        return client;
+    }
+
+    /**
+     * @return the message, building it first if it was given lazily.
+     */
+    public String getMessage() {
+        String resolved = message;
+        if (resolved == null) {
+            resolved = String.valueOf(message_supplier.get());
+            message = resolved;
+        }
+        return resolved;
+    }
+}
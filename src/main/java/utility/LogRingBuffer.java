@@ -0,0 +1,110 @@
+package utility;
+
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded, lock-free ring buffer with many producers and a single consumer.
+ * Any thread may {@link #offer(Object)} an element without blocking; only one
+ * thread at a time may {@link #drainTo(Collection, int)}.
+ * <p>
+ *     Every slot has a sequence number. A producer claims a position with a
+ *     compare-and-set on the tail, writes the element and then publishes it by
+ *     advancing the slot's sequence. The consumer only takes a slot once it is
+ *     published, so it never sees a half written element. When the buffer is
+ *     full the element is dropped and counted instead of blocking the producer.
+ * </p>
+ * @param <E> the type of the elements.
+ */
+public class LogRingBuffer<E> {
+    private final int capacity;
+    private final int mask;
+    private final AtomicReferenceArray<E> slots;
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong();
+    private final LongAdder dropped = new LongAdder();
+    private long head; // only touched by the consumer.
+
+
+    /**
+     * @param capacity the maximum number of elements, rounded up to a power of two.
+     */
+    public LogRingBuffer(int capacity) {
+        this.capacity = Integer.highestOneBit(Math.max(capacity - 1, 1)) << 1;
+        mask = this.capacity - 1;
+        slots = new AtomicReferenceArray<>(this.capacity);
+        sequences = new AtomicLongArray(this.capacity);
+        for (int i = 0; i < this.capacity; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+
+    /**
+     * Add an element without blocking. Safe to call from any thread.
+     * @param element the element to be added.
+     * @return false if the buffer was full and the element was dropped.
+     */
+    public boolean offer(E element) {
+        long position = tail.get();
+        while (true) {
+            int index = (int) position & mask;
+            long difference = sequences.get(index) - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    slots.set(index, element);
+                    sequences.lazySet(index, position + 1); // publish the element to the consumer.
+                    return true;
+                }
+                position = tail.get(); // another producer claimed the position first.
+            }
+            else if (difference < 0) {
+                dropped.increment(); // the consumer did not free this slot yet, the buffer is full.
+                return false;
+            }
+            else {
+                position = tail.get();
+            }
+        }
+    }
+
+
+    /**
+     * Move the published elements to a collection, oldest first.
+     * Must only be called by one thread at a time.
+     * @param sink the collection the elements are added to.
+     * @param max_elements the maximum number of elements to move.
+     * @return the number of elements moved.
+     */
+    public int drainTo(Collection<? super E> sink, int max_elements) {
+        int drained = 0;
+        while (drained < max_elements) {
+            int index = (int) head & mask;
+            if (sequences.get(index) != head + 1) break; // the next element is not published yet.
+
+            sink.add(slots.get(index));
+            slots.lazySet(index, null);
+            sequences.lazySet(index, head + capacity); // free the slot for the next lap.
+            head++;
+            drained++;
+        }
+        return drained;
+    }
+
+
+    /**
+     * Get the number of elements dropped because the buffer was full and reset it.
+     * @return the number of dropped elements since the last call.
+     */
+    public long takeDropped() {
+        return dropped.sumThenReset();
+    }
+
+
+    public int getCapacity() {
+        return capacity;
+    }
+}
@@ -0,0 +1,93 @@
+package utility;
+
+import javax.management.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Exposes the {@link MetricsRegistry} as a read-only dynamic MBean. Every
+ * counter is one attribute and every histogram is five: its count and its
+ * p50, p95, p99 and max values. The attributes are listed again on every
+ * call, as metrics are created on first use.
+ */
+class MetricsMBean implements DynamicMBean {
+    private static final String[] HISTOGRAM_SUFFIXES = {".count", ".p50", ".p95", ".p99", ".max"};
+
+
+    @Override
+    public Object getAttribute(String attribute) throws AttributeNotFoundException {
+        Long counter_value = MetricsRegistry.getCounter(attribute);
+        if (counter_value != null) return counter_value;
+
+        for (String suffix : HISTOGRAM_SUFFIXES) {
+            if (!attribute.endsWith(suffix)) continue;
+            String name = attribute.substring(0, attribute.length() - suffix.length());
+            LatencyHistogram.Snapshot snapshot = MetricsRegistry.getHistogram(name); // only this one.
+            if (snapshot == null) continue;
+            return switch (suffix) {
+                case ".count" -> snapshot.getTotalCount();
+                case ".p50" -> snapshot.getValueAtPercentile(50);
+                case ".p95" -> snapshot.getValueAtPercentile(95);
+                case ".p99" -> snapshot.getValueAtPercentile(99);
+                default -> snapshot.getValueAtPercentile(100);
+            };
+        }
+        throw new AttributeNotFoundException(attribute);
+    }
+
+
+    @Override
+    public AttributeList getAttributes(String[] attributes) {
+        AttributeList values = new AttributeList();
+        for (String attribute : attributes) {
+            try {
+                values.add(new Attribute(attribute, getAttribute(attribute)));
+            }
+            catch (AttributeNotFoundException anfe) {
+                // left out, as the DynamicMBean contract asks.
+            }
+        }
+        return values;
+    }
+
+
+    @Override
+    public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+        throw new AttributeNotFoundException("The metrics are read-only.");
+    }
+
+
+    @Override
+    public AttributeList setAttributes(AttributeList attributes) {
+        return new AttributeList();
+    }
+
+
+    @Override
+    public Object invoke(String action_name, Object[] params, String[] signature) throws ReflectionException {
+        throw new ReflectionException(new NoSuchMethodException(action_name));
+    }
+
+
+    @Override
+    public MBeanInfo getMBeanInfo() {
+        List<MBeanAttributeInfo> attributes = new ArrayList<>();
+        for (String name : MetricsRegistry.getCounters().keySet()) {
+            attributes.add(new MBeanAttributeInfo(name, "long", "counter", true, false, false));
+        }
+        for (Map.Entry<String, LatencyHistogram.Snapshot> entry : MetricsRegistry.getHistograms().entrySet()) {
+            for (String suffix : HISTOGRAM_SUFFIXES) {
+                attributes.add(new MBeanAttributeInfo(
+                        entry.getKey() + suffix, "long", "histogram", true, false, false
+                ));
+            }
+        }
+        return new MBeanInfo(
+                getClass().getName(),
+                "Counters and latency histograms of the attendance server.",
+                attributes.toArray(new MBeanAttributeInfo[0]),
+                null, null, null
+        );
+    }
+}
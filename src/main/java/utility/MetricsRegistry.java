@@ -0,0 +1,109 @@
+package utility;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The MetricsRegistry holds the named counters and latency histograms of the
+ * app. Counters are striped {@link LongAdder}s and histograms are lock-free
+ * {@link LatencyHistogram}s, so recording from the client threads never blocks.
+ * <p>
+ *     Look a metric up once and keep it in a static final field; recording
+ *     then costs one add and no map lookup. The unit of a histogram is part
+ *     of its name, e.g. db.connection.acquire_micros.
+ * </p>
+ * <p>
+ *     Every metric is also readable over JMX as attendance:type=Metrics once
+ *     {@link #registerMBean()} is called, and with the metrics command.
+ * </p>
+ */
+public class MetricsRegistry {
+    public static final String MBEAN_NAME = "attendance:type=Metrics";
+
+    private static final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+    private static final Map<String, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+
+    private MetricsRegistry() {}
+
+
+    /**
+     * Get a counter, creating it on first use.
+     * @param name the name of the counter, e.g. client.messages.
+     * @return the counter.
+     */
+    public static LongAdder counter(String name) {
+        return counters.computeIfAbsent(name, k -> new LongAdder());
+    }
+
+
+    /**
+     * Get a histogram, creating it on first use. The histogram is never reset.
+     * @param name the name of the histogram, ending with its unit, e.g. client.send_command_micros.
+     * @return the histogram.
+     */
+    public static LatencyHistogram histogram(String name) {
+        return histograms.computeIfAbsent(name, k -> new LatencyHistogram());
+    }
+
+
+    /**
+     * @param name the name of the counter.
+     * @return the value of the counter, or null if it does not exist.
+     */
+    public static Long getCounter(String name) {
+        LongAdder counter = counters.get(name);
+        return counter == null ? null : counter.sum();
+    }
+
+
+    /**
+     * @param name the name of the histogram.
+     * @return a snapshot of the histogram, or null if it does not exist.
+     */
+    public static LatencyHistogram.Snapshot getHistogram(String name) {
+        LatencyHistogram histogram = histograms.get(name);
+        return histogram == null ? null : histogram.snapshot();
+    }
+
+
+    /**
+     * @return the value of every counter, sorted by name.
+     */
+    public static Map<String, Long> getCounters() {
+        Map<String, Long> values = new TreeMap<>();
+        counters.forEach((name, counter) -> values.put(name, counter.sum()));
+        return values;
+    }
+
+
+    /**
+     * @return a snapshot of every histogram, sorted by name.
+     */
+    public static Map<String, LatencyHistogram.Snapshot> getHistograms() {
+        Map<String, LatencyHistogram.Snapshot> snapshots = new TreeMap<>();
+        histograms.forEach((name, histogram) -> snapshots.put(name, histogram.snapshot()));
+        return snapshots;
+    }
+
+
+    /**
+     * Register the metrics with the platform MBean server, e.g. for JConsole or VisualVM.
+     * Does nothing if they are already registered.
+     */
+    public static synchronized void registerMBean() {
+        try {
+            ObjectName object_name = new ObjectName(MBEAN_NAME);
+            if (!ManagementFactory.getPlatformMBeanServer().isRegistered(object_name)) {
+                ManagementFactory.getPlatformMBeanServer().registerMBean(new MetricsMBean(), object_name);
+            }
+        }
+        catch (JMException jme) {
+            jme.printStackTrace();
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package utility;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The StartupTimer measures how long each phase of the startup takes. A phase
+ * ends when it is marked and lasts from the previous mark, or from the start of
+ * the JVM for the first one.
+ */
+public class StartupTimer {
+    private static final long JVM_START_MILLIS = ManagementFactory.getRuntimeMXBean().getStartTime();
+    private static final List<String> phases = new ArrayList<>();
+    private static long last_mark_millis = JVM_START_MILLIS;
+
+    private StartupTimer() {}
+
+
+    /**
+     * End the current phase.
+     * @param phase the name of the phase that just ended.
+     */
+    public static synchronized void mark(String phase) {
+        long now = System.currentTimeMillis();
+        phases.add(phase + "=" + (now - last_mark_millis) + "ms");
+        last_mark_millis = now;
+    }
+
+
+    /**
+     * Get the breakdown of the phases marked so far.
+     * @return the total time since the JVM started and the time of every phase.
+     */
+    public static synchronized String report() {
+        return "Startup took " + (last_mark_millis - JVM_START_MILLIS) + "ms: " + String.join(", ", phases);
+    }
+}
@@ -5,6 +5,8 @@ import java.sql.Date;
 public class TempExportQueryData {
     private Date date_query;
     private String event_name;
+    private int since_attendance_id;
+    private int last_attendance_id;
 
 
     public Date getDateQuery() {
@@ -13,11 +15,20 @@ public class TempExportQueryData {
 
     public String getEventNameQuery() { return event_name; }
 
+    public int getSinceAttendanceIdQuery() { return since_attendance_id; }
+
+    public int getLastAttendanceId() { return last_attendance_id; }
+
 
     public boolean buildDate(String date_string) {
         boolean validFormat = date_string.matches("^\\d{4}-((1[0-2])|(0?[1-9]))-\\d{1,2}$");
         if (validFormat) {
-            this.date_query = Date.valueOf(date_string);
+            try {
+                this.date_query = Date.valueOf(date_string);
+            }
+            catch (IllegalArgumentException iae) {
+                return false; // e.g. 2024-02-45, the day does not exist.
+            }
         }
         return  validFormat;
     }
@@ -25,4 +36,18 @@ public class TempExportQueryData {
     public void buildEventName(String event_name) {
         this.event_name = event_name;
     }
+
+    /**
+     * Set the watermark of an incremental export. Both the query and the
+     * last exported attendance_id start from it.
+     * @param since_attendance_id the last attendance_id that was already exported.
+     */
+    public void buildSinceAttendanceId(int since_attendance_id) {
+        this.since_attendance_id = since_attendance_id;
+        this.last_attendance_id = since_attendance_id;
+    }
+
+    public void setLastAttendanceId(int last_attendance_id) {
+        this.last_attendance_id = last_attendance_id;
+    }
 }